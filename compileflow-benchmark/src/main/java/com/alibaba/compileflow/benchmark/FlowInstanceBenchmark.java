@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.benchmark;
+
+import com.alibaba.compileflow.engine.common.utils.ClassUtils;
+import com.alibaba.compileflow.engine.process.impl.AbstractProcessEngine;
+import com.alibaba.compileflow.engine.process.impl.TbbpmStatelessProcessEngineImpl;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCacheEntry;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.RuntimeOption;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.FlowClassLoader;
+import com.alibaba.compileflow.engine.runtime.instance.FlowInstanceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a flow instance per execution, reflectively as engines used to do, and through the flow class
+ * itself as a {@link FlowInstanceFactory}. Reentrant flows, the default, hand out their single instance, so the
+ * factory of the flow compiled with {@link RuntimeOption#setStatelessReentrant(boolean)} off is measured as well.
+ * <pre>
+ * mvn -f compileflow-benchmark/pom.xml package
+ * java -jar compileflow-benchmark/target/benchmarks.jar FlowInstanceBenchmark
+ * </pre>
+ *
+ * @author yusu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowInstanceBenchmark {
+
+    private static final String CODE = "bpm.benchmark.priceFlow";
+
+    @Param({"true", "false"})
+    private boolean reentrant;
+
+    private AbstractProcessEngine<?> processEngine;
+
+    private Map<String, Object> context;
+
+    private Class<?> flowClass;
+
+    private FlowInstanceFactory<?> instanceFactory;
+
+    @Setup
+    public void setUp() throws Exception {
+        RuntimeOption runtimeOption = new RuntimeOption();
+        runtimeOption.setStatelessReentrant(reentrant);
+        processEngine = new TbbpmStatelessProcessEngineImpl();
+        processEngine.setRuntimeOption(runtimeOption);
+        context = new HashMap<>();
+        context.put("price", 500);
+        processEngine.execute(CODE, context);
+
+        ClassCacheEntry entry = processEngine.compileAheadOfTime(CODE);
+        String className = entry.getMainClassName();
+        flowClass = FlowClassLoader.defineClasses(Collections.singletonList(className), entry.getClassBytes())
+            .get(className);
+        instanceFactory = (FlowInstanceFactory<?>) ClassUtils.newInstance(flowClass);
+    }
+
+    @Benchmark
+    public Object reflectiveNewInstance() throws Exception {
+        return ClassUtils.newInstance(flowClass);
+    }
+
+    @Benchmark
+    public Object factoryNewInstance() {
+        return instanceFactory.newInstance();
+    }
+
+    @Benchmark
+    public Map<String, Object> execute() {
+        return processEngine.execute(CODE, context);
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.benchmark;
+
+import com.alibaba.compileflow.engine.runtime.state.SnapshotInput;
+import com.alibaba.compileflow.engine.runtime.state.SnapshotOutput;
+import com.alibaba.compileflow.engine.runtime.state.SnapshotSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of saving and restoring the vars of a stateful flow instance, as the binary snapshot written by the flow
+ * class, see {@link SnapshotSchema}, and as the serialized map of vars stateful flows used to be saved as. The sizes
+ * of both are printed on setup.
+ * <pre>
+ * mvn -f compileflow-benchmark/pom.xml package
+ * java -jar compileflow-benchmark/target/benchmarks.jar SnapshotBenchmark
+ * </pre>
+ *
+ * @author yusu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final SnapshotSchema SCHEMA = SnapshotSchema.of(
+        new String[] {"orderId", "num", "amount", "paid", "createdAt", "items", "attributes"},
+        new String[] {"java.lang.String", "int", "java.math.BigDecimal", "boolean", "java.util.Date",
+            "java.util.List<java.lang.String>", "java.util.Map<java.lang.String,java.lang.Object>"});
+
+    private String orderId;
+
+    private int num;
+
+    private BigDecimal amount;
+
+    private boolean paid;
+
+    private Date createdAt;
+
+    private ArrayList<String> items;
+
+    private HashMap<String, Object> attributes;
+
+    private Map<String, Object> vars;
+
+    private byte[] binarySnapshot;
+
+    private byte[] serializedSnapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        orderId = "order-20240101-0001";
+        num = 3;
+        amount = new BigDecimal("299.90");
+        paid = false;
+        createdAt = new Date(1704067200000L);
+        items = new ArrayList<>(Arrays.asList("item-1", "item-2", "item-3"));
+        attributes = new HashMap<>();
+        attributes.put("channel", "app");
+        attributes.put("coupon", 20L);
+
+        vars = new HashMap<>();
+        vars.put("orderId", orderId);
+        vars.put("num", num);
+        vars.put("amount", amount);
+        vars.put("paid", paid);
+        vars.put("createdAt", createdAt);
+        vars.put("items", items);
+        vars.put("attributes", attributes);
+
+        binarySnapshot = binarySnapshot();
+        serializedSnapshot = serializedSnapshot();
+        System.out.println("Snapshot size: binary " + binarySnapshot.length + " bytes, serialized "
+            + serializedSnapshot.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] binarySnapshot() throws IOException {
+        SnapshotOutput output = SCHEMA.newOutput();
+        output.writeValue(orderId);
+        output.writeInt(num);
+        output.writeValue(amount);
+        output.writeBoolean(paid);
+        output.writeValue(createdAt);
+        output.writeValue(items);
+        output.writeValue(attributes);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public void binaryRestore(Blackhole blackhole) throws IOException {
+        SnapshotInput input = SCHEMA.newInput(binarySnapshot);
+        blackhole.consume(input.readValue());
+        blackhole.consume(input.readInt());
+        blackhole.consume(input.readValue());
+        blackhole.consume(input.readBoolean());
+        blackhole.consume(input.readValue());
+        blackhole.consume(input.readValue());
+        blackhole.consume(input.readValue());
+    }
+
+    @Benchmark
+    public byte[] serializedSnapshot() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(vars);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Benchmark
+    public Object serializedRestore() throws Exception {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(
+            new ByteArrayInputStream(serializedSnapshot))) {
+            return objectInputStream.readObject();
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.maven.plugin;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compile the <code>.bpm</code> and <code>.bpmn20</code> flows of the project at build time. The flow classes and
+ * their index are written to the output directory and packaged with the project, the engine then uses them
+ * instead of compiling the flows at runtime.
+ * <p>
+ * Flows are compiled by the compileflow version the project depends on, in a class loader isolated from the
+ * plugin, so that the generated code sees exactly the classes it sees at runtime.
+ *
+ * @author yusu
+ */
+@Mojo(name = "compile", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+    requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
+public class CompileFlowMojo extends AbstractMojo {
+
+    private static final String PRECOMPILER_CLASS_NAME =
+        "com.alibaba.compileflow.engine.process.preruntime.compiler.impl.FlowClassPrecompiler";
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${plugin.artifacts}", readonly = true, required = true)
+    private List<Artifact> pluginArtifacts;
+
+    /**
+     * Directory scanned for flows, flow codes are the paths relative to it.
+     */
+    @Parameter(defaultValue = "${project.basedir}/src/main/resources", required = true)
+    private File resourceDirectory;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File outputDirectory;
+
+    /**
+     * Compile the flows for the stateful engine instead of the stateless one.
+     */
+    @Parameter(property = "compileflow.stateful", defaultValue = "false")
+    private boolean stateful;
+
+    @Parameter(property = "compileflow.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            getLog().info("Skip compiling flows");
+            return;
+        }
+        if (!resourceDirectory.isDirectory()) {
+            getLog().info("No flow to compile, " + resourceDirectory + " doesn't exist");
+            return;
+        }
+
+        Thread currentThread = Thread.currentThread();
+        ClassLoader contextClassLoader = currentThread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(getClasspath(),
+            ClassLoader.getSystemClassLoader().getParent())) {
+            currentThread.setContextClassLoader(classLoader);
+            Method precompile = classLoader.loadClass(PRECOMPILER_CLASS_NAME)
+                .getMethod("precompile", File.class, File.class, boolean.class);
+            List<?> codes = (List<?>) precompile.invoke(null, resourceDirectory, outputDirectory, stateful);
+            getLog().info("Compiled " + codes.size() + " flows to " + outputDirectory);
+        } catch (InvocationTargetException e) {
+            throw new MojoExecutionException("Failed to compile flows", e.getCause());
+        } catch (Exception e) {
+            throw new MojoExecutionException("Failed to compile flows", e);
+        } finally {
+            currentThread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    /**
+     * Classpath of the project first, then the plugin's own compileflow and ecj, in case the project excludes ecj.
+     */
+    private URL[] getClasspath() throws DependencyResolutionRequiredException, MalformedURLException {
+        Set<URL> urls = new LinkedHashSet<>();
+        for (String element : project.getCompileClasspathElements()) {
+            urls.add(new File(element).toURI().toURL());
+        }
+        for (Artifact artifact : pluginArtifacts) {
+            urls.add(artifact.getFile().toURI().toURL());
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine;
+
+import java.util.Map;
+
+/**
+ * Result of one execution of a batch or one instance triggered by an event, either the result map of the flow or the
+ * failure of the execution, see {@link ProcessEngine#executeBatch(String, java.util.List)} and
+ * {@link StatefulProcessEngine#deliverEvent(String, String, Map)}.
+ *
+ * @author yusu
+ */
+public class ExecutionResult {
+
+    private Map<String, Object> result;
+
+    private Throwable failure;
+
+    public static ExecutionResult of(Map<String, Object> result) {
+        ExecutionResult executionResult = new ExecutionResult();
+        executionResult.result = result;
+        return executionResult;
+    }
+
+    public static ExecutionResult ofFailure(Throwable failure) {
+        ExecutionResult executionResult = new ExecutionResult();
+        executionResult.failure = failure;
+        return executionResult;
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return null if the execution failed
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "ExecutionResult{result=" + result + "}" : "ExecutionResult{failure=" + failure + "}";
+    }
+
+}
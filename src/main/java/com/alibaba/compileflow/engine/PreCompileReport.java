@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a parallel pre-compilation, lists the compiled flows and the failure of every flow that
+ * could not be compiled.
+ *
+ * @author yusu
+ */
+public class PreCompileReport {
+
+    private List<String> compiledCodes;
+
+    private Map<String, Throwable> failures;
+
+    private long costMillis;
+
+    public static PreCompileReport of(Collection<String> compiledCodes, Map<String, Throwable> failures,
+                                      long costMillis) {
+        PreCompileReport report = new PreCompileReport();
+        report.compiledCodes = Collections.unmodifiableList(new ArrayList<>(compiledCodes));
+        report.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        report.costMillis = costMillis;
+        return report;
+    }
+
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    public List<String> getCompiledCodes() {
+        return compiledCodes;
+    }
+
+    public Map<String, Throwable> getFailures() {
+        return failures;
+    }
+
+    public long getCostMillis() {
+        return costMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "PreCompileReport{compiled=" + compiledCodes.size() + ", failed=" + failures.keySet()
+            + ", costMillis=" + costMillis + "}";
+    }
+
+}
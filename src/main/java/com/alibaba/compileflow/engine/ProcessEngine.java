@@ -16,7 +16,14 @@
  */
 package com.alibaba.compileflow.engine;
 
+import com.alibaba.compileflow.engine.runtime.instance.TypedProcessInstance;
+
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author wuxiang
@@ -26,11 +33,80 @@ public interface ProcessEngine<T extends FlowModel> {
 
     Map<String, Object> execute(String code, Map<String, Object> context);
 
+    /**
+     * Execute a flow on the default executor of the engine, see {@link #executeAsync(String, Map, Executor)}.
+     */
+    CompletableFuture<Map<String, Object>> executeAsync(String code, Map<String, Object> context);
+
+    /**
+     * Execute a flow on the given executor. Cancelling the returned future interrupts the flow, which stops before
+     * its next node.
+     *
+     * @param executor executor running the flow
+     */
+    CompletableFuture<Map<String, Object>> executeAsync(String code, Map<String, Object> context, Executor executor);
+
+    /**
+     * Execute a flow over many contexts one by one on the calling thread. The flow is resolved once for the whole
+     * batch.
+     *
+     * @return results in the order of the contexts, a failed execution doesn't abort the others
+     */
+    List<ExecutionResult> executeBatch(String code, List<Map<String, Object>> contexts);
+
+    /**
+     * Execute a flow over many contexts on a fork-join pool, the contexts are split into chunks of at most
+     * {@code chunkSize} contexts executed by the workers of the pool.
+     *
+     * @param chunkSize max number of contexts executed by one task
+     * @param pool      pool executing the chunks
+     * @return results in the order of the contexts, a failed execution doesn't abort the others
+     */
+    List<ExecutionResult> executeBatch(String code, List<Map<String, Object>> contexts, int chunkSize,
+                                       ForkJoinPool pool);
+
+    /**
+     * Execute a flow lazily over a stream of contexts, each context is executed when its result is consumed.
+     */
+    Iterator<ExecutionResult> executeBatch(String code, Iterator<Map<String, Object>> contexts);
+
+    /**
+     * Execute a flow over a stream of contexts on a fork-join pool, see
+     * {@link #executeBatch(String, List, int, ForkJoinPool)}. Only chunks for the workers of the pool are read ahead
+     * of the consumed results, so that long streams are not held in memory.
+     */
+    Iterator<ExecutionResult> executeBatch(String code, Iterator<Map<String, Object>> contexts, int chunkSize,
+                                           ForkJoinPool pool);
+
+    /**
+     * Typed entry point of a stateless flow. The params of the flow are read from the public fields or getters of
+     * the input type, the return vars are written to the public fields or setters of a new instance of the output
+     * type, matched by name, so that no context map is built. The output type needs a public no-arg constructor.
+     *
+     * @param inputType  type of the input, members without a param of the same name are ignored
+     * @param outputType type of the output, members without a return var of the same name are left alone
+     * @throws com.alibaba.compileflow.engine.common.CompileFlowException if the flow has no typed entry point, e.g.
+     *                                                                    it's stateful, or a member doesn't fit the
+     *                                                                    type of its var
+     */
+    <I, O> TypedProcessInstance<I, O> getTypedInstance(String code, Class<I> inputType, Class<O> outputType);
+
     @Deprecated
     Map<String, Object> start(String code, Map<String, Object> context);
 
     void preCompile(String... codes);
 
+    /**
+     * Pre-compile flows concurrently on the given executor, the codes are split into at most
+     * {@code parallelism} batches. A failed flow doesn't abort the others, it's reported instead.
+     *
+     * @param parallelism max number of batches compiling at the same time
+     * @param executor    executor running the batches
+     * @param codes       flow codes
+     * @return report of compiled and failed flows
+     */
+    PreCompileReport preCompile(int parallelism, Executor executor, String... codes);
+
     void reload(String code);
 
     T load(String code);
@@ -1,6 +1,12 @@
 package com.alibaba.compileflow.engine;
 
+import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
+import com.alibaba.compileflow.engine.runtime.state.StateStore;
+
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * @author wuxiang
@@ -15,4 +21,55 @@ public interface StatefulProcessEngine<T extends FlowModel> extends ProcessEngin
      */
     Map<String, Object> trigger(String code, String currentTag, Map<String, Object> context);
 
+    /**
+     * Trigger a flow on the default executor of the engine, see
+     * {@link #triggerAsync(String, String, Map, Executor)}.
+     */
+    CompletableFuture<Map<String, Object>> triggerAsync(String code, String currentTag, Map<String, Object> context);
+
+    /**
+     * Trigger a flow on the given executor. Cancelling the returned future interrupts the flow, which stops before
+     * its next node.
+     *
+     * @param executor executor running the flow
+     */
+    CompletableFuture<Map<String, Object>> triggerAsync(String code, String currentTag, Map<String, Object> context,
+                                                        Executor executor);
+
+    /**
+     * Start a flow instance managed by the engine. Its vars and the tag of the wait node it stopped at are saved to
+     * the {@link StateStore} of the engine, so that it's resumed by its id only, see
+     * {@link #triggerInstance(String, Map)}. The state is removed once the flow ends.
+     *
+     * @param instanceId id of the new instance
+     */
+    Map<String, Object> startInstance(String code, String instanceId, Map<String, Object> context);
+
+    /**
+     * Resume a flow instance managed by the engine from the wait node it stopped at.
+     *
+     * @param context overrides of the saved vars, and whatever the trigger brings in, e.g. the event name
+     */
+    Map<String, Object> triggerInstance(String instanceId, Map<String, Object> context);
+
+    /**
+     * Trigger all flow instances managed by the engine which wait for the event with the correlation key, as
+     * declared by the <code>eventName</code> and <code>correlationKey</code> of their wait event node. An instance
+     * whose node has no correlation key is correlated by its id.
+     *
+     * @param payload what the event brings in, on top of the saved vars of every instance
+     * @return results of the triggered instances, keyed by instance id, an instance which failed doesn't stop the
+     * others and has its failure as result
+     * @throws IllegalArgumentException if any argument is null
+     * @throws CompileFlowException     if the flows of the engine don't correlate events, which is the case of bpmn
+     *                                  flows, whose instances are triggered by id with
+     *                                  {@link #triggerInstance(String, Map)}
+     */
+    Map<String, ExecutionResult> deliverEvent(String eventName, String correlationKey, Map<String, Object> payload);
+
+    /**
+     * @return saved state of the instance, or null if the instance doesn't exist or has ended
+     */
+    ProcessState getInstanceState(String instanceId);
+
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor shared by flows executed off the calling thread, e.g. asynchronous executions and parallel branches.
+ *
+ * @author yusu
+ */
+public class FlowExecutors {
+
+    /**
+     * Virtual thread per task on JDK 21 and later, flows mostly wait for remote services. Cached daemon threads
+     * otherwise.
+     */
+    public static Executor getDefaultExecutor() {
+        return DefaultExecutorHolder.EXECUTOR;
+    }
+
+    private static class DefaultExecutorHolder {
+
+        private static final Logger LOGGER = LoggerFactory.getLogger(FlowExecutors.class);
+
+        private static final Executor EXECUTOR = createExecutor();
+
+        private static Executor createExecutor() {
+            try {
+                return (ExecutorService) MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class)).invoke();
+            } catch (NoSuchMethodException e) {
+                LOGGER.debug("No virtual threads, execute flows on platform threads");
+            } catch (Throwable t) {
+                LOGGER.warn("Failed to create virtual thread executor, execute flows on platform threads", t);
+            }
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadFactory threadFactory = r -> {
+                Thread thread = new Thread(r, "compileflow-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(threadFactory);
+        }
+
+    }
+
+}
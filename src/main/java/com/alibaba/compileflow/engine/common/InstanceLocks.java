@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Locks of flow instances, one reentrant lock per instance id. Instances never block each other, and a lock is
+ * dropped as soon as no thread holds or waits for it, so that only the instances in use take memory.
+ *
+ * @author yusu
+ */
+public class InstanceLocks {
+
+    private final Map<String, InstanceLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Lock the instance, waiting for the thread holding it if any.
+     *
+     * @return the lock held, to be closed once done with the instance
+     */
+    public InstanceLock lock(String instanceId) {
+        InstanceLock instanceLock = locks.compute(instanceId, (id, current) -> {
+            InstanceLock lock = current != null ? current : new InstanceLock(id);
+            lock.references++;
+            return lock;
+        });
+        instanceLock.lock.lock();
+        return instanceLock;
+    }
+
+    /**
+     * @return number of instances locked or waited for
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    public class InstanceLock implements AutoCloseable {
+
+        private final String instanceId;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /**
+         * Number of threads holding or waiting for the lock, counting reentries, updated within the map only.
+         */
+        private int references;
+
+        private InstanceLock(String instanceId) {
+            this.instanceId = instanceId;
+        }
+
+        @Override
+        public void close() {
+            lock.unlock();
+            locks.computeIfPresent(instanceId, (id, current) -> --current.references == 0 ? null : current);
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache of values which are expensive to load, e.g. compiled flows. A missing value is loaded by the first caller
+ * outside of any map lock, concurrent callers of the same key wait for that single load, while other keys never
+ * block. A failed load is not cached, the next caller loads again.
+ *
+ * @author yusu
+ */
+public class SingleFlightCache<K, V> {
+
+    private final Map<K, CompletableFuture<V>> cache = new ConcurrentHashMap<>();
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> future = cache.get(key);
+        if (future == null) {
+            Loading<V> loading = new Loading<>();
+            future = cache.putIfAbsent(key, loading);
+            if (future == null) {
+                return load(key, loader, loading);
+            }
+        }
+        if (!future.isDone() && future instanceof Loading && ((Loading) future).thread == Thread.currentThread()) {
+            throw new CompileFlowException("Recursive load of " + key);
+        }
+        return join(future);
+    }
+
+    /**
+     * @return the loaded value, or null if absent, still loading or failed
+     */
+    public V getIfPresent(K key) {
+        CompletableFuture<V> future = cache.get(key);
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        return future.join();
+    }
+
+    /**
+     * @return true if the value is loaded or being loaded
+     */
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
+    }
+
+    /**
+     * @return snapshot of the loaded values, values still loading or failed are left out
+     */
+    public Map<K, V> getAllPresent() {
+        Map<K, V> values = new HashMap<>();
+        cache.forEach((key, future) -> {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                values.put(key, future.join());
+            }
+        });
+        return values;
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, CompletableFuture.completedFuture(value));
+    }
+
+    public void putIfAbsent(K key, V value) {
+        cache.putIfAbsent(key, CompletableFuture.completedFuture(value));
+    }
+
+    public void remove(K key) {
+        cache.remove(key);
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader, Loading<V> loading) {
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (Throwable t) {
+            cache.remove(key, loading);
+            loading.completeExceptionally(t);
+            throw t;
+        }
+        loading.complete(value);
+        return value;
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static class Loading<V> extends CompletableFuture<V> {
+
+        private final Thread thread = Thread.currentThread();
+
+    }
+
+}
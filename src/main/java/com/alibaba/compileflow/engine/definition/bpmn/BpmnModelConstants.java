@@ -431,6 +431,9 @@ public final class BpmnModelConstants {
     public static final String BPMN_EXT_ATTRIBUTE_ELEMENT_VAR = "elementVar";
     public static final String BPMN_EXT_ATTRIBUTE_ELEMENT_VAR_CLASS = "elementVarClass";
     public static final String BPMN_EXT_ATTRIBUTE_INDEX_VAR = "indexVar";
+    public static final String BPMN_EXT_ATTRIBUTE_OUTPUT_COLLECTION = "outputCollection";
+    public static final String BPMN_EXT_ATTRIBUTE_OUTPUT_ELEMENT = "outputElement";
+    public static final String BPMN_EXT_ATTRIBUTE_MAX_CONCURRENCY = "maxConcurrency";
 
     public static final String BPMN_EXT_ATTRIBUTE_SUB_PROCESS_CODE = "subProcessCode";
 }
@@ -32,6 +32,14 @@ public class MultiInstanceLoopCharacteristics extends LoopCharacteristics {
     private String oneBehaviorEventRef;
     private String noneBehaviorEventRef;
 
+    private String collection;
+    private String elementVarClass;
+    private String elementVar;
+    private String indexVar;
+    private String outputCollection;
+    private String outputElement;
+    private int maxConcurrency;
+
     public Expression getLoopCardinality() {
         return loopCardinality;
     }
@@ -121,4 +129,60 @@ public class MultiInstanceLoopCharacteristics extends LoopCharacteristics {
         this.noneBehaviorEventRef = noneBehaviorEventRef;
     }
 
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public String getElementVarClass() {
+        return elementVarClass;
+    }
+
+    public void setElementVarClass(String elementVarClass) {
+        this.elementVarClass = elementVarClass;
+    }
+
+    public String getElementVar() {
+        return elementVar;
+    }
+
+    public void setElementVar(String elementVar) {
+        this.elementVar = elementVar;
+    }
+
+    public String getIndexVar() {
+        return indexVar;
+    }
+
+    public void setIndexVar(String indexVar) {
+        this.indexVar = indexVar;
+    }
+
+    public String getOutputCollection() {
+        return outputCollection;
+    }
+
+    public void setOutputCollection(String outputCollection) {
+        this.outputCollection = outputCollection;
+    }
+
+    public String getOutputElement() {
+        return outputElement;
+    }
+
+    public void setOutputElement(String outputElement) {
+        this.outputElement = outputElement;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
 }
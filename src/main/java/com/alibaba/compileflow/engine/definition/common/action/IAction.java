@@ -26,4 +26,10 @@ public interface IAction {
 
     String getType();
 
+    /**
+     * @return true if the action has no side effects but on the vars it's bound to, so that it may run concurrently
+     * with the actions it doesn't share vars with
+     */
+    boolean isParallelizable();
+
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import com.alibaba.compileflow.engine.definition.common.action.IActionHandle;
 
 /**
  * @author wuxiang
+ * @author yusu
  */
 public class Action extends AbstractElement implements IAction {
 
@@ -29,6 +30,8 @@ public class Action extends AbstractElement implements IAction {
 
     private String type;
 
+    private boolean parallelizable;
+
     @Override
     public String getType() {
         return type;
@@ -38,6 +41,15 @@ public class Action extends AbstractElement implements IAction {
         this.type = type;
     }
 
+    @Override
+    public boolean isParallelizable() {
+        return parallelizable;
+    }
+
+    public void setParallelizable(boolean parallelizable) {
+        this.parallelizable = parallelizable;
+    }
+
     @Override
     public IActionHandle getActionHandle() {
         return actionHandle;
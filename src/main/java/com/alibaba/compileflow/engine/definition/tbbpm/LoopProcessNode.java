@@ -40,6 +40,8 @@ public class LoopProcessNode extends FlowNode implements NodeContainer<FlowNode>
     private String collectionVarName;
 
     private String whileExpression;
+    private boolean parallel;
+    private int maxConcurrency;
 
     private String startNodeId;
 
@@ -95,6 +97,22 @@ public class LoopProcessNode extends FlowNode implements NodeContainer<FlowNode>
         this.whileExpression = whileExpression;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
     public String getStartNodeId() {
         return startNodeId;
     }
@@ -11,6 +11,11 @@ public class WaitEventNode extends EventNode {
      */
     private String eventName;
 
+    /**
+     * 关联键所在的流程变量, 为空时按实例 id 关联事件
+     */
+    private String correlationKey;
+
     public String getEventName() {
         return eventName;
     }
@@ -19,4 +24,12 @@ public class WaitEventNode extends EventNode {
         this.eventName = eventName;
     }
 
+    public String getCorrelationKey() {
+        return correlationKey;
+    }
+
+    public void setCorrelationKey(String correlationKey) {
+        this.correlationKey = correlationKey;
+    }
+
 }
@@ -16,27 +16,70 @@
  */
 package com.alibaba.compileflow.engine.process.impl;
 
+import com.alibaba.compileflow.engine.ExecutionResult;
+import com.alibaba.compileflow.engine.PreCompileReport;
 import com.alibaba.compileflow.engine.ProcessEngine;
 import com.alibaba.compileflow.engine.common.CompileFlowException;
 import com.alibaba.compileflow.engine.common.DirectedGraph;
+import com.alibaba.compileflow.engine.common.FlowExecutors;
+import com.alibaba.compileflow.engine.common.InstanceLocks;
+import com.alibaba.compileflow.engine.common.InstanceLocks.InstanceLock;
+import com.alibaba.compileflow.engine.common.SingleFlightCache;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
 import com.alibaba.compileflow.engine.common.utils.ArrayUtils;
+import com.alibaba.compileflow.engine.common.utils.ClassLoaderUtils;
+import com.alibaba.compileflow.engine.common.utils.IOUtils;
+import com.alibaba.compileflow.engine.common.utils.ParamChecker;
 import com.alibaba.compileflow.engine.definition.common.EndElement;
 import com.alibaba.compileflow.engine.definition.common.FlowModel;
 import com.alibaba.compileflow.engine.definition.common.TransitionNode;
 import com.alibaba.compileflow.engine.definition.common.TransitionSupport;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCache;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCacheEntry;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.CompileConstants;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.FlowClassIndex;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.RuntimeOption;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.FileClassCache;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.FlowClassLoader;
 import com.alibaba.compileflow.engine.process.preruntime.converter.FlowModelConverter;
+import com.alibaba.compileflow.engine.process.preruntime.converter.impl.parser.model.BytesFlowStreamSource;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.parser.model.FlowStreamSource;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.parser.model.ResourceFlowStreamSource;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractStatefulProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.SubFlowLink;
+import com.alibaba.compileflow.engine.runtime.instance.TypedProcessInstance;
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
+import com.alibaba.compileflow.engine.runtime.state.StateStore;
+import com.alibaba.compileflow.engine.runtime.state.impl.FileStateStore;
 import org.apache.commons.collections4.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -45,7 +88,218 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractProcessEngine<T extends FlowModel<? extends TransitionNode>> implements ProcessEngine<T> {
 
-    private final Map<String, AbstractProcessRuntime> runtimeCache = new ConcurrentHashMap<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractProcessEngine.class);
+
+    private final SingleFlightCache<String, AbstractProcessRuntime> runtimeCache = new SingleFlightCache<>();
+
+    private final AtomicLong runtimeVersion = new AtomicLong();
+
+    private ClassCache classCache = FileClassCache.getDefault();
+
+    private volatile RuntimeOption runtimeOption = new RuntimeOption();
+
+    private volatile Executor asyncExecutor = FlowExecutors.getDefaultExecutor();
+
+    private volatile StateStore stateStore;
+
+    /**
+     * Locks of the instances managed by the engine, held while one is started or triggered.
+     */
+    private final InstanceLocks instanceLocks = new InstanceLocks();
+
+    public void setClassCache(ClassCache classCache) {
+        this.classCache = classCache;
+    }
+
+    /**
+     * Runtimes already built are dropped, flows are compiled again with the given options on their next execution.
+     * Set a new option to change it, the option set is not watched for changes.
+     */
+    public void setRuntimeOption(RuntimeOption runtimeOption) {
+        ParamChecker.notNull(runtimeOption, "runtimeOption is null");
+        this.runtimeOption = runtimeOption;
+        runtimeCache.getAllPresent().keySet().forEach(runtimeCache::remove);
+        runtimeVersion.incrementAndGet();
+    }
+
+    public RuntimeOption getRuntimeOption() {
+        return runtimeOption;
+    }
+
+    /**
+     * Store of the stateful flow instances managed by the engine, {@link FileStateStore#getDefault(FlowModelType)} if
+     * not set. Instances are locked by the engine, engines sharing a store shouldn't manage the same instances.
+     */
+    public void setStateStore(StateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
+    protected StateStore getStateStore() {
+        StateStore store = stateStore;
+        return store != null ? store : FileStateStore.getDefault(getFlowModelType());
+    }
+
+    /**
+     * Start a stateful flow instance managed by the engine, its state is saved whenever it stops at a wait node.
+     */
+    protected Map<String, Object> startDurableInstance(String code, String instanceId, Map<String, Object> context) {
+        try (InstanceLock instanceLock = instanceLocks.lock(instanceId)) {
+            StateStore store = getStateStore();
+            if (store.load(instanceId) != null) {
+                throw new CompileFlowException("Process instance already exists, instance id is " + instanceId);
+            }
+            AbstractStatefulProcessRuntime<?> runtime = getProcessRuntime(code);
+            return runtime.start(instanceId, context, store);
+        }
+    }
+
+    /**
+     * Resume a stateful flow instance managed by the engine from its saved state. Triggers of the same instance
+     * run one after another.
+     */
+    protected Map<String, Object> triggerDurableInstance(String instanceId, Map<String, Object> context) {
+        try (InstanceLock instanceLock = instanceLocks.lock(instanceId)) {
+            StateStore store = getStateStore();
+            ProcessState state = store.load(instanceId);
+            if (state == null) {
+                throw new CompileFlowException("Process instance not found, instance id is " + instanceId);
+            }
+            AbstractStatefulProcessRuntime<?> runtime = getProcessRuntime(state.getCode());
+            return runtime.trigger(instanceId, state, context, store);
+        }
+    }
+
+    /**
+     * Trigger the stateful flow instances managed by the engine which wait for the event of the correlation key.
+     * Matches are found by {@link StateStore#findWaitingInstances(String, String)} and triggered in batches spread
+     * over the cores, triggers of the same instance still run one after another. The failure of an instance doesn't
+     * affect the others, it's recorded as its result.
+     */
+    protected Map<String, ExecutionResult> deliverDurableEvent(String eventName, String correlationKey,
+                                                               Map<String, Object> payload) {
+        ParamChecker.notNull(eventName, "eventName is null");
+        ParamChecker.notNull(correlationKey, "correlationKey is null");
+        ParamChecker.notNull(payload, "payload is null");
+        StateStore store = getStateStore();
+        List<String> instanceIds = store.findWaitingInstances(eventName, correlationKey);
+        if (instanceIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, Object> context = new HashMap<>(payload);
+        context.put("eventName", eventName);
+        Map<String, ExecutionResult> results = new ConcurrentHashMap<>();
+        int batchCount = Math.min(instanceIds.size(), Runtime.getRuntime().availableProcessors());
+        if (batchCount <= 1) {
+            deliverDurableEvent(store, instanceIds, eventName, correlationKey, context, results);
+        } else {
+            int batchSize = (instanceIds.size() + batchCount - 1) / batchCount;
+            List<CompletableFuture<Void>> batches = new ArrayList<>();
+            for (int from = 0; from < instanceIds.size(); from += batchSize) {
+                List<String> batch = instanceIds.subList(from, Math.min(from + batchSize, instanceIds.size()));
+                batches.add(CompletableFuture.runAsync(() -> deliverDurableEvent(store, batch, eventName,
+                    correlationKey, context, results), asyncExecutor));
+            }
+            CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+        }
+        return results;
+    }
+
+    private void deliverDurableEvent(StateStore store, List<String> instanceIds, String eventName,
+                                     String correlationKey, Map<String, Object> context,
+                                     Map<String, ExecutionResult> results) {
+        for (String instanceId : instanceIds) {
+            try (InstanceLock instanceLock = instanceLocks.lock(instanceId)) {
+                // the instance may have moved on since it was found, or collided with another event
+                ProcessState state = store.load(instanceId);
+                if (state == null || !eventName.equals(state.getEventName())
+                    || !correlationKey.equals(state.getCorrelationKey())) {
+                    continue;
+                }
+                AbstractStatefulProcessRuntime<?> runtime = getProcessRuntime(state.getCode());
+                results.put(instanceId, ExecutionResult.of(runtime.trigger(instanceId, state, new HashMap<>(context),
+                    store)));
+            } catch (Exception | LinkageError e) {
+                LOGGER.error("Failed to deliver event " + eventName + " to process instance " + instanceId, e);
+                results.put(instanceId, ExecutionResult.ofFailure(e));
+            }
+        }
+    }
+
+    /**
+     * Executor of the asynchronous executions which are not given one, virtual threads on JDK 21 and later by
+     * default.
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        ParamChecker.notNull(asyncExecutor, "asyncExecutor is null");
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> executeAsync(String code, Map<String, Object> context) {
+        return executeAsync(code, context, asyncExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> executeAsync(String code, Map<String, Object> context,
+                                                               Executor executor) {
+        return supplyAsync(() -> execute(code, context), executor);
+    }
+
+    protected CompletableFuture<Map<String, Object>> supplyAsync(Supplier<Map<String, Object>> flow) {
+        return supplyAsync(flow, asyncExecutor);
+    }
+
+    protected CompletableFuture<Map<String, Object>> supplyAsync(Supplier<Map<String, Object>> flow,
+                                                                Executor executor) {
+        ParamChecker.notNull(executor, "executor is null");
+        return AsyncFlowExecution.submit(flow, executor);
+    }
+
+    @Override
+    public List<ExecutionResult> executeBatch(String code, List<Map<String, Object>> contexts) {
+        ParamChecker.notNull(contexts, "contexts is null");
+        return getBatchFlowExecution(code).execute(contexts);
+    }
+
+    @Override
+    public List<ExecutionResult> executeBatch(String code, List<Map<String, Object>> contexts, int chunkSize,
+                                              ForkJoinPool pool) {
+        ParamChecker.notNull(contexts, "contexts is null");
+        checkChunkSize(chunkSize);
+        ParamChecker.notNull(pool, "pool is null");
+        return getBatchFlowExecution(code).execute(contexts, chunkSize, pool);
+    }
+
+    @Override
+    public Iterator<ExecutionResult> executeBatch(String code, Iterator<Map<String, Object>> contexts) {
+        ParamChecker.notNull(contexts, "contexts is null");
+        return getBatchFlowExecution(code).execute(contexts);
+    }
+
+    @Override
+    public Iterator<ExecutionResult> executeBatch(String code, Iterator<Map<String, Object>> contexts,
+                                                  int chunkSize, ForkJoinPool pool) {
+        ParamChecker.notNull(contexts, "contexts is null");
+        checkChunkSize(chunkSize);
+        ParamChecker.notNull(pool, "pool is null");
+        return getBatchFlowExecution(code).execute(contexts, chunkSize, pool);
+    }
+
+    /**
+     * The runtime is looked up once for the batch instead of once per context, a flow failing to compile fails the
+     * call rather than every execution.
+     */
+    private BatchFlowExecution getBatchFlowExecution(String code) {
+        AbstractProcessRuntime<?> runtime = getProcessRuntime(code);
+        return BatchFlowExecution.of(runtime::start);
+    }
+
+    private void checkChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize should be positive, chunkSize is " + chunkSize);
+        }
+    }
 
     @Override
     public void preCompile(String... codes) {
@@ -53,45 +307,321 @@ public abstract class AbstractProcessEngine<T extends FlowModel<? extends Transi
             throw new CompileFlowException("No process to compile");
         }
 
+        Map<String, AbstractProcessRuntime> runtimes = new LinkedHashMap<>();
+        Map<String, String> classCacheKeys = new HashMap<>();
         for (String code : codes) {
-            AbstractProcessRuntime runtime = getProcessRuntime(code);
-            runtime.compile();
+            if (!runtimeCache.containsKey(getCacheKey(code)) && !runtimes.containsKey(code)) {
+                runtimes.put(code, getRuntime(code, classCacheKeys));
+            }
         }
+
+        Map<String, byte[]> classBytes = AbstractProcessRuntime.compile(runtimes.values());
+        putClassCache(runtimes, classCacheKeys, classBytes);
+        runtimes.forEach((code, runtime) -> runtimeCache.putIfAbsent(getCacheKey(code), runtime));
     }
 
+    @Override
+    public PreCompileReport preCompile(int parallelism, Executor executor, String... codes) {
+        if (ArrayUtils.isEmpty(codes)) {
+            throw new CompileFlowException("No process to compile");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be positive, parallelism is " + parallelism);
+        }
+        ParamChecker.notNull(executor, "executor is null");
+
+        long start = System.currentTimeMillis();
+        List<String> distinctCodes = Arrays.stream(codes).distinct().collect(Collectors.toList());
+        Queue<String> compiledCodes = new ConcurrentLinkedQueue<>();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+
+        int batchSize = (distinctCodes.size() + parallelism - 1) / parallelism;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < distinctCodes.size(); i += batchSize) {
+            List<String> batch = distinctCodes.subList(i, Math.min(i + batchSize, distinctCodes.size()));
+            futures.add(CompletableFuture.runAsync(() -> preCompileBatch(batch, compiledCodes, failures), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        return PreCompileReport.of(compiledCodes, failures, System.currentTimeMillis() - start);
+    }
+
+    private void preCompileBatch(List<String> codes, Queue<String> compiledCodes, Map<String, Throwable> failures) {
+        Map<String, AbstractProcessRuntime> runtimes = new LinkedHashMap<>();
+        Map<String, String> classCacheKeys = new HashMap<>();
+        for (String code : codes) {
+            if (runtimeCache.containsKey(getCacheKey(code))) {
+                compiledCodes.add(code);
+                continue;
+            }
+            try {
+                runtimes.put(code, getRuntime(code, classCacheKeys));
+            } catch (Throwable t) {
+                failures.put(code, t);
+            }
+        }
+
+        try {
+            Map<String, byte[]> classBytes = AbstractProcessRuntime.compile(runtimes.values());
+            putClassCache(runtimes, classCacheKeys, classBytes);
+        } catch (Throwable t) {
+            // one broken flow fails the whole compiler pass, compile one by one to find it out
+            Iterator<Map.Entry<String, AbstractProcessRuntime>> iterator = runtimes.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, AbstractProcessRuntime> entry = iterator.next();
+                try {
+                    Map<String, byte[]> classBytes = AbstractProcessRuntime.compile(
+                        Collections.singletonList(entry.getValue()));
+                    putClassCache(Collections.singletonMap(entry.getKey(), entry.getValue()), classCacheKeys,
+                        classBytes);
+                } catch (Throwable e) {
+                    failures.put(entry.getKey(), e);
+                    iterator.remove();
+                }
+            }
+        }
+
+        runtimes.forEach((code, runtime) -> {
+            runtimeCache.putIfAbsent(getCacheKey(code), runtime);
+            compiledCodes.add(code);
+        });
+    }
+
+    /**
+     * The new version is compiled aside into a class loader of its own and swapped in atomically. Executions in
+     * flight finish on the old version, whose classes are unloaded once it is no longer referenced. Flows having
+     * the flow inlined are compiled again as well, see {@link AbstractProcessRuntime#getInlinedCodes()}.
+     */
     @Override
     public void reload(String code) {
-        FlowClassLoader.getInstance().clearCache();
-        AbstractProcessRuntime runtime = runtimeCache.computeIfPresent(code, (k, v) -> getRuntimeFromSource(code));
-        runtime.recompile(code);
+        runtimeCache.put(getCacheKey(code), compileRuntime(code));
+        runtimeCache.getAllPresent().forEach((cacheKey, runtime) -> {
+            if (runtime.getInlinedCodes().contains(code)) {
+                runtimeCache.put(cacheKey, compileRuntime(runtime.getCode()));
+            }
+        });
+        runtimeVersion.incrementAndGet();
+    }
+
+    /**
+     * Version of the runtimes of the engine, bumped by every {@link #reload(String)}, so that sub flow links know
+     * when to resolve their sub flow again, see {@link SubFlowLink}.
+     */
+    public long getRuntimeVersion() {
+        return runtimeVersion.get();
+    }
+
+    /**
+     * Runtime of a flow called as sub flow by other flows, see {@link SubFlowLink}.
+     */
+    public AbstractProcessRuntime<?> getSubFlowRuntime(String code) {
+        return getProcessRuntime(code);
+    }
+
+    @Override
+    public <I, O> TypedProcessInstance<I, O> getTypedInstance(String code, Class<I> inputType, Class<O> outputType) {
+        ParamChecker.notNull(inputType, "inputType is null");
+        ParamChecker.notNull(outputType, "outputType is null");
+        return TypedFlowExecution.of(this, code, inputType, outputType);
     }
 
     @SuppressWarnings("unchecked")
     protected <R extends AbstractProcessRuntime> R getProcessRuntime(String code) {
         String cacheKey = getCacheKey(code);
-        AbstractProcessRuntime runtime = runtimeCache.computeIfAbsent(cacheKey, c ->
-            getCompiledRuntime(code));
+        AbstractProcessRuntime runtime = runtimeCache.get(cacheKey, c -> getCompiledRuntime(code));
         return (R) runtime;
     }
 
     private AbstractProcessRuntime getCompiledRuntime(String code) {
-        AbstractProcessRuntime runtime = getRuntimeFromSource(code);
-        runtime.compile();
+        AbstractProcessRuntime prebuiltRuntime = getPrebuiltRuntime(code);
+        return prebuiltRuntime != null ? prebuiltRuntime : compileRuntime(code);
+    }
+
+    private AbstractProcessRuntime compileRuntime(String code) {
+        Map<String, String> classCacheKeys = new HashMap<>();
+        AbstractProcessRuntime runtime = getRuntimeFromClassCacheOrSource(code, classCacheKeys);
+        if (runtime.isInterpreted()) {
+            return runtime;
+        }
+        Map<String, byte[]> classBytes = AbstractProcessRuntime.compile(Collections.singletonList(runtime));
+        putClassCache(Collections.singletonMap(code, runtime), classCacheKeys, classBytes);
         return runtime;
     }
 
+    private AbstractProcessRuntime getRuntime(String code, Map<String, String> classCacheKeys) {
+        AbstractProcessRuntime prebuiltRuntime = getPrebuiltRuntime(code);
+        return prebuiltRuntime != null ? prebuiltRuntime : getRuntimeFromClassCacheOrSource(code, classCacheKeys);
+    }
+
+    /**
+     * Restore the runtime from the class cache when possible, otherwise build it from the flow source and record
+     * its class cache key, so that it can be cached once compiled.
+     */
+    private AbstractProcessRuntime getRuntimeFromClassCacheOrSource(String code, Map<String, String> classCacheKeys) {
+        if (classCache == null) {
+            return getRuntimeFromSource(code);
+        }
+
+        byte[] flowBytes = readFlowBytes(code);
+        String classCacheKey = getClassCacheKey(code, flowBytes);
+        ClassCacheEntry entry = classCache.get(classCacheKey);
+        if (entry != null) {
+            try {
+                String className = entry.getMainClassName();
+                Class<?> compiledClass = FlowClassLoader.defineClasses(Collections.singletonList(className),
+                    entry.getClassBytes()).get(className);
+                return initRuntime(getRuntimeFromClass(code, compiledClass));
+            } catch (Throwable t) {
+                LOGGER.warn("Failed to load cached flow class, compile it again, code is " + code, t);
+                classCache.remove(classCacheKey);
+            }
+        }
+
+        classCacheKeys.put(code, classCacheKey);
+        return getRuntimeFromSource(code, BytesFlowStreamSource.of(flowBytes));
+    }
+
+    /**
+     * Restore the runtime from the flow class compiled at build time, see {@link FlowClassIndex}.
+     *
+     * @return null if the flow is not compiled at build time
+     */
+    private AbstractProcessRuntime getPrebuiltRuntime(String code) {
+        String className = FlowClassIndex.getFlowClassName(getFlowModelType(), getProcessType(), code);
+        if (className == null) {
+            return null;
+        }
+        String flowDigest = FlowClassIndex.getFlowDigest(getFlowModelType(), getProcessType(), code);
+        if (flowDigest != null && isFlowChanged(code, flowDigest)) {
+            LOGGER.warn("Pre-built flow class " + className + " is stale, compile it at runtime, code is " + code);
+            return null;
+        }
+        try {
+            return initRuntime(getRuntimeFromClass(code, ClassLoaderUtils.loadClass(className)));
+        } catch (Throwable t) {
+            LOGGER.warn("Failed to load pre-built flow class " + className + ", compile it at runtime, code is "
+                + code, t);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the flow or the options generating its class changed since the flow was compiled at build
+     * time, false if the flow source is not packaged along with the pre-built class
+     */
+    private boolean isFlowChanged(String code, String flowDigest) {
+        byte[] flowBytes;
+        try {
+            flowBytes = readFlowBytes(code);
+        } catch (Exception e) {
+            return false;
+        }
+        return !flowDigest.equals(getFlowDigest(code, flowBytes));
+    }
+
+    /**
+     * Digest of the flow and of the runtime options affecting the code generated for it, recorded in the
+     * {@link FlowClassIndex} at build time to tell stale pre-built classes.
+     */
+    public String getFlowDigest(String code) {
+        return getFlowDigest(code, readFlowBytes(code));
+    }
+
+    private String getFlowDigest(String code, byte[] flowBytes) {
+        RuntimeOption option = runtimeOption;
+        return digest(flowBytes, code, "statelessReentrant=" + option.isStatelessReentrant(),
+            "autoParallelEnabled=" + option.isAutoParallelEnabled(),
+            "subFlowInlineThreshold=" + option.getSubFlowInlineThreshold());
+    }
+
+    /**
+     * Compile the flow from its source regardless of any pre-built or cached class, for packaging the flow class at
+     * build time. The runtime cache of the engine is left untouched.
+     */
+    public ClassCacheEntry compileAheadOfTime(String code) {
+        AbstractProcessRuntime runtime = getRuntimeFromSource(code);
+        Map<String, byte[]> classBytes = AbstractProcessRuntime.compile(Collections.singletonList(runtime));
+        return getClassCacheEntry(runtime, classBytes);
+    }
+
+    private void putClassCache(Map<String, AbstractProcessRuntime> runtimes, Map<String, String> classCacheKeys,
+                               Map<String, byte[]> classBytes) {
+        if (classCache == null) {
+            return;
+        }
+        classCacheKeys.forEach((code, classCacheKey) -> {
+            AbstractProcessRuntime runtime = runtimes.get(code);
+            // classes having sub flows inlined depend on more than the flow itself
+            if (runtime == null || !runtime.getInlinedCodes().isEmpty()) {
+                return;
+            }
+            ClassCacheEntry entry = getClassCacheEntry(runtime, classBytes);
+            if (entry != null) {
+                classCache.put(classCacheKey, entry);
+            }
+        });
+    }
+
+    private ClassCacheEntry getClassCacheEntry(AbstractProcessRuntime runtime, Map<String, byte[]> classBytes) {
+        String className = runtime.getClassName();
+        Map<String, byte[]> flowClassBytes = FlowClassLoader.getFlowClassBytes(className, classBytes);
+        return flowClassBytes.containsKey(className) ? ClassCacheEntry.of(className, flowClassBytes) : null;
+    }
+
+    /**
+     * Hash of everything the flow class is generated from: the flow and the options generating its code, see
+     * {@link #getFlowDigest(String, byte[])}, as well as the engine.
+     */
+    private String getClassCacheKey(String code, byte[] flowBytes) {
+        return digest(getFlowDigest(code, flowBytes).getBytes(StandardCharsets.UTF_8), getClass().getName(),
+            CompileConstants.ENGINE_VERSION, System.getProperty("java.specification.version"));
+    }
+
+    private static String digest(byte[] bytes, String... parts) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(bytes);
+            for (String part : parts) {
+                messageDigest.update((byte) 0);
+                messageDigest.update(part.getBytes(StandardCharsets.UTF_8));
+            }
+            return String.format("%064x", new BigInteger(1, messageDigest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new CompileFlowException(e);
+        }
+    }
+
+    private byte[] readFlowBytes(String code) {
+        try (InputStream inputStream = loadFlowSource(code).getFlow()) {
+            return IOUtils.toByteArray(inputStream);
+        } catch (IOException e) {
+            throw new CompileFlowException("Failed to read flow, code is " + code, e);
+        }
+    }
+
     private AbstractProcessRuntime getRuntimeFromSource(String code) {
-        T flowModel = load(code);
-        AbstractProcessRuntime runtime = getRuntimeFromModel(flowModel);
+        return getRuntimeFromSource(code, loadFlowSource(code));
+    }
+
+    private AbstractProcessRuntime getRuntimeFromSource(String code, FlowStreamSource flowStreamSource) {
+        T flowModel = load(code, flowStreamSource);
+        return initRuntime(getRuntimeFromModel(flowModel));
+    }
+
+    private AbstractProcessRuntime initRuntime(AbstractProcessRuntime runtime) {
+        runtime.setRuntimeOption(runtimeOption);
+        runtime.setProcessEngine(this);
         runtime.init();
         return runtime;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public T load(String code) {
-        FlowStreamSource flowStreamSource = loadFlowSource(code);
+        return load(code, loadFlowSource(code));
+    }
 
+    @SuppressWarnings("unchecked")
+    private T load(String code, FlowStreamSource flowStreamSource) {
         T flowModel = (T) getFlowModelConverter().convertToModel(flowStreamSource);
         if (flowModel == null) {
             throw new RuntimeException("No valid flow model found, code is " + code);
@@ -185,8 +715,12 @@ public abstract class AbstractProcessEngine<T extends FlowModel<? extends Transi
 
     protected abstract FlowModelType getFlowModelType();
 
+    protected abstract ProcessType getProcessType();
+
     protected abstract FlowModelConverter getFlowModelConverter();
 
     protected abstract AbstractProcessRuntime getRuntimeFromModel(T flowModel);
 
+    protected abstract AbstractProcessRuntime getRuntimeFromClass(String code, Class<?> compiledClass);
+
 }
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.impl;
+
+import com.alibaba.compileflow.engine.runtime.instance.FlowCancellation;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Flow execution running on an executor. Cancelling the future interrupts the running flow, which stops before its
+ * next node, see {@link FlowCancellation}.
+ *
+ * @author yusu
+ */
+class AsyncFlowExecution<T> extends CompletableFuture<T> implements Runnable {
+
+    private final Supplier<T> flow;
+
+    private Thread runner;
+
+    private AsyncFlowExecution(Supplier<T> flow) {
+        this.flow = flow;
+    }
+
+    static <T> CompletableFuture<T> submit(Supplier<T> flow, Executor executor) {
+        AsyncFlowExecution<T> execution = new AsyncFlowExecution<>(flow);
+        try {
+            executor.execute(execution);
+        } catch (Throwable t) {
+            execution.completeExceptionally(t);
+        }
+        return execution;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+        try {
+            complete(FlowCancellation.call(true, flow::get));
+        } catch (Throwable t) {
+            completeExceptionally(t);
+        } finally {
+            synchronized (this) {
+                runner = null;
+                if (isCancelled()) {
+                    // the interrupt of cancel() must not leak into the next task of the thread
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    /**
+     * Unlike other completable futures, cancelling interrupts the execution whatever
+     * <code>mayInterruptIfRunning</code> is.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+        return cancelled;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.impl;
+
+import com.alibaba.compileflow.engine.ExecutionResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Executions of one flow over many contexts. The flow is resolved once by the caller, contexts are executed one by
+ * one, or split into chunks executed on a fork-join pool. Results keep the order of the contexts and a failed
+ * execution doesn't abort the others.
+ *
+ * @author yusu
+ */
+class BatchFlowExecution {
+
+    private final Function<Map<String, Object>, Map<String, Object>> flow;
+
+    private BatchFlowExecution(Function<Map<String, Object>, Map<String, Object>> flow) {
+        this.flow = flow;
+    }
+
+    static BatchFlowExecution of(Function<Map<String, Object>, Map<String, Object>> flow) {
+        return new BatchFlowExecution(flow);
+    }
+
+    List<ExecutionResult> execute(List<Map<String, Object>> contexts) {
+        List<ExecutionResult> results = new ArrayList<>(contexts.size());
+        for (Map<String, Object> context : contexts) {
+            results.add(execute(context));
+        }
+        return results;
+    }
+
+    List<ExecutionResult> execute(List<Map<String, Object>> contexts, int chunkSize, ForkJoinPool pool) {
+        if (!(contexts instanceof RandomAccess)) {
+            contexts = new ArrayList<>(contexts);
+        }
+        ExecutionResult[] results = new ExecutionResult[contexts.size()];
+        pool.invoke(new ChunkAction(contexts, results, 0, results.length, chunkSize));
+        return Arrays.asList(results);
+    }
+
+    Iterator<ExecutionResult> execute(Iterator<Map<String, Object>> contexts) {
+        return new Iterator<ExecutionResult>() {
+
+            @Override
+            public boolean hasNext() {
+                return contexts.hasNext();
+            }
+
+            @Override
+            public ExecutionResult next() {
+                return execute(contexts.next());
+            }
+
+        };
+    }
+
+    /**
+     * Contexts are pulled ahead by as many chunks as the pool has workers, they're executed on the pool once the
+     * previous results are consumed.
+     */
+    Iterator<ExecutionResult> execute(Iterator<Map<String, Object>> contexts, int chunkSize, ForkJoinPool pool) {
+        return new Iterator<ExecutionResult>() {
+
+            private Iterator<ExecutionResult> chunk;
+
+            @Override
+            public boolean hasNext() {
+                return (chunk != null && chunk.hasNext()) || contexts.hasNext();
+            }
+
+            @Override
+            public ExecutionResult next() {
+                if (chunk == null || !chunk.hasNext()) {
+                    if (!contexts.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int aheadSize = chunkSize * pool.getParallelism();
+                    List<Map<String, Object>> aheadContexts = new ArrayList<>(aheadSize);
+                    while (aheadContexts.size() < aheadSize && contexts.hasNext()) {
+                        aheadContexts.add(contexts.next());
+                    }
+                    chunk = execute(aheadContexts, chunkSize, pool).iterator();
+                }
+                return chunk.next();
+            }
+
+        };
+    }
+
+    /**
+     * A failure of the execution is its result, errors of the JVM, e.g. an {@link OutOfMemoryError}, abort the batch.
+     */
+    private ExecutionResult execute(Map<String, Object> context) {
+        try {
+            return ExecutionResult.of(flow.apply(context));
+        } catch (Exception | LinkageError e) {
+            return ExecutionResult.ofFailure(e);
+        }
+    }
+
+    private class ChunkAction extends RecursiveAction {
+
+        private final List<Map<String, Object>> contexts;
+
+        private final ExecutionResult[] results;
+
+        private final int from;
+
+        private final int to;
+
+        private final int chunkSize;
+
+        private ChunkAction(List<Map<String, Object>> contexts, ExecutionResult[] results, int from, int to,
+                            int chunkSize) {
+            this.contexts = contexts;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    results[i] = execute(contexts.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkAction(contexts, results, from, middle, chunkSize),
+                new ChunkAction(contexts, results, middle, to, chunkSize));
+        }
+
+    }
+
+}
@@ -1,14 +1,20 @@
 package com.alibaba.compileflow.engine.process.impl;
 
+import com.alibaba.compileflow.engine.ExecutionResult;
 import com.alibaba.compileflow.engine.StatefulProcessEngine;
+import com.alibaba.compileflow.engine.common.CompileFlowException;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
 import com.alibaba.compileflow.engine.definition.bpmn.BpmnModel;
 import com.alibaba.compileflow.engine.process.preruntime.converter.FlowModelConverter;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.BpmnModelConverter;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
 import com.alibaba.compileflow.engine.runtime.impl.BpmnStatefulProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * @author yusu
@@ -28,6 +34,40 @@ public class BpmnStatefulProcessEngineImpl extends AbstractProcessEngine<BpmnMod
         return runtime.trigger(currentTag, context);
     }
 
+    @Override
+    public CompletableFuture<Map<String, Object>> triggerAsync(String code, String currentTag,
+                                                               Map<String, Object> context) {
+        return supplyAsync(() -> trigger(code, currentTag, context));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> triggerAsync(String code, String currentTag,
+                                                               Map<String, Object> context, Executor executor) {
+        return supplyAsync(() -> trigger(code, currentTag, context), executor);
+    }
+
+    @Override
+    public Map<String, Object> startInstance(String code, String instanceId, Map<String, Object> context) {
+        return startDurableInstance(code, instanceId, context);
+    }
+
+    @Override
+    public Map<String, Object> triggerInstance(String instanceId, Map<String, Object> context) {
+        return triggerDurableInstance(instanceId, context);
+    }
+
+    @Override
+    public Map<String, ExecutionResult> deliverEvent(String eventName, String correlationKey,
+                                                     Map<String, Object> payload) {
+        throw new CompileFlowException("Event correlation is not supported by bpmn flows, trigger the instance "
+            + "waiting for event " + eventName + " by its id");
+    }
+
+    @Override
+    public ProcessState getInstanceState(String instanceId) {
+        return getStateStore().load(instanceId);
+    }
+
     @Override
     public Map<String, Object> start(String code, Map<String, Object> context) {
         BpmnStatefulProcessRuntime runtime = getProcessRuntime(code);
@@ -39,6 +79,11 @@ public class BpmnStatefulProcessEngineImpl extends AbstractProcessEngine<BpmnMod
         return FlowModelType.BPMN;
     }
 
+    @Override
+    protected ProcessType getProcessType() {
+        return ProcessType.STATEFUL;
+    }
+
     @Override
     protected FlowModelConverter getFlowModelConverter() {
         return BpmnModelConverter.getInstance();
@@ -49,4 +94,9 @@ public class BpmnStatefulProcessEngineImpl extends AbstractProcessEngine<BpmnMod
         return BpmnStatefulProcessRuntime.of(bpmnModel);
     }
 
+    @Override
+    protected AbstractProcessRuntime getRuntimeFromClass(String code, Class<?> compiledClass) {
+        return BpmnStatefulProcessRuntime.of(code, compiledClass);
+    }
+
 }
\ No newline at end of file
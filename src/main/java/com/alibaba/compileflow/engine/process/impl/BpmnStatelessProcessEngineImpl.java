@@ -18,6 +18,7 @@ package com.alibaba.compileflow.engine.process.impl;
 
 import com.alibaba.compileflow.engine.ProcessEngine;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
 import com.alibaba.compileflow.engine.definition.bpmn.BpmnModel;
 import com.alibaba.compileflow.engine.process.preruntime.converter.FlowModelConverter;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.BpmnModelConverter;
@@ -48,6 +49,11 @@ public class BpmnStatelessProcessEngineImpl extends AbstractProcessEngine<BpmnMo
         return FlowModelType.BPMN;
     }
 
+    @Override
+    protected ProcessType getProcessType() {
+        return ProcessType.STATELESS;
+    }
+
     @Override
     protected FlowModelConverter getFlowModelConverter() {
         return BpmnModelConverter.getInstance();
@@ -58,4 +64,9 @@ public class BpmnStatelessProcessEngineImpl extends AbstractProcessEngine<BpmnMo
         return BpmnStatelessProcessRuntime.of(bpmnModel);
     }
 
+    @Override
+    protected AbstractProcessRuntime getRuntimeFromClass(String code, Class<?> compiledClass) {
+        return BpmnStatelessProcessRuntime.of(code, compiledClass);
+    }
+
 }
\ No newline at end of file
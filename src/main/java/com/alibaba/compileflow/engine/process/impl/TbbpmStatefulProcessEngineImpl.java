@@ -1,15 +1,20 @@
 package com.alibaba.compileflow.engine.process.impl;
 
 
+import com.alibaba.compileflow.engine.ExecutionResult;
 import com.alibaba.compileflow.engine.StatefulProcessEngine;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
 import com.alibaba.compileflow.engine.definition.tbbpm.TbbpmModel;
 import com.alibaba.compileflow.engine.process.preruntime.converter.FlowModelConverter;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.TbbpmModelConverter;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
 import com.alibaba.compileflow.engine.runtime.impl.TbbpmStatefulProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * @author yusu
@@ -29,6 +34,39 @@ public class TbbpmStatefulProcessEngineImpl extends AbstractProcessEngine<TbbpmM
         return runtime.trigger(currentTag, context);
     }
 
+    @Override
+    public CompletableFuture<Map<String, Object>> triggerAsync(String code, String currentTag,
+                                                               Map<String, Object> context) {
+        return supplyAsync(() -> trigger(code, currentTag, context));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> triggerAsync(String code, String currentTag,
+                                                               Map<String, Object> context, Executor executor) {
+        return supplyAsync(() -> trigger(code, currentTag, context), executor);
+    }
+
+    @Override
+    public Map<String, Object> startInstance(String code, String instanceId, Map<String, Object> context) {
+        return startDurableInstance(code, instanceId, context);
+    }
+
+    @Override
+    public Map<String, Object> triggerInstance(String instanceId, Map<String, Object> context) {
+        return triggerDurableInstance(instanceId, context);
+    }
+
+    @Override
+    public Map<String, ExecutionResult> deliverEvent(String eventName, String correlationKey,
+                                                     Map<String, Object> payload) {
+        return deliverDurableEvent(eventName, correlationKey, payload);
+    }
+
+    @Override
+    public ProcessState getInstanceState(String instanceId) {
+        return getStateStore().load(instanceId);
+    }
+
     @Override
     public Map<String, Object> start(String code, Map<String, Object> context) {
         TbbpmStatefulProcessRuntime runtime = getProcessRuntime(code);
@@ -40,6 +78,11 @@ public class TbbpmStatefulProcessEngineImpl extends AbstractProcessEngine<TbbpmM
         return FlowModelType.TBBPM;
     }
 
+    @Override
+    protected ProcessType getProcessType() {
+        return ProcessType.STATEFUL;
+    }
+
     @Override
     protected FlowModelConverter getFlowModelConverter() {
         return TbbpmModelConverter.getInstance();
@@ -50,4 +93,9 @@ public class TbbpmStatefulProcessEngineImpl extends AbstractProcessEngine<TbbpmM
         return TbbpmStatefulProcessRuntime.of(tbbpmModel);
     }
 
+    @Override
+    protected AbstractProcessRuntime getRuntimeFromClass(String code, Class<?> compiledClass) {
+        return TbbpmStatefulProcessRuntime.of(code, compiledClass);
+    }
+
 }
\ No newline at end of file
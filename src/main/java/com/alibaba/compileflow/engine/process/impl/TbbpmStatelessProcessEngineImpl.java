@@ -18,6 +18,7 @@ package com.alibaba.compileflow.engine.process.impl;
 
 import com.alibaba.compileflow.engine.ProcessEngine;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
 import com.alibaba.compileflow.engine.definition.tbbpm.TbbpmModel;
 import com.alibaba.compileflow.engine.process.preruntime.converter.FlowModelConverter;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.TbbpmModelConverter;
@@ -48,6 +49,11 @@ public class TbbpmStatelessProcessEngineImpl extends AbstractProcessEngine<Tbbpm
         return FlowModelType.TBBPM;
     }
 
+    @Override
+    protected ProcessType getProcessType() {
+        return ProcessType.STATELESS;
+    }
+
     @Override
     protected FlowModelConverter getFlowModelConverter() {
         return TbbpmModelConverter.getInstance();
@@ -58,4 +64,9 @@ public class TbbpmStatelessProcessEngineImpl extends AbstractProcessEngine<Tbbpm
         return TbbpmStatelessProcessRuntime.of(tbbpmModel);
     }
 
+    @Override
+    protected AbstractProcessRuntime getRuntimeFromClass(String code, Class<?> compiledClass) {
+        return TbbpmStatelessProcessRuntime.of(code, compiledClass);
+    }
+
 }
\ No newline at end of file
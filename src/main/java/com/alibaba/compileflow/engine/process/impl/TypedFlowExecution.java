@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.impl;
+
+import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.common.utils.DataType;
+import com.alibaba.compileflow.engine.common.utils.ParamChecker;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.FlowInstance;
+import com.alibaba.compileflow.engine.runtime.instance.FlowInstanceFactory;
+import com.alibaba.compileflow.engine.runtime.instance.LinkedProcessInstance;
+import com.alibaba.compileflow.engine.runtime.instance.TypedProcessInstance;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Typed executions of a stateless flow, bound to its {@link LinkedProcessInstance positional entry point}. The members
+ * of the input and output types are resolved once per version of the flow, see
+ * {@link AbstractProcessEngine#getRuntimeVersion()}, executions then only call method handles. Params are converted
+ * to the types of their vars as context values are, return vars have to fit the members they're written to.
+ *
+ * @author yusu
+ */
+class TypedFlowExecution<I, O> implements TypedProcessInstance<I, O> {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final AbstractProcessEngine<?> engine;
+
+    private final String code;
+
+    private final Class<I> inputType;
+
+    private final Class<O> outputType;
+
+    private volatile Binding binding;
+
+    private TypedFlowExecution(AbstractProcessEngine<?> engine, String code, Class<I> inputType,
+                               Class<O> outputType) {
+        this.engine = engine;
+        this.code = code;
+        this.inputType = inputType;
+        this.outputType = outputType;
+        this.binding = bind();
+    }
+
+    /**
+     * @throws CompileFlowException if the flow has no typed entry point or the types don't fit it
+     */
+    static <I, O> TypedFlowExecution<I, O> of(AbstractProcessEngine<?> engine, String code, Class<I> inputType,
+                                              Class<O> outputType) {
+        return new TypedFlowExecution<>(engine, code, inputType, outputType);
+    }
+
+    @Override
+    public O execute(I input) {
+        ParamChecker.notNull(input, "input is null");
+        Binding current = getBinding();
+        try {
+            Object[] params = new Object[current.paramGetters.length];
+            for (int i = 0; i < params.length; i++) {
+                MethodHandle paramGetter = current.paramGetters[i];
+                if (paramGetter != null) {
+                    params[i] = (Object) paramGetter.invokeExact((Object) input);
+                }
+            }
+            Object[] result = ((LinkedProcessInstance) current.instanceFactory.newInstance()).executeLinked(params);
+
+            O output = outputType.cast((Object) current.outputConstructor.invokeExact());
+            if (result != null) {
+                for (int i = 0; i < result.length; i++) {
+                    MethodHandle returnSetter = current.returnSetters[i];
+                    if (returnSetter != null && (result[i] != null || !current.primitiveReturns[i])) {
+                        returnSetter.invokeExact((Object) output, result[i]);
+                    }
+                }
+            }
+            return output;
+        } catch (CompileFlowException | CancellationException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new CompileFlowException("Failed to execute process, code is " + code, t);
+        }
+    }
+
+    private Binding getBinding() {
+        Binding current = binding;
+        if (current.version != engine.getRuntimeVersion()) {
+            current = bind();
+            binding = current;
+        }
+        return current;
+    }
+
+    private Binding bind() {
+        // read the version first, a reload in between only binds the flow once more
+        long version = engine.getRuntimeVersion();
+        AbstractProcessRuntime<?> runtime = engine.getProcessRuntime(code);
+        FlowInstanceFactory<?> instanceFactory = runtime.getFlowInstanceFactory();
+        FlowInstance instance = instanceFactory.newInstance();
+        if (!(instance instanceof LinkedProcessInstance)) {
+            throw new CompileFlowException("Process has no typed entry point, code is " + code);
+        }
+        LinkedProcessInstance linkedInstance = (LinkedProcessInstance) instance;
+        Map<String, Class<?>> returnTypes = getVarTypes(runtime.getReturnVars());
+
+        try {
+            String[] paramNames = linkedInstance.getParamNames();
+            MethodHandle[] paramGetters = new MethodHandle[paramNames.length];
+            for (int i = 0; i < paramNames.length; i++) {
+                MethodHandle paramGetter = findGetter(inputType, paramNames[i]);
+                paramGetters[i] = paramGetter == null ? null : paramGetter.asType(GETTER_TYPE);
+            }
+
+            String[] returnNames = linkedInstance.getReturnNames();
+            MethodHandle[] returnSetters = new MethodHandle[returnNames.length];
+            boolean[] primitiveReturns = new boolean[returnNames.length];
+            for (int i = 0; i < returnNames.length; i++) {
+                MethodHandle returnSetter = findSetter(outputType, returnNames[i]);
+                if (returnSetter == null) {
+                    continue;
+                }
+                Class<?> memberType = returnSetter.type().parameterType(1);
+                Class<?> returnType = returnTypes.get(returnNames[i]);
+                if (returnType != null && !ClassUtils.isAssignable(returnType, memberType, true)) {
+                    throw new CompileFlowException("Return var " + returnNames[i] + " of type "
+                        + returnType.getName() + " doesn't fit " + outputType.getName() + " member of type "
+                        + memberType.getName() + ", code is " + code);
+                }
+                returnSetters[i] = returnSetter.asType(SETTER_TYPE);
+                primitiveReturns[i] = memberType.isPrimitive();
+            }
+
+            MethodHandle outputConstructor = LOOKUP.findConstructor(outputType, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+            return new Binding(version, instanceFactory, paramGetters, returnSetters, primitiveReturns,
+                outputConstructor);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new CompileFlowException("Failed to bind typed process, code is " + code + ", input type is "
+                + inputType.getName() + ", output type is " + outputType.getName(), e);
+        }
+    }
+
+    /**
+     * @return types of the vars by name, empty if unknown, e.g. for flows restored from their compiled class
+     */
+    private static Map<String, Class<?>> getVarTypes(List<IVar> vars) {
+        Map<String, Class<?>> varTypes = new HashMap<>();
+        if (vars != null) {
+            for (IVar var : vars) {
+                varTypes.put(var.getName(), DataType.getJavaClass(var.getDataType()));
+            }
+        }
+        return varTypes;
+    }
+
+    /**
+     * @return handle reading the public field, or calling the public getter, of that name, null if there's none
+     */
+    private static MethodHandle findGetter(Class<?> type, String name) throws IllegalAccessException {
+        Field field = getField(type, name);
+        if (field != null) {
+            return LOOKUP.unreflectGetter(field);
+        }
+        for (String prefix : new String[] {"get", "is"}) {
+            try {
+                Method method = type.getMethod(prefix + StringUtils.capitalize(name));
+                if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                    return LOOKUP.unreflect(method);
+                }
+            } catch (NoSuchMethodException e) {
+                // try the next prefix
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return handle writing the public field, or calling the public setter, of that name, null if there's none
+     */
+    private static MethodHandle findSetter(Class<?> type, String name) throws IllegalAccessException {
+        Field field = getField(type, name);
+        if (field != null && !Modifier.isFinal(field.getModifiers())) {
+            return LOOKUP.unreflectSetter(field);
+        }
+        String setterName = "set" + StringUtils.capitalize(name);
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(setterName) && method.getParameterCount() == 1
+                && !Modifier.isStatic(method.getModifiers())) {
+                return LOOKUP.unreflect(method);
+            }
+        }
+        return null;
+    }
+
+    private static Field getField(Class<?> type, String name) {
+        try {
+            Field field = type.getField(name);
+            return Modifier.isStatic(field.getModifiers()) ? null : field;
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    private static class Binding {
+
+        private final long version;
+
+        private final FlowInstanceFactory<?> instanceFactory;
+
+        /**
+         * Getter of each param of the flow, null if the input has none.
+         */
+        private final MethodHandle[] paramGetters;
+
+        /**
+         * Setter of each return var of the flow, null if the output has none.
+         */
+        private final MethodHandle[] returnSetters;
+
+        /**
+         * Whether the setter takes a primitive, nulls leave it alone.
+         */
+        private final boolean[] primitiveReturns;
+
+        private final MethodHandle outputConstructor;
+
+        private Binding(long version, FlowInstanceFactory<?> instanceFactory, MethodHandle[] paramGetters,
+                        MethodHandle[] returnSetters, boolean[] primitiveReturns, MethodHandle outputConstructor) {
+            this.version = version;
+            this.instanceFactory = instanceFactory;
+            this.paramGetters = paramGetters;
+            this.returnSetters = returnSetters;
+            this.primitiveReturns = primitiveReturns;
+            this.outputConstructor = outputConstructor;
+        }
+
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler;
+
+/**
+ * Persistent cache of compiled flow classes, keyed by a content hash of the flow source and of the options the flow
+ * class is generated with.
+ *
+ * @author yusu
+ */
+public interface ClassCache {
+
+    /**
+     * @param key cache key
+     * @return cached entry, or null if absent or corrupted
+     */
+    ClassCacheEntry get(String key);
+
+    void put(String key, ClassCacheEntry entry);
+
+    void remove(String key);
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author yusu
+ */
+public class ClassCacheEntry {
+
+    private String mainClassName;
+
+    private Map<String, byte[]> classBytes;
+
+    public static ClassCacheEntry of(String mainClassName, Map<String, byte[]> classBytes) {
+        ClassCacheEntry entry = new ClassCacheEntry();
+        entry.mainClassName = mainClassName;
+        entry.classBytes = Collections.unmodifiableMap(new LinkedHashMap<>(classBytes));
+        return entry;
+    }
+
+    public String getMainClassName() {
+        return mainClassName;
+    }
+
+    /**
+     * @return class bytes of the main class and its inner classes, keyed by full class name
+     */
+    public Map<String, byte[]> getClassBytes() {
+        return classBytes;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler;
+
+/**
+ * @author yusu
+ */
+public class ClassCacheOption {
+
+    private String cacheDir = CompileConstants.FLOW_CLASS_CACHE_DIR;
+
+    private long maxSize = CompileConstants.FLOW_CLASS_CACHE_MAX_SIZE;
+
+    private EvictionPolicy evictionPolicy = CompileConstants.FLOW_CLASS_CACHE_EVICTION_POLICY;
+
+    public String getCacheDir() {
+        return cacheDir;
+    }
+
+    public void setCacheDir(String cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    public enum EvictionPolicy {
+
+        /**
+         * evict the least recently used entries first
+         */
+        LRU,
+
+        /**
+         * evict the oldest entries first
+         */
+        FIFO
+
+    }
+
+}
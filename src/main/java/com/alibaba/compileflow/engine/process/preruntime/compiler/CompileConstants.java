@@ -17,6 +17,7 @@
 package com.alibaba.compileflow.engine.process.preruntime.compiler;
 
 import java.io.File;
+import java.net.URL;
 
 /**
  * @author yusu
@@ -26,6 +27,86 @@ public class CompileConstants {
     public static final String FLOW_COMPILE_CLASS_DIR = System.getProperty("user.dir") + File.separator
         + ".flowclasses" + File.separator;
 
+    /**
+     * Debug switch, dump generated java sources and class files to {@link #FLOW_COMPILE_CLASS_DIR} when enabled.
+     * Flows are compiled in memory and never touch the disk by default.
+     */
+    public static final boolean FLOW_COMPILE_DUMP_ENABLED = Boolean.getBoolean("compileflow.compile.dump");
+
+    /**
+     * Tiered execution, a flow is interpreted until it's invoked this many times, then compiled in the background.
+     * Disabled by default, flows are compiled before their first execution.
+     */
+    public static final int FLOW_TIERED_COMPILE_THRESHOLD = Integer.getInteger("compileflow.tiered.threshold", 0);
+
+    /**
+     * Generate the vars of stateless flows as locals of the flow method instead of fields, so that a single instance
+     * of the flow class is shared by all executions. Enabled by default.
+     */
+    public static final boolean FLOW_STATELESS_REENTRANT = Boolean.parseBoolean(
+        System.getProperty("compileflow.stateless.reentrant", "true"));
+
+    /**
+     * Fork independent auto and script tasks of reentrant stateless flows, as told by the flow vars bound by their
+     * actions. Disabled by default, tasks run in the order they're declared.
+     */
+    public static final boolean FLOW_AUTO_PARALLEL_ENABLED = Boolean.getBoolean("compileflow.stateless.autoParallel");
+
+    /**
+     * Sub flows of at most this many nodes, made of plain tasks and decisions only, are generated into the class of
+     * the calling flow instead of being called through the engine. Disabled by default.
+     */
+    public static final int FLOW_SUB_FLOW_INLINE_THRESHOLD = Integer.getInteger("compileflow.subflow.inlineThreshold",
+        0);
+
+    /**
+     * Persist compiled flow classes across restarts, disabled by default.
+     */
+    public static final boolean FLOW_CLASS_CACHE_ENABLED = Boolean.getBoolean("compileflow.cache.enabled");
+
+    public static final String FLOW_CLASS_CACHE_DIR = System.getProperty("compileflow.cache.dir",
+        System.getProperty("user.dir") + File.separator + ".flowcache" + File.separator);
+
+    public static final long FLOW_CLASS_CACHE_MAX_SIZE = Long.getLong("compileflow.cache.maxSize",
+        256L * 1024 * 1024);
+
+    public static final ClassCacheOption.EvictionPolicy FLOW_CLASS_CACHE_EVICTION_POLICY =
+        ClassCacheOption.EvictionPolicy.valueOf(System.getProperty("compileflow.cache.eviction", "LRU"));
+
+    /**
+     * Directory of the default store of stateful flow instances managed by the engine.
+     */
+    public static final String FLOW_STATE_DIR = System.getProperty("compileflow.state.dir",
+        System.getProperty("user.dir") + File.separator + ".flowstate" + File.separator);
+
+    /**
+     * Classes of the snapshot values which aren't encoded natively but serialized, comma separated, on top of the
+     * boxed primitives, strings, big numbers, dates, <code>java.time</code> values and the common collections of
+     * <code>java.util</code>, no other class of the JDK is allowed unless listed here. Like
+     * <code>jdk.serialFilter</code>, <code>com.foo.*</code> allows the classes of a package and
+     * <code>com.foo.**</code> those of its sub packages as well.
+     */
+    public static final String FLOW_SNAPSHOT_SERIALIZABLE_CLASSES = System.getProperty(
+        "compileflow.snapshot.serializableClasses", "");
+
+    /**
+     * Version of the engine, part of the class cache key so that upgrading the engine never reuses stale classes.
+     */
+    public static final String ENGINE_VERSION = getEngineVersion();
+
+    private static String getEngineVersion() {
+        String version = CompileConstants.class.getPackage().getImplementationVersion();
+        if (version != null) {
+            return version;
+        }
+        try {
+            URL location = CompileConstants.class.getProtectionDomain().getCodeSource().getLocation();
+            return String.valueOf(new File(location.toURI()).lastModified());
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
     public static void main(String[] args) {
         System.out.println(FLOW_COMPILE_CLASS_DIR);
     }
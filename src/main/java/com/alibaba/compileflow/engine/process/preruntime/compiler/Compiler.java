@@ -16,6 +16,8 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.compiler;
 
+import java.util.Map;
+
 /**
  * @author yusu
  */
@@ -23,4 +25,21 @@ public interface Compiler {
 
     Class<?> compileJavaCode(String fullClassName, String sourceCode);
 
+    /**
+     * compile many java sources in one compiler invocation, so that compiler setup and type resolution
+     * are shared by the whole batch
+     *
+     * @param sourceCodes java source code keyed by full class name
+     * @return compiled classes keyed by full class name
+     */
+    Map<String, Class<?>> compileJavaCode(Map<String, String> sourceCodes);
+
+    /**
+     * compile many java sources in one compiler invocation without loading them
+     *
+     * @param sourceCodes java source code keyed by full class name
+     * @return class bytes of all compiled classes and their inner classes, keyed by full class name
+     */
+    Map<String, byte[]> compileJavaCodeToBytes(Map<String, String> sourceCodes);
+
 }
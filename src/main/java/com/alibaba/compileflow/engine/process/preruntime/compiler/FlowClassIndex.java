@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler;
+
+import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
+import com.alibaba.compileflow.engine.common.utils.ClassLoaderUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+/**
+ * Index of flow classes compiled at build time, packaged as {@link #INDEX_RESOURCE} next to the classes.
+ * Each entry maps flow model type, process type and flow code to the full name of the flow class, along with the
+ * digest of the flow it is compiled from, see {@link #getFlowDigest(FlowModelType, ProcessType, String)}.
+ *
+ * @author yusu
+ */
+public class FlowClassIndex {
+
+    public static final String INDEX_RESOURCE = "META-INF/compileflow/flow-classes.properties";
+
+    private static final String FLOW_DIGEST_SUFFIX = "#digest";
+
+    /**
+     * Indexes keyed by the context class loader they are loaded from.
+     */
+    private static final Map<ClassLoader, Properties> INDEXES = new WeakHashMap<>();
+
+    public static String getIndexKey(FlowModelType flowModelType, ProcessType processType, String code) {
+        return flowModelType.name() + "." + processType.name() + "." + code;
+    }
+
+    public static String getFlowDigestKey(FlowModelType flowModelType, ProcessType processType, String code) {
+        return getIndexKey(flowModelType, processType, code) + FLOW_DIGEST_SUFFIX;
+    }
+
+    /**
+     * @return full name of the pre-built flow class, or null if the flow is not compiled at build time
+     */
+    public static String getFlowClassName(FlowModelType flowModelType, ProcessType processType, String code) {
+        return getIndex().getProperty(getIndexKey(flowModelType, processType, code));
+    }
+
+    /**
+     * @return digest of the flow the pre-built class is compiled from, or null if not recorded
+     */
+    public static String getFlowDigest(FlowModelType flowModelType, ProcessType processType, String code) {
+        return getIndex().getProperty(getFlowDigestKey(flowModelType, processType, code));
+    }
+
+    private static Properties getIndex() {
+        ClassLoader classLoader = ClassLoaderUtils.getContextClassLoader();
+        synchronized (INDEXES) {
+            return INDEXES.computeIfAbsent(classLoader, c -> loadIndex());
+        }
+    }
+
+    private static Properties loadIndex() {
+        Properties properties = new Properties();
+        for (URL url : ClassLoaderUtils.getResources(INDEX_RESOURCE)) {
+            try (InputStream inputStream = url.openStream()) {
+                properties.load(inputStream);
+            } catch (IOException e) {
+                throw new CompileFlowException("Failed to load flow class index " + url, e);
+            }
+        }
+        return properties;
+    }
+
+}
@@ -16,7 +16,9 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.compiler;
 
-import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author yusu
@@ -24,13 +26,25 @@ import java.io.File;
 public interface JavaCompiler {
 
     /**
-     * compile java source file to class file
+     * compile java source code to class bytes in memory
      *
      * @param javaSource
-     * @param outputFile
      * @param compileOption
+     * @return class bytes of the target class and its inner classes, keyed by full class name
      * @throws Exception
      */
-    void compile(JavaSource javaSource, File outputFile, CompileOption compileOption) throws Exception;
+    default Map<String, byte[]> compile(JavaSource javaSource, CompileOption compileOption) throws Exception {
+        return compile(Collections.singletonList(javaSource), compileOption);
+    }
+
+    /**
+     * compile many java sources in one compiler invocation
+     *
+     * @param javaSources
+     * @param compileOption
+     * @return class bytes of all target classes and their inner classes, keyed by full class name
+     * @throws Exception
+     */
+    Map<String, byte[]> compile(List<JavaSource> javaSources, CompileOption compileOption) throws Exception;
 
 }
@@ -16,31 +16,22 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.compiler;
 
-import java.io.File;
-
 /**
  * @author yusu
  */
 public class JavaSource {
 
-    private File javaSourceFile;
-
     private String javaSourceCode;
 
     private String targetFullClassName;
 
-    public static JavaSource of(File javaSourceFile, String javaSourceCode, String targetFullClassName) {
+    public static JavaSource of(String javaSourceCode, String targetFullClassName) {
         JavaSource javaSource = new JavaSource();
-        javaSource.javaSourceFile = javaSourceFile;
         javaSource.javaSourceCode = javaSourceCode;
         javaSource.targetFullClassName = targetFullClassName;
         return javaSource;
     }
 
-    public File getJavaSourceFile() {
-        return javaSourceFile;
-    }
-
     public String getJavaSourceCode() {
         return javaSourceCode;
     }
@@ -49,4 +40,8 @@ public class JavaSource {
         return targetFullClassName;
     }
 
+    public String getJavaSourceFileName() {
+        return targetFullClassName.replace('.', '/') + ".java";
+    }
+
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler;
+
+/**
+ * Options of the runtimes of an engine, deciding how flows are generated and executed. Defaults are taken from the
+ * system properties read by {@link CompileConstants}.
+ *
+ * @author yusu
+ */
+public class RuntimeOption {
+
+    private boolean statelessReentrant = CompileConstants.FLOW_STATELESS_REENTRANT;
+
+    private boolean autoParallelEnabled = CompileConstants.FLOW_AUTO_PARALLEL_ENABLED;
+
+    private int subFlowInlineThreshold = CompileConstants.FLOW_SUB_FLOW_INLINE_THRESHOLD;
+
+    private int tieredCompileThreshold = CompileConstants.FLOW_TIERED_COMPILE_THRESHOLD;
+
+    /**
+     * @see CompileConstants#FLOW_STATELESS_REENTRANT
+     */
+    public boolean isStatelessReentrant() {
+        return statelessReentrant;
+    }
+
+    public void setStatelessReentrant(boolean statelessReentrant) {
+        this.statelessReentrant = statelessReentrant;
+    }
+
+    /**
+     * @see CompileConstants#FLOW_AUTO_PARALLEL_ENABLED
+     */
+    public boolean isAutoParallelEnabled() {
+        return autoParallelEnabled;
+    }
+
+    public void setAutoParallelEnabled(boolean autoParallelEnabled) {
+        this.autoParallelEnabled = autoParallelEnabled;
+    }
+
+    /**
+     * @see CompileConstants#FLOW_SUB_FLOW_INLINE_THRESHOLD
+     */
+    public int getSubFlowInlineThreshold() {
+        return subFlowInlineThreshold;
+    }
+
+    public void setSubFlowInlineThreshold(int subFlowInlineThreshold) {
+        this.subFlowInlineThreshold = subFlowInlineThreshold;
+    }
+
+    /**
+     * @see CompileConstants#FLOW_TIERED_COMPILE_THRESHOLD
+     */
+    public int getTieredCompileThreshold() {
+        return tieredCompileThreshold;
+    }
+
+    public void setTieredCompileThreshold(int tieredCompileThreshold) {
+        this.tieredCompileThreshold = tieredCompileThreshold;
+    }
+
+}
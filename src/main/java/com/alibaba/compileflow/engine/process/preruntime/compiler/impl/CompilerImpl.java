@@ -17,14 +17,18 @@
 package com.alibaba.compileflow.engine.process.preruntime.compiler.impl;
 
 import com.alibaba.compileflow.engine.common.CompileFlowException;
-import com.alibaba.compileflow.engine.common.utils.FileUtils;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.Compiler;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.*;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.support.EcJavaCompiler;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author yusu
@@ -35,25 +39,29 @@ public class CompilerImpl implements Compiler {
 
     @Override
     public Class<?> compileJavaCode(String fullClassName, String sourceCode) {
+        return compileJavaCode(Collections.singletonMap(fullClassName, sourceCode)).get(fullClassName);
+    }
 
-        try {
-            String dirPath = CompileConstants.FLOW_COMPILE_CLASS_DIR;
-            File dirFile = new File(dirPath);
-            if (!dirFile.exists()) {
-                if (!dirFile.mkdir()) {
-                    throw new RuntimeException(
-                        "Output directory for process class can't be created, directory is " + dirPath);
-                }
-            }
+    @Override
+    public Map<String, Class<?>> compileJavaCode(Map<String, String> sourceCodes) {
+        Map<String, byte[]> classBytesMap = compileJavaCodeToBytes(sourceCodes);
+        return FlowClassLoader.defineClasses(sourceCodes.keySet(), classBytesMap);
+    }
 
-            File javaSourceFile = writeJavaFile(dirFile, fullClassName, sourceCode);
-            JavaSource javaSource = JavaSource.of(javaSourceFile, sourceCode, fullClassName);
+    @Override
+    public Map<String, byte[]> compileJavaCodeToBytes(Map<String, String> sourceCodes) {
 
-            JAVA_COMPILER.compile(javaSource, new File(dirPath), new CompileOption());
+        try {
+            List<JavaSource> javaSources = sourceCodes.entrySet().stream()
+                .map(e -> JavaSource.of(e.getValue(), e.getKey()))
+                .collect(Collectors.toList());
+            Map<String, byte[]> classBytesMap = JAVA_COMPILER.compile(javaSources, new CompileOption());
 
-            File classFile = new File(dirFile, fullClassName.replace('.', File.separatorChar) + ".class");
-            byte[] classBytes = FileUtils.readFileToByteArray(classFile);
-            return FlowClassLoader.getInstance().defineClass(fullClassName, classBytes);
+            if (CompileConstants.FLOW_COMPILE_DUMP_ENABLED) {
+                dump(sourceCodes, classBytesMap);
+            }
+
+            return classBytesMap;
         } catch (CompileFlowException e) {
             throw e;
         } catch (Exception e) {
@@ -61,33 +69,27 @@ public class CompilerImpl implements Compiler {
         }
     }
 
-    private File writeJavaFile(File dirFile, String fullClassName, String javaCode) {
+    private void dump(Map<String, String> sourceCodes, Map<String, byte[]> classBytesMap) {
+        File dirFile = new File(CompileConstants.FLOW_COMPILE_CLASS_DIR);
+        sourceCodes.forEach((className, sourceCode) -> writeFile(dirFile, className, ".java",
+            sourceCode.getBytes(StandardCharsets.UTF_8)));
+        classBytesMap.forEach((className, classBytes) -> writeFile(dirFile, className, ".class", classBytes));
+    }
 
-        int index = fullClassName.lastIndexOf(".");
-        if (index >= 0) {
-            String packageName = fullClassName.substring(0, index);
-            createClassDir(dirFile, packageName);
-        }
-        File file = new File(dirFile, fullClassName.replace('.', File.separatorChar) + ".java");
-        try (PrintWriter printWriter = new PrintWriter(new FileOutputStream(file))) {
-            printWriter.write(javaCode);
-            printWriter.flush();
-            return file;
+    private void writeFile(File dirFile, String fullClassName, String suffix, byte[] bytes) {
+        File file = new File(dirFile, fullClassName.replace('.', File.separatorChar) + suffix);
+        createClassDir(file.getParentFile());
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(bytes);
+            outputStream.flush();
         } catch (Exception e) {
             throw new CompileFlowException(e.getMessage(), e);
         }
     }
 
-    private void createClassDir(File dir, String packageName) {
-
-        String[] packagePaths = packageName.split("\\.");
-        for (String packagePath : packagePaths) {
-            dir = new File(dir, packagePath);
-            if (!dir.exists()) {
-                if (!dir.mkdir()) {
-                    throw new CompileFlowException("Failed to mkdir, dir name is " + dir);
-                }
-            }
+    private void createClassDir(File dir) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new CompileFlowException("Failed to mkdir, dir name is " + dir);
         }
     }
 
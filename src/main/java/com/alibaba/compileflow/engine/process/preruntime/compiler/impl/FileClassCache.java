@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler.impl;
+
+import com.alibaba.compileflow.engine.common.utils.FileUtils;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCache;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCacheEntry;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCacheOption;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.CompileConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Stores every entry in its own file named after the cache key. An entry holds the class bytes followed by a
+ * CRC32 checksum, truncated or corrupted entries fail the check and are dropped so that the flow gets compiled
+ * again.
+ *
+ * @author yusu
+ */
+public class FileClassCache implements ClassCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileClassCache.class);
+
+    private static final String ENTRY_SUFFIX = ".fcc";
+
+    private static final int MAGIC = 0xCF1C0DE5;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static volatile FileClassCache instance;
+
+    private final File cacheDir;
+
+    private final ClassCacheOption option;
+
+    public FileClassCache(ClassCacheOption option) {
+        this.option = option;
+        this.cacheDir = new File(option.getCacheDir());
+    }
+
+    /**
+     * @return the cache configured by system properties, or null if the cache is disabled
+     */
+    public static FileClassCache getDefault() {
+        if (!CompileConstants.FLOW_CLASS_CACHE_ENABLED) {
+            return null;
+        }
+        if (instance == null) {
+            synchronized (FileClassCache.class) {
+                if (instance == null) {
+                    instance = new FileClassCache(new ClassCacheOption());
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public ClassCacheEntry get(String key) {
+        File entryFile = getEntryFile(key);
+        if (!entryFile.isFile()) {
+            return null;
+        }
+        try {
+            ClassCacheEntry entry = readEntry(key, FileUtils.readFileToByteArray(entryFile));
+            if (ClassCacheOption.EvictionPolicy.LRU.equals(option.getEvictionPolicy())) {
+                entryFile.setLastModified(System.currentTimeMillis());
+            }
+            return entry;
+        } catch (Exception e) {
+            LOGGER.warn("Corrupted class cache entry dropped, file is " + entryFile, e);
+            remove(key);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, ClassCacheEntry entry) {
+        if (!cacheDir.exists() && !cacheDir.mkdirs() && !cacheDir.exists()) {
+            LOGGER.warn("Failed to create class cache dir " + cacheDir);
+            return;
+        }
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile(key, ".tmp", cacheDir);
+            try (OutputStream outputStream = new FileOutputStream(tmpFile)) {
+                outputStream.write(writeEntry(key, entry));
+            }
+            moveFile(tmpFile, getEntryFile(key));
+            evict();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to write class cache entry, key is " + key, e);
+            if (tmpFile != null && tmpFile.exists() && !tmpFile.delete()) {
+                LOGGER.warn("Failed to delete tmp file " + tmpFile);
+            }
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        File entryFile = getEntryFile(key);
+        if (entryFile.exists() && !entryFile.delete()) {
+            LOGGER.warn("Failed to delete class cache entry " + entryFile);
+        }
+    }
+
+    private File getEntryFile(String key) {
+        return new File(cacheDir, key + ENTRY_SUFFIX);
+    }
+
+    private void moveFile(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void evict() {
+        File[] entryFiles = cacheDir.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (entryFiles == null) {
+            return;
+        }
+        long totalSize = Arrays.stream(entryFiles).mapToLong(File::length).sum();
+        if (totalSize <= option.getMaxSize()) {
+            return;
+        }
+        Arrays.sort(entryFiles, Comparator.comparingLong(File::lastModified));
+        for (File entryFile : entryFiles) {
+            if (totalSize <= option.getMaxSize()) {
+                break;
+            }
+            long length = entryFile.length();
+            if (entryFile.delete()) {
+                totalSize -= length;
+            }
+        }
+    }
+
+    private byte[] writeEntry(String key, ClassCacheEntry entry) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeInt(FORMAT_VERSION);
+        dataOutputStream.writeUTF(key);
+        dataOutputStream.writeUTF(entry.getMainClassName());
+        dataOutputStream.writeInt(entry.getClassBytes().size());
+        for (Map.Entry<String, byte[]> classBytes : entry.getClassBytes().entrySet()) {
+            dataOutputStream.writeUTF(classBytes.getKey());
+            dataOutputStream.writeInt(classBytes.getValue().length);
+            dataOutputStream.write(classBytes.getValue());
+        }
+        dataOutputStream.flush();
+
+        byte[] content = byteArrayOutputStream.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(content, 0, content.length);
+        dataOutputStream.writeLong(crc32.getValue());
+        dataOutputStream.flush();
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private ClassCacheEntry readEntry(String key, byte[] bytes) throws IOException {
+        if (bytes.length < Long.BYTES) {
+            throw new IOException("Entry is truncated");
+        }
+        int contentLength = bytes.length - Long.BYTES;
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, 0, contentLength);
+        DataInputStream checksumInputStream = new DataInputStream(
+            new ByteArrayInputStream(bytes, contentLength, Long.BYTES));
+        if (crc32.getValue() != checksumInputStream.readLong()) {
+            throw new IOException("Entry checksum mismatch");
+        }
+
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes, 0, contentLength));
+        if (dataInputStream.readInt() != MAGIC || dataInputStream.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unknown entry format");
+        }
+        if (!key.equals(dataInputStream.readUTF())) {
+            throw new IOException("Entry key mismatch");
+        }
+        String mainClassName = dataInputStream.readUTF();
+        int classCount = dataInputStream.readInt();
+        Map<String, byte[]> classBytesMap = new LinkedHashMap<>();
+        for (int i = 0; i < classCount; i++) {
+            String className = dataInputStream.readUTF();
+            byte[] classBytes = new byte[dataInputStream.readInt()];
+            dataInputStream.readFully(classBytes);
+            classBytesMap.put(className, classBytes);
+        }
+        if (!classBytesMap.containsKey(mainClassName)) {
+            throw new IOException("Main class not found in entry");
+        }
+        return ClassCacheEntry.of(mainClassName, classBytesMap);
+    }
+
+}
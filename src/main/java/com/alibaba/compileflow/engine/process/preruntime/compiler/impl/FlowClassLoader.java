@@ -16,47 +16,75 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.compiler.impl;
 
-import com.alibaba.compileflow.engine.common.CompileFlowException;
-import com.alibaba.compileflow.engine.process.preruntime.compiler.CompileConstants;
-
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
+ * Loader of the classes of a single flow version. Every compiled flow is defined in a loader of its own, so that a
+ * reloaded flow is defined afresh under the same class name, and the classes of the old version are unloaded
+ * together with their loader once no execution refers to them any more.
+ *
  * @author yusu
  */
-public class FlowClassLoader extends URLClassLoader {
+public class FlowClassLoader extends ClassLoader {
 
-    private static volatile FlowClassLoader instance = null;
+    /**
+     * Compiled but not yet defined classes of the flow, e.g. its inner classes, defined lazily on first lookup.
+     */
+    private final Map<String, byte[]> classBytesCache;
 
-    public FlowClassLoader(URL[] urls, ClassLoader parent) {
-        super(urls, parent);
+    public FlowClassLoader(ClassLoader parent, Map<String, byte[]> classBytesMap) {
+        super(parent);
+        this.classBytesCache = new ConcurrentHashMap<>(classBytesMap);
     }
 
-    public static FlowClassLoader getInstance() {
-        if (instance == null) {
-            synchronized (FlowClassLoader.class) {
-                if (instance == null) {
-                    try {
-                        URL url = new URL("file:///" + CompileConstants.FLOW_COMPILE_CLASS_DIR);
-                        instance = new FlowClassLoader(new URL[] {url},
-                            FlowClassLoader.class.getClassLoader());
-                    } catch (MalformedURLException e) {
-                        throw new CompileFlowException(e);
-                    }
-                }
+    /**
+     * Define each of the given flow classes in a loader of its own, along with its inner classes.
+     */
+    public static Map<String, Class<?>> defineClasses(Collection<String> names, Map<String, byte[]> classBytesMap) {
+        Map<String, Class<?>> classes = new HashMap<>();
+        for (String name : names) {
+            Map<String, byte[]> flowClassBytes = getFlowClassBytes(name, classBytesMap);
+            if (!flowClassBytes.containsKey(name)) {
+                throw new IllegalArgumentException("No class bytes found, class name is " + name);
+            }
+            FlowClassLoader classLoader = new FlowClassLoader(FlowClassLoader.class.getClassLoader(),
+                flowClassBytes);
+            try {
+                classes.put(name, classLoader.loadClass(name));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
             }
         }
-        return instance;
+        return classes;
     }
 
-    public void clearCache() {
-        instance = null;
+    /**
+     * @return class bytes of the given flow class and its inner classes
+     */
+    public static Map<String, byte[]> getFlowClassBytes(String name, Map<String, byte[]> classBytesMap) {
+        return classBytesMap.entrySet().stream()
+            .filter(e -> e.getKey().equals(name) || e.getKey().startsWith(name + "$"))
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
     }
 
-    public Class<?> defineClass(String name, byte[] classBytes) {
-        return defineClass(name, classBytes, 0, classBytes.length);
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        // classes of the flow are always its own, even if another version of them is on the classpath
+        synchronized (getClassLoadingLock(name)) {
+            byte[] classBytes = classBytesCache.remove(name);
+            if (classBytes != null) {
+                Class<?> clazz = defineClass(name, classBytes, 0, classBytes.length);
+                if (resolve) {
+                    resolveClass(clazz);
+                }
+                return clazz;
+            }
+        }
+        return super.loadClass(name, resolve);
     }
 
 }
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler.impl;
+
+import com.alibaba.compileflow.engine.ProcessEngineFactory;
+import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
+import com.alibaba.compileflow.engine.process.impl.AbstractProcessEngine;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCacheEntry;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.FlowClassIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compile all flows of a resource directory at build time. The flow classes and the {@link FlowClassIndex} are
+ * written to the output directory, so that they are packaged with the application and no flow is compiled at
+ * runtime.
+ * <p>
+ * Flows are loaded by code from the context class loader, which must see the resource directory as well as every
+ * class referenced by the flows.
+ *
+ * @author yusu
+ */
+public class FlowClassPrecompiler {
+
+    private static final String TBBPM_FILE_SUFFIX = ".bpm";
+
+    private static final String BPMN_FILE_SUFFIX = ".bpmn20";
+
+    /**
+     * @return codes of the compiled flows
+     */
+    public static List<String> precompile(File resourceDirectory, File outputDirectory, boolean stateful)
+        throws IOException {
+        ProcessType processType = stateful ? ProcessType.STATEFUL : ProcessType.STATELESS;
+        Path resourcePath = resourceDirectory.toPath();
+        List<Path> flowPaths;
+        try (Stream<Path> paths = Files.walk(resourcePath)) {
+            flowPaths = paths.filter(path -> getFlowModelType(path) != null).sorted().collect(Collectors.toList());
+        }
+
+        File indexFile = new File(outputDirectory, FlowClassIndex.INDEX_RESOURCE);
+        Properties index = new Properties();
+        if (indexFile.exists()) {
+            try (InputStream inputStream = Files.newInputStream(indexFile.toPath())) {
+                index.load(inputStream);
+            }
+        }
+
+        List<String> codes = new ArrayList<>();
+        for (Path flowPath : flowPaths) {
+            FlowModelType flowModelType = getFlowModelType(flowPath);
+            String code = getCode(resourcePath.relativize(flowPath), flowModelType);
+            AbstractProcessEngine engine = (AbstractProcessEngine) (stateful
+                ? ProcessEngineFactory.getStatefulProcessEngine(flowModelType)
+                : ProcessEngineFactory.getStatelessProcessEngine(flowModelType));
+            ClassCacheEntry entry = engine.compileAheadOfTime(code);
+            for (Map.Entry<String, byte[]> classBytes : entry.getClassBytes().entrySet()) {
+                File classFile = new File(outputDirectory, classBytes.getKey().replace('.', '/') + ".class");
+                classFile.getParentFile().mkdirs();
+                Files.write(classFile.toPath(), classBytes.getValue());
+            }
+            index.setProperty(FlowClassIndex.getIndexKey(flowModelType, processType, code),
+                entry.getMainClassName());
+            index.setProperty(FlowClassIndex.getFlowDigestKey(flowModelType, processType, code),
+                engine.getFlowDigest(code));
+            codes.add(code);
+        }
+
+        indexFile.getParentFile().mkdirs();
+        try (OutputStream outputStream = Files.newOutputStream(indexFile.toPath())) {
+            index.store(outputStream, "compileflow pre-built flow classes");
+        }
+        return codes;
+    }
+
+    private static FlowModelType getFlowModelType(Path path) {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(BPMN_FILE_SUFFIX)) {
+            return FlowModelType.BPMN;
+        }
+        if (fileName.endsWith(TBBPM_FILE_SUFFIX)) {
+            return FlowModelType.TBBPM;
+        }
+        return null;
+    }
+
+    private static String getCode(Path relativePath, FlowModelType flowModelType) {
+        String path = relativePath.toString().replace(File.separatorChar, '/');
+        String suffix = FlowModelType.BPMN.equals(flowModelType) ? BPMN_FILE_SUFFIX : TBBPM_FILE_SUFFIX;
+        return path.substring(0, path.length() - suffix.length()).replace('/', '.');
+    }
+
+}
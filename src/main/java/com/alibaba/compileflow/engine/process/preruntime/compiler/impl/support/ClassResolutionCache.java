@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.compiler.impl.support;
+
+import com.alibaba.compileflow.engine.common.utils.IOUtils;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classes and packages resolved from the class loader by {@link EcJavaCompiler}, shared by all compilations. Misses
+ * are cached as well, since most lookups of the compiler are probes of names that don't exist. The cache is
+ * dropped as soon as compilations run against another class loader.
+ *
+ * @author yusu
+ */
+class ClassResolutionCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassResolutionCache.class);
+
+    private static volatile ClassResolutionCache instance;
+
+    private final ClassLoader classLoader;
+
+    private final Map<String, Optional<ClassFileReader>> types = new ConcurrentHashMap<>();
+
+    private final Map<String, Boolean> packages = new ConcurrentHashMap<>();
+
+    private ClassResolutionCache(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    static ClassResolutionCache getInstance(ClassLoader classLoader) {
+        ClassResolutionCache cache = instance;
+        if (cache == null || cache.classLoader != classLoader) {
+            cache = new ClassResolutionCache(classLoader);
+            instance = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * @return null if the class loader has no such class
+     */
+    ClassFileReader findType(String className) {
+        return types.computeIfAbsent(className, this::readType).orElse(null);
+    }
+
+    /**
+     * A name is taken as a package as long as the class loader has no class of that name.
+     */
+    boolean isPackage(String name) {
+        return packages.computeIfAbsent(name, n -> classLoader.getResource(toResourceName(n)) == null);
+    }
+
+    private Optional<ClassFileReader> readType(String className) {
+        try (InputStream is = classLoader.getResourceAsStream(toResourceName(className))) {
+            if (is == null) {
+                return Optional.empty();
+            }
+            byte[] classBytes = IOUtils.toByteArray(is);
+            return Optional.of(new ClassFileReader(classBytes, className.toCharArray(), true));
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    private static String toResourceName(String className) {
+        return className.replace('.', '/') + ".class";
+    }
+
+}
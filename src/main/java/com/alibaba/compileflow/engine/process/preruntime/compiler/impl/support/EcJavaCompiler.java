@@ -29,10 +29,7 @@ import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.*;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -41,8 +38,6 @@ import java.util.stream.Collectors;
  */
 public class EcJavaCompiler implements JavaCompiler {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(EcJavaCompiler.class);
-
     /**
      * java源码版本
      */
@@ -71,15 +66,18 @@ public class EcJavaCompiler implements JavaCompiler {
     ));
 
     @Override
-    public void compile(JavaSource javaSource, File outputFile, CompileOption compileOption) throws Exception {
-        ClassLoader classLoader = this.getClass().getClassLoader();
-
-        File javaSourceFile = javaSource.getJavaSourceFile();
-        String targetClassName = javaSource.getTargetFullClassName();
-        String[] fileNames = new String[] {javaSourceFile.getAbsolutePath()};
-        String[] classNames = new String[] {targetClassName};
+    public Map<String, byte[]> compile(List<JavaSource> javaSources, CompileOption compileOption) throws Exception {
+        ClassResolutionCache resolutionCache = ClassResolutionCache.getInstance(this.getClass().getClassLoader());
+
+        Map<String, ICompilationUnit> targetCompilationUnits = new LinkedHashMap<>();
+        for (JavaSource javaSource : javaSources) {
+            String targetClassName = javaSource.getTargetFullClassName();
+            targetCompilationUnits.put(targetClassName, new CompilationUnit(javaSource.getJavaSourceFileName(),
+                targetClassName, javaSource.getJavaSourceCode()));
+        }
 
         List<IProblem> problems = new ArrayList<>();
+        Map<String, byte[]> classBytesMap = new HashMap<>();
         INameEnvironment env = new INameEnvironment() {
             @Override
             public NameEnvironmentAnswer findType(char[][] compoundTypeName) {
@@ -94,50 +92,19 @@ public class EcJavaCompiler implements JavaCompiler {
             }
 
             private NameEnvironmentAnswer findType(String className) {
-                InputStream is = null;
-                try {
-                    if (className.equals(targetClassName)) {
-                        ICompilationUnit compilationUnit = new CompilationUnit(javaSourceFile.getAbsolutePath(),
-                            className, compileOption.getEncoding());
-                        return new NameEnvironmentAnswer(compilationUnit, null);
-                    }
-                    String resourceName = className.replace('.', '/') + ".class";
-                    is = classLoader.getResourceAsStream(resourceName);
-                    if (is != null) {
-                        byte[] classBytes;
-                        byte[] buf = new byte[8192];
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream(buf.length);
-                        int count;
-                        while ((count = is.read(buf, 0, buf.length)) > 0) {
-                            baos.write(buf, 0, count);
-                        }
-                        baos.flush();
-                        classBytes = baos.toByteArray();
-                        char[] fileName = className.toCharArray();
-                        ClassFileReader classFileReader = new ClassFileReader(classBytes, fileName, true);
-                        return new NameEnvironmentAnswer(classFileReader, null);
-                    }
-                } catch (Exception e) {
-                    LOGGER.error(e.getMessage(), e);
-                } finally {
-                    if (is != null) {
-                        try {
-                            is.close();
-                        } catch (IOException exc) {
-                            LOGGER.error("InputStream close error", exc);
-                        }
-                    }
+                ICompilationUnit targetCompilationUnit = targetCompilationUnits.get(className);
+                if (targetCompilationUnit != null) {
+                    return new NameEnvironmentAnswer(targetCompilationUnit, null);
                 }
-                return null;
+                ClassFileReader classFileReader = resolutionCache.findType(className);
+                return classFileReader != null ? new NameEnvironmentAnswer(classFileReader, null) : null;
             }
 
             private boolean isPackage(String result) {
-                if (result.equals(targetClassName)) {
+                if (targetCompilationUnits.containsKey(result)) {
                     return false;
                 }
-                String resourceName = result.replace('.', '/') + ".class";
-                InputStream is = classLoader.getResourceAsStream(resourceName);
-                return is == null;
+                return resolutionCache.isPackage(result);
             }
 
             @Override
@@ -171,57 +138,32 @@ public class EcJavaCompiler implements JavaCompiler {
         if (ALLOWED_SPEC_VERSION.contains(JAVA_TARGET_VERSION)) {
             settings.put(CompilerOptions.OPTION_TargetPlatform, JAVA_TARGET_VERSION);
         } else {
-            settings.put(CompilerOptions.OPTION_TargetPlatform, DEFAULT_JAVA_TARGET_VERSION);
+            // newer versions are unknown to ecj, which would fall back to a class file version without lambdas
+            settings.put(CompilerOptions.OPTION_TargetPlatform, CompilerOptions.VERSION_1_8);
         }
 
         IProblemFactory problemFactory = new DefaultProblemFactory(Locale.getDefault());
 
         ICompilerRequestor requestor = result -> {
-            try {
-                if (result.hasProblems()) {
-                    for (IProblem problem : result.getProblems()) {
-                        if (problem.isError()) {
-                            try {
-                                problems.add(problem);
-                            } catch (Exception e) {
-                                LOGGER.error(e.getMessage(), e);
-                            }
-                        }
+            if (result.hasProblems()) {
+                for (IProblem problem : result.getProblems()) {
+                    if (problem.isError()) {
+                        problems.add(problem);
                     }
                 }
-                if (problems.isEmpty()) {
-                    ClassFile[] classFiles = result.getClassFiles();
-                    for (ClassFile classFile : classFiles) {
-                        char[][] compoundName = classFile.getCompoundName();
-                        String className = Arrays.stream(compoundName).map(String::new).collect(
-                            Collectors.joining("."));
-                        byte[] bytes = classFile.getBytes();
-
-                        String outFile = outputFile + "/" + className.replace('.', '/') + ".class";
-
-                        File packagePath = new File(outFile.substring(0, outFile.lastIndexOf("/")));
-                        if (!packagePath.exists()) {
-                            if (!packagePath.mkdirs()) {
-                                throw new RuntimeException("Failed to mkdir, package path is " + packagePath);
-                            }
-                        }
-
-                        FileOutputStream outputStream = new FileOutputStream(outFile);
-                        BufferedOutputStream bos = new BufferedOutputStream(outputStream);
-                        bos.write(bytes);
-                        bos.close();
-                    }
+            }
+            if (problems.isEmpty()) {
+                ClassFile[] classFiles = result.getClassFiles();
+                for (ClassFile classFile : classFiles) {
+                    char[][] compoundName = classFile.getCompoundName();
+                    String className = Arrays.stream(compoundName).map(String::new).collect(
+                        Collectors.joining("."));
+                    classBytesMap.put(className, classFile.getBytes());
                 }
-            } catch (IOException e) {
-                LOGGER.error(e.getMessage(), e);
             }
         };
 
-        ICompilationUnit[] compilationUnits = new ICompilationUnit[classNames.length];
-        for (int i = 0; i < compilationUnits.length; i++) {
-            String className = classNames[i];
-            compilationUnits[i] = new CompilationUnit(fileNames[i], className, compileOption.getEncoding());
-        }
+        ICompilationUnit[] compilationUnits = targetCompilationUnits.values().toArray(new ICompilationUnit[0]);
         CompilerOptions cOptions = new CompilerOptions(settings);
         cOptions.parseLiteralExpressionsAsConstants = true;
 
@@ -230,15 +172,15 @@ public class EcJavaCompiler implements JavaCompiler {
         compiler.compile(compilationUnits);
 
         if (!problems.isEmpty()) {
-            throw new CompileFlowException(getErrorMsg(javaSourceFile, targetClassName, problems));
+            throw new CompileFlowException(getErrorMsg(targetCompilationUnits.keySet(), problems));
         }
+        return classBytesMap;
     }
 
-    private String getErrorMsg(File javaFile, String className, Collection<IProblem> errors) {
+    private String getErrorMsg(Collection<String> classNames, Collection<IProblem> errors) {
         StringBuilder sb = new StringBuilder();
 
-        sb.append("compile file[").append(javaFile.getAbsoluteFile()).append("] to class[").append(className)
-            .append("] failed,");
+        sb.append("compile class").append(classNames).append(" failed,");
 
         for (IProblem problem : errors) {
             sb.append(problem).append(System.getProperty("line.separator"));
@@ -250,12 +192,12 @@ public class EcJavaCompiler implements JavaCompiler {
     static class CompilationUnit implements ICompilationUnit {
         private final String className;
         private final String sourceFile;
-        private final String encode;
+        private final char[] sourceCode;
 
-        CompilationUnit(String sourceFile, String className, String encode) {
+        CompilationUnit(String sourceFile, String className, String sourceCode) {
             this.className = className;
             this.sourceFile = sourceFile;
-            this.encode = encode;
+            this.sourceCode = sourceCode.toCharArray();
         }
 
         @Override
@@ -265,22 +207,7 @@ public class EcJavaCompiler implements JavaCompiler {
 
         @Override
         public char[] getContents() {
-            char[] result = null;
-            try (FileInputStream is = new FileInputStream(sourceFile)) {
-                Reader reader = new BufferedReader(new InputStreamReader(is, encode));
-                char[] chars = new char[8192];
-                StringBuilder buf = new StringBuilder();
-                int count;
-                while ((count = reader.read(chars, 0, chars.length)) > 0) {
-                    buf.append(chars, 0, count);
-                }
-                result = new char[buf.length()];
-                buf.getChars(0, result.length, result, 0);
-                reader.close();
-            } catch (Exception e) {
-                LOGGER.error(e.getMessage(), e);
-            }
-            return result;
+            return sourceCode;
         }
 
         @Override
@@ -16,48 +16,64 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.compiler.impl.support;
 
-import com.alibaba.compileflow.engine.process.preruntime.compiler.CompileConstants;
+import com.alibaba.compileflow.engine.common.CompileFlowException;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.CompileOption;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.JavaCompiler;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.JavaSource;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
 import javax.tools.SimpleJavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
-import java.io.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.net.URI;
-import java.util.ArrayList;
+import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author yusu
  */
 public class JdkJavaCompiler implements JavaCompiler {
 
-    private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
-
     @Override
-    public void compile(JavaSource javaSource, File outputFile, CompileOption compileOption) throws Exception {
+    public Map<String, byte[]> compile(List<JavaSource> javaSources, CompileOption compileOption) throws Exception {
         javax.tools.JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
-        List<StringJavaFileObject> javaFileObjects = new ArrayList<>();
-        StringJavaFileObject srcObject = new StringJavaFileObject(javaSource.getTargetFullClassName(),
-            javaSource.getJavaSourceCode());
-        javaFileObjects.add(srcObject);
-
-        Iterable<String> options = Arrays.asList("-d", outputFile.getPath());
-
-        javax.tools.JavaCompiler.CompilationTask task = compiler.getTask(
-            CompileLogHelper.getInstance().getLogPrintWriter(), fileManager, null,
-            options, null, javaFileObjects);
-        boolean result = task.call();
-
-        if (!result) {
-            LOGGER.error("Compile class error, class name is " + javaSource.getTargetFullClassName());
+        if (compiler == null) {
+            throw new CompileFlowException("No system java compiler found, please run with a JDK");
         }
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null,
+            Charset.forName(compileOption.getEncoding()));
+        Map<String, ByteArrayOutputStream> classOutputs = new HashMap<>();
+        List<StringJavaFileObject> javaFileObjects = javaSources.stream()
+            .map(javaSource -> new StringJavaFileObject(javaSource.getTargetFullClassName(),
+                javaSource.getJavaSourceCode()))
+            .collect(Collectors.toList());
+        Iterable<String> options = Arrays.asList("-encoding", compileOption.getEncoding());
+
+        StringWriter compileLog = new StringWriter();
+        try (JavaFileManager fileManager = new MemoryJavaFileManager(standardFileManager, classOutputs)) {
+            javax.tools.JavaCompiler.CompilationTask task = compiler.getTask(compileLog, fileManager, null,
+                options, null, javaFileObjects);
+            if (!task.call()) {
+                throw new CompileFlowException("Compile class error, class names are "
+                    + javaSources.stream().map(JavaSource::getTargetFullClassName).collect(Collectors.toList())
+                    + ", " + compileLog);
+            }
+        }
+
+        Map<String, byte[]> classBytesMap = new HashMap<>();
+        classOutputs.forEach((className, outputStream) -> classBytesMap.put(className, outputStream.toByteArray()));
+        return classBytesMap;
     }
 
     private static class StringJavaFileObject extends SimpleJavaFileObject {
@@ -77,49 +93,41 @@ public class JdkJavaCompiler implements JavaCompiler {
 
     }
 
-    private static class CompileLogHelper {
+    private static class BytesJavaFileObject extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream outputStream;
+
+        public BytesJavaFileObject(String name, ByteArrayOutputStream outputStream) {
+            super(URI.create("bytes:///" + name.replace('.', '/') + Kind.CLASS.extension),
+                Kind.CLASS);
+            this.outputStream = outputStream;
+        }
 
-        private static final Logger LOGGER = LoggerFactory.getLogger(CompileLogHelper.class);
+        @Override
+        public OutputStream openOutputStream() {
+            return outputStream;
+        }
 
-        private static final String COMPILE_LOG = CompileConstants.FLOW_COMPILE_CLASS_DIR + "compile.log";
+    }
 
-        private static volatile CompileLogHelper instance;
+    private static class MemoryJavaFileManager extends ForwardingJavaFileManager<JavaFileManager> {
 
-        private static PrintWriter logPrintWriter;
+        private final Map<String, ByteArrayOutputStream> classOutputs;
 
-        public static CompileLogHelper getInstance() {
-            if (instance == null) {
-                synchronized (CompileLogHelper.class) {
-                    if (instance == null) {
-                        init();
-                        instance = new CompileLogHelper();
-                    }
-                }
-            }
-            return instance;
+        MemoryJavaFileManager(JavaFileManager fileManager, Map<String, ByteArrayOutputStream> classOutputs) {
+            super(fileManager);
+            this.classOutputs = classOutputs;
         }
 
-        private static void init() {
-            File logfile = new File(COMPILE_LOG);
-            if (!logfile.exists()) {
-                try {
-                    if (!logfile.createNewFile()) {
-                        LOGGER.error("Create java compile log error");
-                    }
-                } catch (IOException e) {
-                    LOGGER.error("Create java compile log error", e);
-                }
-            }
-            try {
-                OutputStreamWriter outputStreamWriter = new OutputStreamWriter(new FileOutputStream(logfile), "UTF-8");
-                logPrintWriter = new PrintWriter(outputStreamWriter, true);
-            } catch (Exception e) {
-                LOGGER.error("Create java compile log printWriter error", e);
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) throws IOException {
+            if (kind != JavaFileObject.Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
             }
-        }
-
-        public PrintWriter getLogPrintWriter() {
-            return logPrintWriter;
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            classOutputs.put(className, outputStream);
+            return new BytesJavaFileObject(className, outputStream);
         }
 
     }
@@ -59,6 +59,7 @@ public class BpmnElementParserProvider extends AbstractFlowElementParserProvider
         registerParser(new ConditionExpressionParser());
         registerParser(new StandardLoopCharacteristicsParser());
         registerParser(new MultiInstanceLoopCharacteristicsParser());
+        registerParser(new CompletionConditionParser());
     }
 
 }
\ No newline at end of file
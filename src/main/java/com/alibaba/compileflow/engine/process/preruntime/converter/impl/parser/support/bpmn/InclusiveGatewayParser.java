@@ -33,6 +33,7 @@ public class InclusiveGatewayParser extends AbstractBpmnElementParser<InclusiveG
     protected InclusiveGateway doParse(XMLSource xmlSource, ParseContext parseContext) throws Exception {
         InclusiveGateway inclusiveGateway = new InclusiveGateway();
         inclusiveGateway.setId(xmlSource.getString(BpmnModelConstants.BPMN_ATTRIBUTE_ID));
+        inclusiveGateway.setDefaultFlow(xmlSource.getString(BpmnModelConstants.BPMN_ATTRIBUTE_DEFAULT));
         return inclusiveGateway;
     }
 
@@ -17,6 +17,7 @@
 package com.alibaba.compileflow.engine.process.preruntime.converter.impl.parser.support.bpmn;
 
 import com.alibaba.compileflow.engine.definition.bpmn.BpmnModelConstants;
+import com.alibaba.compileflow.engine.definition.bpmn.Expression;
 import com.alibaba.compileflow.engine.definition.bpmn.MultiInstanceLoopCharacteristics;
 import com.alibaba.compileflow.engine.definition.common.Element;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.parser.support.AbstractBpmnElementParser;
@@ -37,13 +38,29 @@ public class MultiInstanceLoopCharacteristicsParser
         multiInstanceLoopCharacteristics.setId(xmlSource.getString(BpmnModelConstants.BPMN_ATTRIBUTE_ID));
         multiInstanceLoopCharacteristics.setSequential(
             xmlSource.getBoolean(BpmnModelConstants.BPMN_ELEMENT_IS_SEQUENTIAL));
+        multiInstanceLoopCharacteristics.setCollection(
+            xmlSource.getCfString(BpmnModelConstants.BPMN_EXT_ATTRIBUTE_COLLECTION));
+        multiInstanceLoopCharacteristics.setElementVar(
+            xmlSource.getCfString(BpmnModelConstants.BPMN_EXT_ATTRIBUTE_ELEMENT_VAR));
+        multiInstanceLoopCharacteristics.setIndexVar(
+            xmlSource.getCfString(BpmnModelConstants.BPMN_EXT_ATTRIBUTE_INDEX_VAR));
+        multiInstanceLoopCharacteristics.setElementVarClass(
+            xmlSource.getCfString(BpmnModelConstants.BPMN_EXT_ATTRIBUTE_ELEMENT_VAR_CLASS));
+        multiInstanceLoopCharacteristics.setOutputCollection(
+            xmlSource.getCfString(BpmnModelConstants.BPMN_EXT_ATTRIBUTE_OUTPUT_COLLECTION));
+        multiInstanceLoopCharacteristics.setOutputElement(
+            xmlSource.getCfString(BpmnModelConstants.BPMN_EXT_ATTRIBUTE_OUTPUT_ELEMENT));
+        multiInstanceLoopCharacteristics.setMaxConcurrency(
+            xmlSource.getCfInt(BpmnModelConstants.BPMN_EXT_ATTRIBUTE_MAX_CONCURRENCY));
         return multiInstanceLoopCharacteristics;
     }
 
     @Override
     protected void attachChildElement(Element childElement, MultiInstanceLoopCharacteristics element,
                                       ParseContext parseContext) {
-
+        if (childElement instanceof Expression) {
+            element.setCompletionCondition((Expression)childElement);
+        }
     }
 
     @Override
@@ -16,6 +16,7 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.converter.impl.parser.support.bpmn;
 
+import com.alibaba.compileflow.engine.definition.bpmn.BpmnModelConstants;
 import com.alibaba.compileflow.engine.definition.bpmn.ParallelGateway;
 import com.alibaba.compileflow.engine.definition.common.Element;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.parser.support.AbstractBpmnElementParser;
@@ -30,7 +31,9 @@ public class ParallelGatewayParser extends AbstractBpmnElementParser<ParallelGat
 
     @Override
     protected ParallelGateway doParse(XMLSource xmlSource, ParseContext parseContext) throws Exception {
-        return null;
+        ParallelGateway parallelGateway = new ParallelGateway();
+        parallelGateway.setId(xmlSource.getString(BpmnModelConstants.BPMN_ATTRIBUTE_ID));
+        return parallelGateway;
     }
 
     @Override
@@ -40,7 +43,7 @@ public class ParallelGatewayParser extends AbstractBpmnElementParser<ParallelGat
 
     @Override
     public String getName() {
-        return null;
+        return BpmnModelConstants.BPMN_ELEMENT_PARALLEL_GATEWAY;
     }
 
 }
@@ -34,6 +34,7 @@ public class ActionParser extends AbstractTbbpmElementParser<Action> {
     protected Action doParse(XMLSource xmlSource, ParseContext parseContext) {
         Action action = new Action();
         action.setType(xmlSource.getString("type"));
+        action.setParallelizable(xmlSource.getBoolean("parallelizable"));
         return action;
     }
 
@@ -43,6 +43,8 @@ public class LoopProcessParser extends AbstractTbbpmElementParser<LoopProcessNod
         loopProcessNode.setIndexVarName(xmlSource.getString("indexVarName"));
         loopProcessNode.setCollectionVarName(xmlSource.getString("collectionVarName"));
         loopProcessNode.setWhileExpression(xmlSource.getString("whileExpression"));
+        loopProcessNode.setParallel(xmlSource.getBoolean("parallel"));
+        loopProcessNode.setMaxConcurrency(xmlSource.getInt("maxConcurrency"));
         loopProcessNode.setStartNodeId(xmlSource.getString("startNodeId"));
         loopProcessNode.setEndNodeId(xmlSource.getString("endNodeId"));
         return loopProcessNode;
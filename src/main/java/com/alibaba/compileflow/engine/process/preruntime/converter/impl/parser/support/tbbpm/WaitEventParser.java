@@ -26,6 +26,7 @@ public class WaitEventParser extends AbstractTbbpmElementParser<WaitEventNode> {
         waitEventNode.setName(xmlSource.getString("name"));
         waitEventNode.setTag(xmlSource.getString("tag"));
         waitEventNode.setEventName(xmlSource.getString("eventName"));
+        waitEventNode.setCorrelationKey(xmlSource.getString("correlationKey"));
         waitEventNode.setDescription(xmlSource.getString("description"));
         waitEventNode.setG(xmlSource.getString("g"));
         return waitEventNode;
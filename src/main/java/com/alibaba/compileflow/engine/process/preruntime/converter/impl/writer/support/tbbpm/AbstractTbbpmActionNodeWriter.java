@@ -44,6 +44,9 @@ public abstract class AbstractTbbpmActionNodeWriter<S extends ActionNode>
         }
         xsw.writeStartElement("action");
         writeAttribute(xsw, "type", action.getType());
+        if (action.isParallelizable()) {
+            writeAttribute(xsw, "parallelizable", "true");
+        }
         writeActionHandle(action.getActionHandle(), xsw);
         xsw.writeEndElement();
     }
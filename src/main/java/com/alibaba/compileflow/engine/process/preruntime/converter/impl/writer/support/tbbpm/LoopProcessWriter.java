@@ -42,6 +42,12 @@ public class LoopProcessWriter extends AbstractTbbpmFlowElementWriter<LoopProces
         writeAttribute(xsw, "variableName", node.getVariableName());
         writeAttribute(xsw, "indexVarName", node.getIndexVarName());
         writeAttribute(xsw, "variableClass", node.getVariableClass());
+        if (node.isParallel()) {
+            writeAttribute(xsw, "parallel", "true");
+        }
+        if (node.getMaxConcurrency() > 0) {
+            writeAttribute(xsw, "maxConcurrency", String.valueOf(node.getMaxConcurrency()));
+        }
         writeAttribute(xsw, "startNodeId", node.getStartNodeId());
         writeAttribute(xsw, "endNodeId", node.getEndNodeId());
     }
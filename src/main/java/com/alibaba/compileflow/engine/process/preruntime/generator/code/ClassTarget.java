@@ -101,15 +101,34 @@ public class ClassTarget extends AbstractCodeTargetSupport implements CodeTarget
     }
 
     public void addField(ClassWrapper type, String name, String initialization) {
+        addField(type, name, initialization, new ArrayList<>());
+    }
+
+    public void addField(ClassWrapper type, String name, String initialization, List<Modifier> modifiers) {
         if (notContainField(name)) {
             FieldTarget field = new FieldTarget();
             field.setType(type);
             field.setName(name);
             field.setInitialization(initialization);
+            field.setModifiers(modifiers);
             fields.add(field);
         }
     }
 
+    public boolean containsField(String name) {
+        return !notContainField(name);
+    }
+
+    /**
+     * @return true if types of the same short name but different packages are imported, the code wouldn't compile
+     */
+    public boolean containsConflictingImportedTypes() {
+        return importedTypes.stream().map(this::getImportName).distinct()
+            .collect(Collectors.groupingBy(importName -> importName.substring(importName.lastIndexOf('.') + 1),
+                Collectors.counting()))
+            .values().stream().anyMatch(count -> count > 1);
+    }
+
     public void addModifier(Modifier modifier) {
         modifiers.add(modifier);
     }
@@ -51,7 +51,12 @@ public abstract class AbstractActionNodeGenerator<N extends Node>
     }
 
     protected void generateActionMethodCode(CodeTargetSupport codeTargetSupport, IAction action) {
-        if (action != null) {
+        if (action != null && runtime.isReentrant()) {
+            // helper methods can't see the flow vars of reentrant flows, inline the action
+            codeTargetSupport.addBodyLine("{");
+            generateActionCode(codeTargetSupport, action);
+            codeTargetSupport.addBodyLine("}");
+        } else if (action != null) {
             ActionMethodGenerator actionMethodGenerator = GeneratorFactory.getInstance()
                 .getActionGenerator(action, runtime);
             actionMethodGenerator.generateActionMethodCode(codeTargetSupport);
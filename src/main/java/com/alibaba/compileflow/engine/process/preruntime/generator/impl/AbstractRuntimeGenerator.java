@@ -26,16 +26,26 @@ import com.alibaba.compileflow.engine.process.preruntime.generator.code.ClassTar
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.MethodTarget;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.ParamTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.constansts.Modifier;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.ParallelBranches;
+import com.alibaba.compileflow.engine.runtime.instance.SubFlowLink;
 import org.apache.commons.collections4.CollectionUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author yusu
  */
 public abstract class AbstractRuntimeGenerator extends AbstractGenerator {
 
+    private static final String SUB_FLOW_LINK_FIELD_PREFIX = "_pSubFlowLink";
+
     protected AbstractProcessRuntime runtime;
 
     public AbstractRuntimeGenerator(AbstractProcessRuntime runtime) {
@@ -81,6 +91,102 @@ public abstract class AbstractRuntimeGenerator extends AbstractGenerator {
         methodBodyGenerator.generateCode(method);
     }
 
+    /**
+     * Assign the flow vars from <code>_pVars</code>, e.g. as returned by code run on another thread.
+     *
+     * @param declared whether the vars are declared by the assignments
+     */
+    protected void generateVarAssignments(CodeTargetSupport codeTargetSupport, boolean declared) {
+        List<IVar> vars = runtime.getVars();
+        for (int i = 0; i < vars.size(); i++) {
+            IVar var = vars.get(i);
+            String varTypeName = ClassWrapper.of(var.getDataType()).getName();
+            codeTargetSupport.addBodyLine((declared ? varTypeName + " " : "") + var.getName() + " = ("
+                + varTypeName + ")_pVars[" + i + "];");
+        }
+    }
+
+    /**
+     * Generate a branch method taking and returning the flow vars, see {@link ParallelBranches.Branch}.
+     *
+     * @return reference to the generated branch method
+     */
+    protected String generateBranchMethod(CodeTargetSupport codeTargetSupport, String methodName,
+                                          Generator branchGenerator) {
+        addImportedType(codeTargetSupport, ParallelBranches.class);
+        ClassTarget classTarget = getClassTarget(codeTargetSupport);
+        MethodTarget method = new MethodTarget();
+        method.setClassTarget(classTarget);
+        method.setName(methodName);
+        method.addModifier(Modifier.PRIVATE);
+        method.setReturnType(ClassWrapper.of("Object[]"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of("Object[]"), "_pVars"));
+        method.addException(ClassWrapper.of(Exception.class));
+        classTarget.addMethod(method);
+
+        generateVarAssignments(method, true);
+        branchGenerator.generateCode(method);
+        method.addBodyLine("return " + generateVarArray() + ";");
+        return "this::" + methodName;
+    }
+
+    /**
+     * Generate a call of a sub flow, inlined into the flow class if the sub flow is small enough, see
+     * {@link AbstractProcessRuntime#inlineSubFlow}, otherwise through a {@link SubFlowLink} held by a static field
+     * of the flow class.
+     */
+    protected void generateSubFlowCode(CodeTargetSupport codeTargetSupport, String subFlowCode, List<IVar> params,
+                                       IVar returnVar) {
+        List<String> paramValues = new ArrayList<>();
+        for (IVar param : params) {
+            paramValues.add(param.getContextVarName() != null
+                ? DataType.getVarTransferString(getVarType(param.getContextVarName()),
+                DataType.getJavaClass(param.getDataType()), param.getContextVarName())
+                : DataType.getDefaultValueString(DataType.getJavaClass(param.getDataType()),
+                    param.getDefaultValue()));
+        }
+        Map<String, String> namedParamValues = new HashMap<>();
+        for (int i = 0; i < params.size(); i++) {
+            namedParamValues.put(params.get(i).getName(), paramValues.get(i));
+        }
+        String executeCode = runtime.inlineSubFlow(codeTargetSupport, subFlowCode, namedParamValues,
+            returnVar == null ? null : returnVar.getName());
+        if (executeCode == null) {
+            String linkName = generateSubFlowLink(codeTargetSupport, subFlowCode, params, returnVar);
+            executeCode = linkName + ".execute(new Object[] {" + String.join(", ", paramValues) + "})"
+                + (returnVar == null ? "" : "[0]");
+        }
+        if (returnVar != null) {
+            codeTargetSupport.addBodyLine(returnVar.getContextVarName() + " = ("
+                + DataType.getJavaObjectType(returnVar.getDataType()) + ")" + executeCode + ";");
+        } else {
+            codeTargetSupport.addBodyLine(executeCode + ";");
+        }
+    }
+
+    private String generateSubFlowLink(CodeTargetSupport codeTargetSupport, String subFlowCode, List<IVar> params,
+                                       IVar returnVar) {
+        addImportedType(codeTargetSupport, SubFlowLink.class);
+        ClassTarget classTarget = getClassTarget(codeTargetSupport);
+        int index = 0;
+        while (classTarget.containsField(SUB_FLOW_LINK_FIELD_PREFIX + index)) {
+            index++;
+        }
+        String linkName = SUB_FLOW_LINK_FIELD_PREFIX + index;
+        String paramNames = params.stream().map(param -> "\"" + param.getName() + "\"")
+            .collect(Collectors.joining(", "));
+        String returnNames = returnVar == null ? "" : "\"" + returnVar.getName() + "\"";
+        classTarget.addField(ClassWrapper.of(SubFlowLink.class), linkName, "SubFlowLink.of(\"" + subFlowCode
+                + "\", new String[] {" + paramNames + "}, new String[] {" + returnNames + "})",
+            Arrays.asList(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL));
+        return linkName;
+    }
+
+    protected String generateVarArray() {
+        List<IVar> vars = runtime.getVars();
+        return "new Object[] {" + vars.stream().map(IVar::getName).collect(Collectors.joining(", ")) + "}";
+    }
+
     protected boolean isEndNode(String id) {
         return runtime.getNodeById(id) instanceof EndElement;
     }
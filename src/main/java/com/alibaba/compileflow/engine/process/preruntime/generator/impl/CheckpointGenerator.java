@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.generator.impl;
+
+import com.alibaba.compileflow.engine.process.preruntime.generator.Generator;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.FlowCancellation;
+
+/**
+ * Check cancellation before the wrapped node, see {@link FlowCancellation}.
+ *
+ * @author yusu
+ */
+public class CheckpointGenerator extends AbstractWrapperGenerator {
+
+    public CheckpointGenerator(AbstractProcessRuntime runtime, Generator generator) {
+        super(runtime, generator);
+    }
+
+    @Override
+    public void generateCode(CodeTargetSupport codeTargetSupport) {
+        addImportedType(codeTargetSupport, FlowCancellation.class);
+        codeTargetSupport.addBodyLine("FlowCancellation.checkpoint();");
+        generator.generateCode(codeTargetSupport);
+    }
+
+}
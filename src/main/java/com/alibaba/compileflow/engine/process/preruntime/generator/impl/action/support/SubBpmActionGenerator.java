@@ -16,18 +16,13 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.generator.impl.action.support;
 
-import com.alibaba.compileflow.engine.ProcessEngineFactory;
-import com.alibaba.compileflow.engine.common.utils.DataType;
 import com.alibaba.compileflow.engine.definition.common.action.IAction;
 import com.alibaba.compileflow.engine.definition.common.action.impl.SubBpmActionHandle;
-import com.alibaba.compileflow.engine.definition.common.var.IVar;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
 import com.alibaba.compileflow.engine.process.preruntime.generator.impl.action.AbstractActionGenerator;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.List;
-
 /**
  * @author yusu
  */
@@ -51,35 +46,7 @@ public class SubBpmActionGenerator extends AbstractActionGenerator {
             codeTargetSupport.addBodyLine("//TODO");
         }
 
-        addImportedType(codeTargetSupport, ProcessEngineFactory.class);
-
-        List<IVar> params = getMethodParameters();
-        IVar returnVar = getReturnVar();
-        codeTargetSupport.addBodyLine("{");
-        codeTargetSupport.addBodyLine("Map<String, Object> _subBpmContext = new HashMap<>();");
-        for (IVar param : params) {
-            String var = param.getContextVarName() != null ?
-                DataType.getVarTransferString(getVarType(param.getContextVarName()),
-                    DataType.getJavaClass(param.getDataType()), param.getContextVarName())
-                : DataType.getDefaultValueString(DataType.getJavaClass(param.getDataType()),
-                    param.getDefaultValue());
-
-            codeTargetSupport.addBodyLine("_subBpmContext.put(\"" + param.getName() + "\", " + var + ");");
-        }
-
-        String noReturnCode = "ProcessEngineFactory.getProcessEngine().start(\"" + getSubBpmCode()
-            + "\", _subBpmContext)";
-
-        if (returnVar != null) {
-            String code = returnVar.getContextVarName() + " = ("
-                + DataType.getJavaObjectType(returnVar.getDataType()) + ")" + "(" + noReturnCode + ").get(\""
-                + returnVar.getName() + "\");";
-            codeTargetSupport.addBodyLine(code);
-        } else {
-            codeTargetSupport.addBodyLine(noReturnCode + ";");
-        }
-
-        codeTargetSupport.addBodyLine("}");
+        generateSubFlowCode(codeTargetSupport, getSubBpmCode(), getMethodParameters(), getReturnVar());
     }
 
     private String getSubBpmCode() {
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.generator.impl.bpmn;
+
+import com.alibaba.compileflow.engine.definition.bpmn.Gateway;
+import com.alibaba.compileflow.engine.definition.bpmn.SequenceFlow;
+import com.alibaba.compileflow.engine.definition.common.TransitionNode;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.ParallelBranches;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gateway whose diverging form forks branches, see {@link ParallelBranches}, and whose converging form joins them
+ * and goes on with its following nodes.
+ * <p>
+ * Branches are methods of the flow class taking the flow vars, so they're forked only if the vars are locals of the
+ * flow method, i.e. the flow is {@link AbstractProcessRuntime#isReentrant() reentrant}, and the gateway is not in a
+ * loop, whose vars the branches wouldn't see. Otherwise the branches run one after another in declaration order.
+ *
+ * @author yusu
+ */
+public abstract class AbstractForkGatewayGenerator<N extends Gateway> extends AbstractBpmnNodeGenerator<N> {
+
+    private final boolean forkable;
+
+    public AbstractForkGatewayGenerator(AbstractProcessRuntime runtime, N flowNode, boolean forkable) {
+        super(runtime, flowNode);
+        this.forkable = forkable;
+    }
+
+    @Override
+    public void generateCode(CodeTargetSupport codeTargetSupport) {
+        generateNodeComment(codeTargetSupport);
+        List<SequenceFlow> transitions = flowNode.getOutgoingFlows();
+        if (transitions.size() == 1) {
+            executeNodes(getBranchNodes(transitions.get(0)), codeTargetSupport);
+            return;
+        }
+
+        generateForkCode(codeTargetSupport, transitions);
+        Map<String, List<TransitionNode>> followingGraph = runtime.getFollowingGraph();
+        executeNodes(followingGraph.get(flowNode.getId()), codeTargetSupport);
+    }
+
+    protected abstract void generateForkCode(CodeTargetSupport codeTargetSupport, List<SequenceFlow> transitions);
+
+    protected boolean isForked() {
+        return forkable && runtime.isReentrant();
+    }
+
+    /**
+     * @return reference to the generated branch method
+     */
+    protected String generateBranchMethod(CodeTargetSupport codeTargetSupport, int index,
+                                          List<TransitionNode> branchNodes) {
+        String methodName = StringUtils.uncapitalize(flowNode.getClass().getSimpleName())
+            + StringUtils.capitalize(getLegalId()) + "Branch" + index;
+        return generateBranchMethod(codeTargetSupport, methodName, method -> executeNodes(branchNodes, method));
+    }
+
+    protected String getLegalId() {
+        return flowNode.getId().replaceAll("[^A-Za-z0-9_$]", "_");
+    }
+
+    protected List<TransitionNode> getBranchNodes(SequenceFlow transition) {
+        Map<String, List<TransitionNode>> branchGraph = runtime.getBranchGraph();
+        return branchGraph.get(transition.getTargetRef());
+    }
+
+    protected void executeNodes(List<TransitionNode> flowNodes, CodeTargetSupport codeTargetSupport) {
+        if (CollectionUtils.isNotEmpty(flowNodes)) {
+            flowNodes.stream().map(flowNode -> runtime.getNodeGeneratorProvider().getGenerator(flowNode))
+                .forEach(generator -> generator.generateCode(codeTargetSupport));
+        }
+    }
+
+}
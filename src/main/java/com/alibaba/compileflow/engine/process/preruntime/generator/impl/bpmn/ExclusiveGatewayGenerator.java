@@ -41,10 +41,15 @@ public class ExclusiveGatewayGenerator extends AbstractBpmnActionNodeGenerator<E
 
     @Override
     public void generateCode(CodeTargetSupport codeTargetSupport) {
-        String methodName = generateExclusiveGatewayMethodName();
-        codeTargetSupport.addBodyLine(methodName + "();");
-
-        generateMethodCode(codeTargetSupport, methodName, this::generateExclusiveGatewayMethodCode);
+        if (runtime.isReentrant()) {
+            codeTargetSupport.addBodyLine("{");
+            generateExclusiveGatewayMethodCode(codeTargetSupport);
+            codeTargetSupport.addBodyLine("}");
+        } else {
+            String methodName = generateExclusiveGatewayMethodName();
+            codeTargetSupport.addBodyLine(methodName + "();");
+            generateMethodCode(codeTargetSupport, methodName, this::generateExclusiveGatewayMethodCode);
+        }
         Map<String, List<TransitionNode>> followingGraph = runtime.getFollowingGraph();
         List<TransitionNode> followingNodes = followingGraph.get(flowNode.getId());
         executeNodes(followingNodes, codeTargetSupport);
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.generator.impl.bpmn;
+
+import com.alibaba.compileflow.engine.definition.bpmn.InclusiveGateway;
+import com.alibaba.compileflow.engine.definition.bpmn.SequenceFlow;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A diverging inclusive gateway runs every branch whose condition is true, a branch without condition always runs.
+ * The default flow of the gateway runs only if no other branch does. All conditions are evaluated before any
+ * branch runs, the join then waits for the activated branches only.
+ *
+ * @author yusu
+ */
+public class InclusiveGatewayGenerator extends AbstractForkGatewayGenerator<InclusiveGateway> {
+
+    public InclusiveGatewayGenerator(AbstractProcessRuntime runtime, InclusiveGateway flowNode, boolean forkable) {
+        super(runtime, flowNode, forkable);
+    }
+
+    @Override
+    protected void generateForkCode(CodeTargetSupport codeTargetSupport, List<SequenceFlow> transitions) {
+        String activatedVar = "_pActivated" + StringUtils.capitalize(getLegalId());
+        List<String> conditions = new ArrayList<>();
+        List<String> otherActivations = new ArrayList<>();
+        int defaultIndex = -1;
+        for (int i = 0; i < transitions.size(); i++) {
+            SequenceFlow transition = transitions.get(i);
+            if (transition.getId().equals(flowNode.getDefaultFlow())) {
+                defaultIndex = i;
+                conditions.add("false");
+            } else {
+                conditions.add(StringUtils.isEmpty(transition.getExpression())
+                    ? "true" : "(" + transition.getExpression() + ")");
+                otherActivations.add(activatedVar + "[" + i + "]");
+            }
+        }
+
+        codeTargetSupport.addBodyLine("{");
+        codeTargetSupport.addBodyLine("boolean[] " + activatedVar + " = new boolean[] {"
+            + String.join(", ", conditions) + "};");
+        if (defaultIndex >= 0) {
+            codeTargetSupport.addBodyLine(activatedVar + "[" + defaultIndex + "] = "
+                + (otherActivations.isEmpty() ? "true" : "!(" + String.join(" || ", otherActivations) + ")") + ";");
+        }
+        if (isForked()) {
+            List<String> branchMethodRefs = new ArrayList<>();
+            for (int i = 0; i < transitions.size(); i++) {
+                branchMethodRefs.add(generateBranchMethod(codeTargetSupport, i, getBranchNodes(transitions.get(i))));
+            }
+            codeTargetSupport.addBodyLine("Object[] _pVars = ParallelBranches.execute(" + generateVarArray() + ", "
+                + activatedVar + ", " + String.join(", ", branchMethodRefs) + ");");
+            generateVarAssignments(codeTargetSupport, false);
+        } else {
+            for (int i = 0; i < transitions.size(); i++) {
+                codeTargetSupport.addBodyLine("if (" + activatedVar + "[" + i + "]) {");
+                executeNodes(getBranchNodes(transitions.get(i)), codeTargetSupport);
+                codeTargetSupport.addBodyLine("}");
+            }
+        }
+        codeTargetSupport.addBodyLine("}");
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.generator.impl.bpmn;
+
+import com.alibaba.compileflow.engine.common.ClassWrapper;
+import com.alibaba.compileflow.engine.definition.bpmn.Activity;
+import com.alibaba.compileflow.engine.definition.bpmn.Expression;
+import com.alibaba.compileflow.engine.definition.bpmn.MultiInstanceLoopCharacteristics;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
+import com.alibaba.compileflow.engine.process.preruntime.generator.Generator;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.ClassTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.MethodTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.ParamTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.constansts.Modifier;
+import com.alibaba.compileflow.engine.process.preruntime.generator.impl.AbstractWrapperGenerator;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.MultiInstanceActivity;
+import com.alibaba.compileflow.engine.runtime.instance.MultiInstanceResult;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Multi-instance activity, one instance per element of the collection. Outputs of the instances, i.e. the
+ * output element at the end of each of them, are collected in the output collection. Once the completion
+ * condition holds at the end of an instance, no further instance is started.
+ * <p>
+ * Parallel instances run concurrently, see {@link MultiInstanceActivity}, on the same conditions as the branches
+ * of a gateway, see {@link AbstractForkGatewayGenerator}. Otherwise they run one after another like a loop.
+ *
+ * @author yusu
+ */
+public class MultiInstanceLoopCharacteristicsGenerator extends AbstractWrapperGenerator {
+
+    private final Activity activity;
+
+    private final MultiInstanceLoopCharacteristics loopCharacteristics;
+
+    private final boolean forkable;
+
+    public MultiInstanceLoopCharacteristicsGenerator(AbstractProcessRuntime runtime, Activity activity,
+                                                     MultiInstanceLoopCharacteristics loopCharacteristics,
+                                                     Generator generator, boolean forkable) {
+        super(runtime, generator);
+        this.activity = activity;
+        this.loopCharacteristics = loopCharacteristics;
+        this.forkable = forkable;
+    }
+
+    @Override
+    public void generateCode(CodeTargetSupport codeTargetSupport) {
+        addImportedType(codeTargetSupport, List.class);
+        addImportedType(codeTargetSupport, ArrayList.class);
+        codeTargetSupport.addBodyLine("{");
+        codeTargetSupport.addBodyLine("List<Object> _pOutputs = new ArrayList<>();");
+        if (isForked()) {
+            String instanceMethodRef = generateInstanceMethod(codeTargetSupport);
+            codeTargetSupport.addBodyLine("Object[] _pVars = MultiInstanceActivity.execute(" + generateVarArray()
+                + ", " + loopCharacteristics.getCollection() + ", " + loopCharacteristics.getMaxConcurrency() + ", "
+                + instanceMethodRef + ", _pOutputs);");
+            generateVarAssignments(codeTargetSupport, false);
+        } else {
+            generateLoopCode(codeTargetSupport);
+        }
+
+        String outputCollection = loopCharacteristics.getOutputCollection();
+        if (StringUtils.isNotEmpty(outputCollection)) {
+            codeTargetSupport.addBodyLine(outputCollection + " = (" + getVarTypeName(outputCollection)
+                + ")(Object)_pOutputs;");
+        }
+        codeTargetSupport.addBodyLine("}");
+    }
+
+    private boolean isForked() {
+        return !Boolean.TRUE.equals(loopCharacteristics.getSequential()) && forkable && runtime.isReentrant();
+    }
+
+    private void generateLoopCode(CodeTargetSupport codeTargetSupport) {
+        String indexVar = loopCharacteristics.getIndexVar();
+        if (StringUtils.isNotEmpty(indexVar)) {
+            codeTargetSupport.addBodyLine("int " + indexVar + " = -1;");
+        }
+        codeTargetSupport.addBodyLine("for (" + getElementVarClass(codeTargetSupport) + " "
+            + loopCharacteristics.getElementVar() + " : " + loopCharacteristics.getCollection() + ") {");
+        if (StringUtils.isNotEmpty(indexVar)) {
+            codeTargetSupport.addBodyLine(indexVar + "++;");
+        }
+        generateInstanceCode(codeTargetSupport, "_pOutputs.add", "break;");
+        codeTargetSupport.addBodyLine("}");
+    }
+
+    /**
+     * @return reference to the generated instance method
+     */
+    private String generateInstanceMethod(CodeTargetSupport codeTargetSupport) {
+        addImportedType(codeTargetSupport, MultiInstanceActivity.class);
+        addImportedType(codeTargetSupport, MultiInstanceResult.class);
+        String methodName = StringUtils.uncapitalize(activity.getClass().getSimpleName())
+            + StringUtils.capitalize(activity.getId().replaceAll("[^A-Za-z0-9_$]", "_")) + "Instance";
+        ClassTarget classTarget = getClassTarget(codeTargetSupport);
+        MethodTarget method = new MethodTarget();
+        method.setClassTarget(classTarget);
+        method.setName(methodName);
+        method.addModifier(Modifier.PRIVATE);
+        method.setReturnType(ClassWrapper.of("Object[]"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of("Object[]"), "_pVars"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of(Object.class), "_pElement"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of("int"), "_pIndex"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of(MultiInstanceResult.class), "_pInstanceResult"));
+        method.addException(ClassWrapper.of(Exception.class));
+        classTarget.addMethod(method);
+
+        generateVarAssignments(method, true);
+        String elementVarClass = getElementVarClass(codeTargetSupport);
+        method.addBodyLine(elementVarClass + " " + loopCharacteristics.getElementVar() + " = ("
+            + elementVarClass + ")_pElement;");
+        String indexVar = loopCharacteristics.getIndexVar();
+        if (StringUtils.isNotEmpty(indexVar)) {
+            method.addBodyLine("int " + indexVar + " = _pIndex;");
+        }
+        generateInstanceCode(method, "_pInstanceResult.setOutput", "_pInstanceResult.complete();");
+        method.addBodyLine("return " + generateVarArray() + ";");
+        return "this::" + methodName;
+    }
+
+    /**
+     * The output element is the flow var of that name if any, which already is a local of the generated method,
+     * otherwise a local of the instance. Its value is taken into a <code>_p</code> prefixed local, which can't
+     * clash with the flow vars, before being handed to the output method.
+     *
+     * @param outputMethod method taking the output of the instance
+     * @param completion   statement run once the completion condition holds
+     */
+    private void generateInstanceCode(CodeTargetSupport codeTargetSupport, String outputMethod, String completion) {
+        String outputElement = loopCharacteristics.getOutputElement();
+        if (StringUtils.isNotEmpty(outputElement) && !isVar(outputElement)) {
+            codeTargetSupport.addBodyLine("Object " + outputElement + " = null;");
+        }
+        generator.generateCode(codeTargetSupport);
+        if (StringUtils.isNotEmpty(outputElement)) {
+            codeTargetSupport.addBodyLine("Object _pOutputElement = " + outputElement + ";");
+            codeTargetSupport.addBodyLine(outputMethod + "(_pOutputElement);");
+        }
+        Expression completionCondition = loopCharacteristics.getCompletionCondition();
+        if (completionCondition != null && StringUtils.isNotEmpty(completionCondition.getValue())) {
+            codeTargetSupport.addBodyLine("if (" + completionCondition.getValue() + ") {");
+            codeTargetSupport.addBodyLine(completion);
+            codeTargetSupport.addBodyLine("}");
+        }
+    }
+
+    private String getElementVarClass(CodeTargetSupport codeTargetSupport) {
+        String varClass = loopCharacteristics.getElementVarClass();
+        if (varClass == null) {
+            return "Object";
+        }
+        addImportedType(codeTargetSupport, varClass);
+        return ClassWrapper.of(varClass).getShortName();
+    }
+
+    private boolean isVar(String varName) {
+        List<IVar> vars = runtime.getVars();
+        return vars.stream().anyMatch(var -> varName.equals(var.getName()));
+    }
+
+    private String getVarTypeName(String varName) {
+        List<IVar> vars = runtime.getVars();
+        return vars.stream().filter(var -> varName.equals(var.getName()))
+            .map(var -> ClassWrapper.of(var.getDataType()).getName()).findFirst().orElse("List<Object>");
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.generator.impl.bpmn;
+
+import com.alibaba.compileflow.engine.definition.bpmn.ParallelGateway;
+import com.alibaba.compileflow.engine.definition.bpmn.SequenceFlow;
+import com.alibaba.compileflow.engine.definition.common.TransitionNode;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import org.apache.commons.collections4.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A diverging parallel gateway runs all its branches.
+ *
+ * @author yusu
+ */
+public class ParallelGatewayGenerator extends AbstractForkGatewayGenerator<ParallelGateway> {
+
+    public ParallelGatewayGenerator(AbstractProcessRuntime runtime, ParallelGateway flowNode, boolean forkable) {
+        super(runtime, flowNode, forkable);
+    }
+
+    @Override
+    protected void generateForkCode(CodeTargetSupport codeTargetSupport, List<SequenceFlow> transitions) {
+        List<List<TransitionNode>> branches = transitions.stream().map(this::getBranchNodes)
+            .filter(CollectionUtils::isNotEmpty).collect(Collectors.toList());
+        if (!isForked() || branches.size() < 2) {
+            for (List<TransitionNode> branchNodes : branches) {
+                codeTargetSupport.addBodyLine("{");
+                executeNodes(branchNodes, codeTargetSupport);
+                codeTargetSupport.addBodyLine("}");
+            }
+            return;
+        }
+
+        List<String> branchMethodRefs = new ArrayList<>();
+        for (int i = 0; i < branches.size(); i++) {
+            branchMethodRefs.add(generateBranchMethod(codeTargetSupport, i, branches.get(i)));
+        }
+        codeTargetSupport.addBodyLine("{");
+        codeTargetSupport.addBodyLine("Object[] _pVars = ParallelBranches.execute(" + generateVarArray() + ", "
+            + String.join(", ", branchMethodRefs) + ");");
+        generateVarAssignments(codeTargetSupport, false);
+        codeTargetSupport.addBodyLine("}");
+    }
+
+}
@@ -16,8 +16,6 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.generator.impl.bpmn;
 
-import com.alibaba.compileflow.engine.ProcessEngineFactory;
-import com.alibaba.compileflow.engine.common.utils.DataType;
 import com.alibaba.compileflow.engine.definition.bpmn.SubProcess;
 import com.alibaba.compileflow.engine.definition.common.var.IVar;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
@@ -41,8 +39,6 @@ public class SubProcessGenerator extends AbstractBpmnNodeGenerator<SubProcess> {
 
     @Override
     public void generateCode(CodeTargetSupport codeTargetSupport) {
-        addImportedType(codeTargetSupport, ProcessEngineFactory.class);
-
         List<IVar> params = flowNode.getParamVars();
         IVar returnVar = flowNode.getReturnVar();
         generateNodeComment(codeTargetSupport);
@@ -50,27 +46,7 @@ public class SubProcessGenerator extends AbstractBpmnNodeGenerator<SubProcess> {
 
         if (StringUtils.isNotEmpty(flowNode.getSubProcessCode())
             && CollectionUtils.isNotEmpty(flowNode.getAllNodes())) {
-            codeTargetSupport.addBodyLine("Map<String, Object> nfSubProcessContext = new HashMap<>();");
-            for (IVar param : params) {
-                String var = param.getContextVarName() != null ?
-                    DataType.getVarTransferString(getVarType(param.getContextVarName()),
-                        DataType.getJavaClass(param.getDataType()), param.getContextVarName())
-                    : DataType.getDefaultValueString(DataType.getJavaClass(param.getDataType()),
-                        param.getDefaultValue());
-
-                codeTargetSupport.addBodyLine("nfSubProcessContext.put(\"" + param.getName() + "\", " + var + ");");
-            }
-            String noReturnCode = "(ProcessEngineFactory.getProcessEngine()).start(\""
-                + flowNode.getSubProcessCode() + "\", nfSubProcessContext)";
-
-            if (returnVar != null) {
-                String code = returnVar.getContextVarName()
-                    + " = (" + DataType.getJavaObjectType(returnVar.getDataType()) + ")"
-                    + "(" + noReturnCode + ").get(\"" + returnVar.getName() + "\");";
-                codeTargetSupport.addBodyLine(code);
-            } else {
-                codeTargetSupport.addBodyLine(noReturnCode + ";");
-            }
+            generateSubFlowCode(codeTargetSupport, flowNode.getSubProcessCode(), params, returnVar);
         } else {
             GeneratorFactory.getInstance().getContainerGenerator(flowNode, runtime).generateCode(codeTargetSupport);
         }
@@ -17,14 +17,15 @@
 package com.alibaba.compileflow.engine.process.preruntime.generator.impl.container;
 
 import com.alibaba.compileflow.engine.definition.common.EndElement;
+import com.alibaba.compileflow.engine.definition.common.FlowModel;
 import com.alibaba.compileflow.engine.definition.common.GatewayElement;
 import com.alibaba.compileflow.engine.definition.common.NodeContainer;
 import com.alibaba.compileflow.engine.definition.common.TransitionNode;
-import com.alibaba.compileflow.engine.process.preruntime.generator.Generator;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
 import org.apache.commons.collections4.CollectionUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -45,17 +46,22 @@ public class ContainerGenerator extends AbstractContainerGenerator {
     }
 
     private void generateCode(TransitionNode flowNode, CodeTargetSupport codeTargetSupport) {
-        if (flowNode instanceof EndElement) {
-            return;
-        }
-
-        Generator generator = getGenerator(flowNode);
-        generator.generateCode(codeTargetSupport);
-        if (flowNode instanceof GatewayElement) {
-            return;
+        List<TransitionNode> flowNodes = new ArrayList<>();
+        List<TransitionNode> outgoingNodes = null;
+        while (!(flowNode instanceof EndElement)) {
+            flowNodes.add(flowNode);
+            if (flowNode instanceof GatewayElement) {
+                break;
+            }
+            List<TransitionNode> nextNodes = getOutingNodes(flowNode);
+            if (CollectionUtils.size(nextNodes) != 1) {
+                outgoingNodes = nextNodes;
+                break;
+            }
+            flowNode = nextNodes.get(0);
         }
+        new NodeSequenceGenerator(runtime, flowNodes, isForkable()).generateCode(codeTargetSupport);
 
-        List<TransitionNode> outgoingNodes = getOutingNodes(flowNode);
         if (CollectionUtils.isNotEmpty(outgoingNodes)) {
             for (TransitionNode outgoingNode : outgoingNodes) {
                 generateCode(outgoingNode, codeTargetSupport);
@@ -63,6 +69,13 @@ public class ContainerGenerator extends AbstractContainerGenerator {
         }
     }
 
+    /**
+     * Nodes of the flow itself may be forked, nodes of a loop may not, see {@link NodeSequenceGenerator}.
+     */
+    private boolean isForkable() {
+        return nodeContainer instanceof FlowModel;
+    }
+
     private List<TransitionNode> getOutingNodes(TransitionNode flowNode) {
         return flowNode.getOutgoingNodes();
     }
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.process.preruntime.generator.impl.container;
+
+import com.alibaba.compileflow.engine.common.utils.DataType;
+import com.alibaba.compileflow.engine.common.utils.VarUtils;
+import com.alibaba.compileflow.engine.definition.common.TransitionNode;
+import com.alibaba.compileflow.engine.definition.common.action.HasAction;
+import com.alibaba.compileflow.engine.definition.common.action.IAction;
+import com.alibaba.compileflow.engine.definition.common.action.IActionHandle;
+import com.alibaba.compileflow.engine.definition.common.action.impl.ScriptActionHandle;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
+import com.alibaba.compileflow.engine.definition.tbbpm.AutoTaskNode;
+import com.alibaba.compileflow.engine.definition.tbbpm.ScriptTaskNode;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.RuntimeOption;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.MethodTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.impl.AbstractRuntimeGenerator;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.ParallelBranches;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Straight sequence of nodes, e.g. the nodes of a container up to its first gateway, or the nodes of a branch.
+ * <p>
+ * With {@link RuntimeOption#isAutoParallelEnabled()} the sequence is split into stages by the data dependencies
+ * of its nodes, derived from the vars bound by their actions: a node reads the flow vars of its params, writes the
+ * flow var of its return var, and writes the flow vars of params not of an immutable type as well, since the action
+ * may change them in place. Nodes of a stage don't depend on each other and are forked, see {@link ParallelBranches},
+ * stages run one after another. A node with unknown side effects, i.e. anything but an auto or script task whose
+ * action binds flow vars only and has a return var, is a barrier keeping its place in the sequence. So is an action
+ * calling code, e.g. a java or spring bean one, unless it's marked {@link IAction#isParallelizable() parallelizable}:
+ * the called method may change more than its vars.
+ * <p>
+ * Like the branches of a parallel gateway, nodes are forked only if the flow is
+ * {@link AbstractProcessRuntime#isReentrant() reentrant} and the sequence is not in a loop.
+ *
+ * @author yusu
+ */
+public class NodeSequenceGenerator extends AbstractRuntimeGenerator {
+
+    private final List<TransitionNode> flowNodes;
+
+    private final boolean forkable;
+
+    public NodeSequenceGenerator(AbstractProcessRuntime runtime, List<TransitionNode> flowNodes, boolean forkable) {
+        super(runtime);
+        this.flowNodes = flowNodes;
+        this.forkable = forkable;
+    }
+
+    @Override
+    public void generateCode(CodeTargetSupport codeTargetSupport) {
+        if (CollectionUtils.isEmpty(flowNodes)) {
+            return;
+        }
+        if (!forkable || !runtime.getRuntimeOption().isAutoParallelEnabled() || !runtime.isReentrant()) {
+            executeNodes(flowNodes, codeTargetSupport);
+            return;
+        }
+
+        List<TransitionNode> segment = new ArrayList<>();
+        List<Footprint> footprints = new ArrayList<>();
+        for (TransitionNode flowNode : flowNodes) {
+            Footprint footprint = getFootprint(flowNode);
+            if (footprint != null) {
+                segment.add(flowNode);
+                footprints.add(footprint);
+                continue;
+            }
+            generateStages(segment, footprints, codeTargetSupport);
+            segment.clear();
+            footprints.clear();
+            executeNodes(flowNode, codeTargetSupport);
+        }
+        generateStages(segment, footprints, codeTargetSupport);
+    }
+
+    /**
+     * A node runs in the stage following the last stage of the earlier nodes it depends on, so that each node only
+     * sees the writes of the nodes it depends on, as it would in the sequence.
+     */
+    private void generateStages(List<TransitionNode> segment, List<Footprint> footprints,
+                                CodeTargetSupport codeTargetSupport) {
+        int[] stageIndexes = new int[segment.size()];
+        int stageCount = 0;
+        for (int i = 0; i < segment.size(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (footprints.get(i).dependsOn(footprints.get(j))) {
+                    stageIndexes[i] = Math.max(stageIndexes[i], stageIndexes[j] + 1);
+                }
+            }
+            stageCount = Math.max(stageCount, stageIndexes[i] + 1);
+        }
+
+        for (int stageIndex = 0; stageIndex < stageCount; stageIndex++) {
+            List<TransitionNode> stage = new ArrayList<>();
+            for (int i = 0; i < segment.size(); i++) {
+                if (stageIndexes[i] == stageIndex) {
+                    stage.add(segment.get(i));
+                }
+            }
+            if (stage.size() == 1) {
+                executeNodes(stage.get(0), codeTargetSupport);
+            } else {
+                generateForkCode(stage, codeTargetSupport);
+            }
+        }
+    }
+
+    private void generateForkCode(List<TransitionNode> stage, CodeTargetSupport codeTargetSupport) {
+        List<String> branchMethodRefs = new ArrayList<>();
+        for (TransitionNode flowNode : stage) {
+            String methodName = getBranchMethodName(flowNode, codeTargetSupport);
+            branchMethodRefs.add(generateBranchMethod(codeTargetSupport, methodName,
+                method -> executeNodes(flowNode, method)));
+        }
+        codeTargetSupport.addBodyLine("{");
+        codeTargetSupport.addBodyLine("Object[] _pVars = ParallelBranches.execute(" + generateVarArray() + ", "
+            + String.join(", ", branchMethodRefs) + ");");
+        generateVarAssignments(codeTargetSupport, false);
+        codeTargetSupport.addBodyLine("}");
+    }
+
+    private String getBranchMethodName(TransitionNode flowNode, CodeTargetSupport codeTargetSupport) {
+        String methodName = StringUtils.uncapitalize(flowNode.getClass().getSimpleName())
+            + StringUtils.capitalize(flowNode.getId().replaceAll("[^A-Za-z0-9_$]", "_")) + "Branch";
+        Set<String> methodNames = getClassTarget(codeTargetSupport).getMethods().stream()
+            .map(MethodTarget::getName).collect(Collectors.toSet());
+        String uniqueName = methodName;
+        for (int i = 1; methodNames.contains(uniqueName); i++) {
+            uniqueName = methodName + i;
+        }
+        return uniqueName;
+    }
+
+    private Footprint getFootprint(TransitionNode flowNode) {
+        if (!(flowNode instanceof AutoTaskNode) && !(flowNode instanceof ScriptTaskNode)) {
+            return null;
+        }
+        IAction action = ((HasAction) flowNode).getAction();
+        IActionHandle actionHandle = action == null ? null : action.getActionHandle();
+        if (actionHandle == null || CollectionUtils.isEmpty(actionHandle.getReturnVars())) {
+            return null;
+        }
+        if (!(actionHandle instanceof ScriptActionHandle) && !action.isParallelizable()) {
+            return null;
+        }
+
+        List<IVar> vars = runtime.getVars();
+        Set<String> varNames = vars.stream().map(IVar::getName).collect(Collectors.toSet());
+        Footprint footprint = new Footprint();
+        for (IVar param : actionHandle.getParamVars()) {
+            String contextVarName = param.getContextVarName();
+            if (contextVarName == null) {
+                continue;
+            }
+            if (!isFlowVar(contextVarName, varNames)) {
+                return null;
+            }
+            footprint.reads.add(contextVarName);
+            if (!isImmutableType(param.getDataType())) {
+                footprint.writes.add(contextVarName);
+            }
+        }
+        for (IVar returnVar : actionHandle.getReturnVars()) {
+            String contextVarName = returnVar.getContextVarName();
+            if (contextVarName == null) {
+                continue;
+            }
+            if (!isFlowVar(contextVarName, varNames)) {
+                return null;
+            }
+            footprint.writes.add(contextVarName);
+        }
+        return footprint;
+    }
+
+    private boolean isFlowVar(String contextVarName, Set<String> varNames) {
+        return VarUtils.isLegalVarName(contextVarName) && varNames.contains(contextVarName);
+    }
+
+    private boolean isImmutableType(String dataType) {
+        if (dataType == null) {
+            return false;
+        }
+        Class<?> clazz;
+        try {
+            clazz = DataType.getJavaClass(dataType);
+        } catch (Exception e) {
+            return false;
+        }
+        return ClassUtils.isPrimitiveOrWrapper(clazz) || clazz == String.class || clazz == BigDecimal.class
+            || clazz == BigInteger.class || clazz.isEnum();
+    }
+
+    private void executeNodes(List<TransitionNode> flowNodes, CodeTargetSupport codeTargetSupport) {
+        flowNodes.forEach(flowNode -> executeNodes(flowNode, codeTargetSupport));
+    }
+
+    private void executeNodes(TransitionNode flowNode, CodeTargetSupport codeTargetSupport) {
+        runtime.getNodeGeneratorProvider().getGenerator(flowNode).generateCode(codeTargetSupport);
+    }
+
+    /**
+     * Flow vars read and written by a node.
+     */
+    private static class Footprint {
+
+        private final Set<String> reads = new HashSet<>();
+
+        private final Set<String> writes = new HashSet<>();
+
+        private boolean dependsOn(Footprint earlier) {
+            return intersects(writes, earlier.reads) || intersects(writes, earlier.writes)
+                || intersects(reads, earlier.writes);
+        }
+
+        private static boolean intersects(Set<String> a, Set<String> b) {
+            return a.stream().anyMatch(b::contains);
+        }
+
+    }
+
+}
@@ -22,8 +22,8 @@ import com.alibaba.compileflow.engine.definition.tbbpm.BaseNode;
 import com.alibaba.compileflow.engine.definition.tbbpm.DecisionNode;
 import com.alibaba.compileflow.engine.definition.tbbpm.Transition;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.process.preruntime.generator.impl.container.NodeSequenceGenerator;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.List;
@@ -35,8 +35,18 @@ import java.util.Map;
  */
 public class DecisionGenerator extends AbstractTbbpmActionNodeGenerator<DecisionNode> {
 
+    private final boolean forkable;
+
     public DecisionGenerator(AbstractProcessRuntime runtime, DecisionNode flowNode) {
+        this(runtime, flowNode, false);
+    }
+
+    /**
+     * @param forkable whether independent nodes of the branches may be forked, see {@link NodeSequenceGenerator}
+     */
+    public DecisionGenerator(AbstractProcessRuntime runtime, DecisionNode flowNode, boolean forkable) {
         super(runtime, flowNode);
+        this.forkable = forkable;
     }
 
     @Override
@@ -113,10 +123,7 @@ public class DecisionGenerator extends AbstractTbbpmActionNodeGenerator<Decision
     }
 
     private void executeNodes(List<TransitionNode> flowNodes, CodeTargetSupport codeTargetSupport) {
-        if (CollectionUtils.isNotEmpty(flowNodes)) {
-            flowNodes.stream().map(flowNode -> runtime.getNodeGeneratorProvider().getGenerator(flowNode))
-                .forEach(generator -> generator.generateCode(codeTargetSupport));
-        }
+        new NodeSequenceGenerator(runtime, flowNodes, forkable).generateCode(codeTargetSupport);
     }
 
 }
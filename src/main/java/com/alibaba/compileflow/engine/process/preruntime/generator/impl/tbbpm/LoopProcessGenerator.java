@@ -17,42 +17,83 @@
 package com.alibaba.compileflow.engine.process.preruntime.generator.impl.tbbpm;
 
 import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.definition.common.NodeContainer;
+import com.alibaba.compileflow.engine.definition.common.action.HasAction;
+import com.alibaba.compileflow.engine.definition.common.action.IAction;
+import com.alibaba.compileflow.engine.definition.common.action.IActionHandle;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
+import com.alibaba.compileflow.engine.definition.tbbpm.FlowNode;
 import com.alibaba.compileflow.engine.definition.tbbpm.LoopProcessNode;
+import com.alibaba.compileflow.engine.definition.tbbpm.SubBpmNode;
 import com.alibaba.compileflow.engine.common.ClassWrapper;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.ClassTarget;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.MethodTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.ParamTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.constansts.Modifier;
 import com.alibaba.compileflow.engine.process.preruntime.generator.factory.GeneratorFactory;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.MultiInstanceResult;
+import com.alibaba.compileflow.engine.runtime.instance.ParallelLoop;
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
+ * A parallel foreach loop runs its iterations concurrently, see {@link ParallelLoop}, on the same conditions as the
+ * branches of a gateway: the flow is {@link AbstractProcessRuntime#isReentrant() reentrant} and the loop is not
+ * nested in another one. Otherwise it runs sequentially, with the same result. So does a loop whose actions read a
+ * flow var the loop writes, e.g. <code>total = total + price</code>, its iterations depend on each other.
+ *
  * @author pin
  * @author yusu
  */
 public class LoopProcessGenerator extends AbstractTbbpmNodeGenerator<LoopProcessNode> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoopProcessGenerator.class);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
     private static final String LOOP_FOR = "loop";
     private static final String LOOP_WHILE = "while";
 
+    private final boolean forkable;
+
     public LoopProcessGenerator(AbstractProcessRuntime runtime,
                                 LoopProcessNode flowNode) {
+        this(runtime, flowNode, false);
+    }
+
+    public LoopProcessGenerator(AbstractProcessRuntime runtime, LoopProcessNode flowNode, boolean forkable) {
         super(runtime, flowNode);
+        this.forkable = forkable;
     }
 
     @Override
     public void generateCode(CodeTargetSupport codeTargetSupport) {
         String loopType = flowNode.getLoopType();
         String index = flowNode.getIndexVarName();
-        if (StringUtils.isEmpty(loopType) || loopType.equals(LOOP_FOR)) {
+        boolean foreach = StringUtils.isEmpty(loopType) || loopType.equals(LOOP_FOR);
+        if (foreach && flowNode.isParallel() && forkable && runtime.isReentrant()) {
+            Set<String> carriedVarNames = getCarriedVarNames();
+            if (carriedVarNames.isEmpty()) {
+                generateParallelCode(codeTargetSupport);
+                return;
+            }
+            LOGGER.warn("Iterations of parallel loop read vars they write, run it sequentially, code is "
+                + runtime.getCode() + ", node is " + flowNode.getId() + ", vars are " + carriedVarNames);
+        }
+        if (foreach) {
             String collectionVarName = flowNode.getCollectionVarName();
             String varName = flowNode.getVariableName();
-            String varClass = flowNode.getVariableClass();
-            if (varClass != null) {
-                addImportedType(codeTargetSupport, varClass);
-                ClassWrapper classWrapper = ClassWrapper.of(varClass);
-                varClass = classWrapper.getShortName();
-            } else {
-                varClass = "Object";
-            }
+            String varClass = getVariableClass(codeTargetSupport);
             String foreachCondition = "for (" + varClass + " " + varName + " : " + collectionVarName + ") {";
             if (StringUtils.isNotEmpty(index)) {
                 codeTargetSupport.addBodyLine("int " + index + " = -1;");
@@ -79,4 +120,112 @@ public class LoopProcessGenerator extends AbstractTbbpmNodeGenerator<LoopProcess
         codeTargetSupport.addBodyLine("}");
     }
 
+    private void generateParallelCode(CodeTargetSupport codeTargetSupport) {
+        addImportedType(codeTargetSupport, ParallelLoop.class);
+        addImportedType(codeTargetSupport, MultiInstanceResult.class);
+        String methodName = StringUtils.uncapitalize(flowNode.getClass().getSimpleName())
+            + StringUtils.capitalize(flowNode.getId().replaceAll("[^A-Za-z0-9_$]", "_")) + "Iteration";
+        ClassTarget classTarget = getClassTarget(codeTargetSupport);
+        MethodTarget method = new MethodTarget();
+        method.setClassTarget(classTarget);
+        method.setName(methodName);
+        method.addModifier(Modifier.PRIVATE);
+        method.setReturnType(ClassWrapper.of("Object[]"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of("Object[]"), "_pVars"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of(Object.class), "_pElement"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of("int"), "_pIndex"));
+        method.addParameter(ParamTarget.of(ClassWrapper.of(MultiInstanceResult.class), "_pIteration"));
+        method.addException(ClassWrapper.of(Exception.class));
+        classTarget.addMethod(method);
+
+        generateVarAssignments(method, true);
+        String varClass = getVariableClass(codeTargetSupport);
+        method.addBodyLine(varClass + " " + flowNode.getVariableName() + " = (" + varClass + ")_pElement;");
+        if (StringUtils.isNotEmpty(flowNode.getIndexVarName())) {
+            method.addBodyLine("int " + flowNode.getIndexVarName() + " = _pIndex;");
+        }
+        // the body is a loop run once, a break leaves it skipping its update, a continue doesn't
+        method.addBodyLine("boolean _pBreak = true;");
+        method.addBodyLine("for (boolean _pOnce = true; _pOnce; _pBreak = false) {");
+        method.addBodyLine("_pOnce = false;");
+        GeneratorFactory.getInstance().getContainerGenerator(flowNode, runtime).generateCode(method);
+        method.addBodyLine("}");
+        method.addBodyLine("if (_pBreak) {");
+        method.addBodyLine("_pIteration.complete();");
+        method.addBodyLine("}");
+        method.addBodyLine("return " + generateVarArray() + ";");
+
+        codeTargetSupport.addBodyLine("{");
+        codeTargetSupport.addBodyLine("Object[] _pVars = ParallelLoop.execute(" + generateVarArray() + ", "
+            + flowNode.getCollectionVarName() + ", " + flowNode.getMaxConcurrency() + ", this::" + methodName + ");");
+        generateVarAssignments(codeTargetSupport, false);
+        codeTargetSupport.addBodyLine("}");
+    }
+
+    /**
+     * @return flow vars both read and written by the actions of the loop, an iteration would miss the writes of the
+     * iterations running concurrently
+     */
+    private Set<String> getCarriedVarNames() {
+        Set<String> reads = new HashSet<>();
+        Set<String> writes = new HashSet<>();
+        collectVarNames(flowNode, reads, writes);
+        List<IVar> vars = runtime.getVars();
+        Set<String> varNames = vars.stream().map(IVar::getName).collect(Collectors.toSet());
+        reads.retainAll(writes);
+        reads.retainAll(varNames);
+        return reads;
+    }
+
+    private void collectVarNames(NodeContainer<FlowNode> container, Set<String> reads, Set<String> writes) {
+        for (FlowNode node : container.getAllNodes()) {
+            if (node instanceof HasAction) {
+                IAction action = ((HasAction) node).getAction();
+                IActionHandle actionHandle = action == null ? null : action.getActionHandle();
+                if (actionHandle != null) {
+                    collectVarNames(actionHandle.getParamVars(), actionHandle.getReturnVars(), reads, writes);
+                }
+            } else if (node instanceof SubBpmNode) {
+                SubBpmNode subBpmNode = (SubBpmNode) node;
+                collectVarNames(subBpmNode.getParamVars(), subBpmNode.getReturnVars(), reads, writes);
+            }
+            if (node instanceof NodeContainer) {
+                collectVarNames((NodeContainer<FlowNode>) node, reads, writes);
+            }
+        }
+    }
+
+    /**
+     * Params may be expressions, every identifier in them counts as read.
+     */
+    private void collectVarNames(List<IVar> paramVars, List<IVar> returnVars, Set<String> reads,
+                                 Set<String> writes) {
+        if (paramVars != null) {
+            for (IVar paramVar : paramVars) {
+                if (paramVar.getContextVarName() != null) {
+                    Matcher matcher = IDENTIFIER.matcher(paramVar.getContextVarName());
+                    while (matcher.find()) {
+                        reads.add(matcher.group());
+                    }
+                }
+            }
+        }
+        if (returnVars != null) {
+            for (IVar returnVar : returnVars) {
+                if (returnVar.getContextVarName() != null) {
+                    writes.add(returnVar.getContextVarName());
+                }
+            }
+        }
+    }
+
+    private String getVariableClass(CodeTargetSupport codeTargetSupport) {
+        String varClass = flowNode.getVariableClass();
+        if (varClass == null) {
+            return "Object";
+        }
+        addImportedType(codeTargetSupport, varClass);
+        return ClassWrapper.of(varClass).getShortName();
+    }
+
 }
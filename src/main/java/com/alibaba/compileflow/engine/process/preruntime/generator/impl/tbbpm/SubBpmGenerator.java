@@ -16,15 +16,10 @@
  */
 package com.alibaba.compileflow.engine.process.preruntime.generator.impl.tbbpm;
 
-import com.alibaba.compileflow.engine.ProcessEngineFactory;
-import com.alibaba.compileflow.engine.common.utils.DataType;
-import com.alibaba.compileflow.engine.definition.common.var.IVar;
 import com.alibaba.compileflow.engine.definition.tbbpm.SubBpmNode;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
 
-import java.util.List;
-
 /**
  * @author pin
  * @author yusu
@@ -38,36 +33,9 @@ public class SubBpmGenerator extends AbstractTbbpmNodeGenerator<SubBpmNode> {
 
     @Override
     public void generateCode(CodeTargetSupport codeTargetSupport) {
-        addImportedType(codeTargetSupport, ProcessEngineFactory.class);
-
-        List<IVar> params = flowNode.getParamVars();
-        IVar returnVar = flowNode.getReturnVar();
         generateNodeComment(codeTargetSupport);
-        codeTargetSupport.addBodyLine("{");
-        codeTargetSupport.addBodyLine("Map<String, Object> _subBpmContext = new HashMap<>();");
-        for (IVar param : params) {
-            String var = param.getContextVarName() != null ?
-                DataType.getVarTransferString(getVarType(param.getContextVarName()),
-                    DataType.getJavaClass(param.getDataType()), param.getContextVarName())
-                : DataType.getDefaultValueString(DataType.getJavaClass(param.getDataType()),
-                    param.getDefaultValue());
-
-            codeTargetSupport.addBodyLine("_subBpmContext.put(\"" + param.getName() + "\", " + var + ");");
-        }
-
-        String noReturnCode = "ProcessEngineFactory.getProcessEngine().start(\""
-            + flowNode.getSubBpmCode() + "\", _subBpmContext)";
-
-        if (returnVar != null) {
-            String code = returnVar.getContextVarName() + " = ("
-                + DataType.getJavaObjectType(returnVar.getDataType()) + ")" + "(" + noReturnCode + ").get(\""
-                + returnVar.getName() + "\");";
-            codeTargetSupport.addBodyLine(code);
-        } else {
-            codeTargetSupport.addBodyLine(noReturnCode + ";");
-        }
-
-        codeTargetSupport.addBodyLine("}");
+        generateSubFlowCode(codeTargetSupport, flowNode.getSubBpmCode(), flowNode.getParamVars(),
+            flowNode.getReturnVar());
     }
 
 }
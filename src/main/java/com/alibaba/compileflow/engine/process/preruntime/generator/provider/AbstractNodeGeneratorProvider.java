@@ -17,8 +17,13 @@
 package com.alibaba.compileflow.engine.process.preruntime.generator.provider;
 
 import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.definition.common.BreakElement;
+import com.alibaba.compileflow.engine.definition.common.EndElement;
 import com.alibaba.compileflow.engine.definition.common.Node;
+import com.alibaba.compileflow.engine.definition.common.StartElement;
+import com.alibaba.compileflow.engine.definition.common.TransitionNode;
 import com.alibaba.compileflow.engine.process.preruntime.generator.Generator;
+import com.alibaba.compileflow.engine.process.preruntime.generator.impl.CheckpointGenerator;
 import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
 import org.apache.commons.lang3.StringUtils;
 
@@ -52,9 +57,20 @@ public abstract class AbstractNodeGeneratorProvider implements NodeGeneratorProv
             throw new CompileFlowException("No generator found, node id is empty");
         }
         generator = preProcess(node, generator);
+        if (isCheckpoint(node)) {
+            generator = new CheckpointGenerator(runtime, generator);
+        }
         registerGenerator(node.getId(), generator);
     }
 
+    /**
+     * Flows check cancellation before every node doing some work.
+     */
+    protected boolean isCheckpoint(Node node) {
+        return node instanceof TransitionNode && !(node instanceof StartElement) && !(node instanceof EndElement)
+            && !(node instanceof BreakElement);
+    }
+
     protected abstract Generator preProcess(Node node, Generator generator);
 
     private Generator getGenerator(String id) {
@@ -18,7 +18,6 @@ package com.alibaba.compileflow.engine.process.preruntime.validator.impl;
 
 import com.alibaba.compileflow.engine.definition.bpmn.*;
 import com.alibaba.compileflow.engine.process.preruntime.validator.ValidateMessage;
-import org.apache.commons.collections4.CollectionUtils;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -38,13 +37,8 @@ public class BpmnModelValidator extends AbstractFlowModelValidator<BpmnModel>
 
     private void validateGatewayNode(BpmnModel flowModel, List<ValidateMessage> validateMessages) {
         List<FlowNode> gatewayNodes = flowModel.getAllNodes().stream()
-            .filter(node -> node instanceof ExclusiveGateway || node instanceof InclusiveGateway
-                || node instanceof EventBasedGateway)
+            .filter(node -> node instanceof ExclusiveGateway || node instanceof EventBasedGateway)
             .collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(gatewayNodes)) {
-            return;
-        }
-
         for (FlowNode gatewayNode : gatewayNodes) {
             if (gatewayNode.getIncomingFlows().size() < 1) {
                 validateMessages.add(ValidateMessage.fail(
@@ -60,18 +54,16 @@ public class BpmnModelValidator extends AbstractFlowModelValidator<BpmnModel>
             }
         }
 
-        List<FlowNode> parallelGatewayNodes = flowModel.getAllNodes().stream()
-            .filter(node -> node instanceof ParallelGateway)
+        // forking gateways are either diverging or converging
+        List<FlowNode> forkGatewayNodes = flowModel.getAllNodes().stream()
+            .filter(node -> node instanceof ParallelGateway || node instanceof InclusiveGateway)
             .collect(Collectors.toList());
-        if (CollectionUtils.isEmpty(parallelGatewayNodes)) {
-            return;
-        }
-
-        for (FlowNode gatewayNode : gatewayNodes) {
-            if (!isValidParallelGateway(gatewayNode)) {
+        for (FlowNode gatewayNode : forkGatewayNodes) {
+            if (!isValidForkGateway(gatewayNode)) {
                 validateMessages.add(ValidateMessage.fail(
-                    "ParallelGateway node should have one incoming transition and more than one outgoing transition "
-                        + "or one outgoing transition and more than one incoming transition , but found "
+                    gatewayNode.getClass().getSimpleName() + " node should have one incoming transition and more "
+                        + "than one outgoing transition or one outgoing transition and more than one incoming "
+                        + "transition , but found "
                         + gatewayNode.getIncomingFlows().size() + " incoming transition and "
                         + gatewayNode.getOutgoingFlows().size()
                         + " outgoing transition, please check this gateway node, id is "
@@ -80,7 +72,7 @@ public class BpmnModelValidator extends AbstractFlowModelValidator<BpmnModel>
         }
     }
 
-    private boolean isValidParallelGateway(FlowNode gatewayNode) {
+    private boolean isValidForkGateway(FlowNode gatewayNode) {
         return (gatewayNode.getIncomingFlows().size() == 1 && gatewayNode.getOutgoingFlows().size() > 1)
             || (gatewayNode.getOutgoingFlows().size() == 1 && gatewayNode.getIncomingFlows().size() > 1);
     }
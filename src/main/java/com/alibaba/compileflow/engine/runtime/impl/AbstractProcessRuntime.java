@@ -21,6 +21,7 @@ import com.alibaba.compileflow.engine.ProcessEngineFactory;
 import com.alibaba.compileflow.engine.common.ClassWrapper;
 import com.alibaba.compileflow.engine.common.CompileFlowException;
 import com.alibaba.compileflow.engine.common.Lifecycle;
+import com.alibaba.compileflow.engine.common.SingleFlightCache;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
 import com.alibaba.compileflow.engine.common.constants.ProcessType;
 import com.alibaba.compileflow.engine.common.utils.ClassUtils;
@@ -32,8 +33,11 @@ import com.alibaba.compileflow.engine.definition.common.Node;
 import com.alibaba.compileflow.engine.definition.common.NodeContainer;
 import com.alibaba.compileflow.engine.definition.common.TransitionNode;
 import com.alibaba.compileflow.engine.definition.common.var.IVar;
+import com.alibaba.compileflow.engine.definition.tbbpm.TbbpmModel;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.Compiler;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.RuntimeOption;
 import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.CompilerImpl;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.FlowClassLoader;
 import com.alibaba.compileflow.engine.process.preruntime.generator.Generator;
 import com.alibaba.compileflow.engine.process.preruntime.generator.bean.BeanProvider;
 import com.alibaba.compileflow.engine.process.preruntime.generator.bean.SpringApplicationContextProvider;
@@ -54,17 +58,32 @@ import com.alibaba.compileflow.engine.process.preruntime.validator.FlowModelVali
 import com.alibaba.compileflow.engine.process.preruntime.validator.ValidateMessage;
 import com.alibaba.compileflow.engine.process.preruntime.validator.factory.ModelValidatorFactory;
 import com.alibaba.compileflow.engine.runtime.ProcessRuntime;
+import com.alibaba.compileflow.engine.runtime.instance.FlowInstance;
+import com.alibaba.compileflow.engine.runtime.instance.FlowInstanceFactory;
 import com.alibaba.compileflow.engine.runtime.instance.ProcessInstance;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -73,12 +92,20 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractProcessRuntime<T extends FlowModel> implements ProcessRuntime, Lifecycle {
 
-    private static final Compiler COMPILER = new CompilerImpl();
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractProcessRuntime.class);
+
     private static final AtomicBoolean inited = new AtomicBoolean(false);
+    private static final ClassValue<FlowInstanceFactory<?>> INSTANCE_FACTORIES =
+        new ClassValue<FlowInstanceFactory<?>>() {
+            @Override
+            protected FlowInstanceFactory<?> computeValue(Class<?> type) {
+                return getInstanceFactory(type);
+            }
+        };
     protected final Map<String, List<TransitionNode>> followingGraph = new HashMap<>();
     protected final Map<String, List<TransitionNode>> branchGraph = new HashMap<>();
-    private final Map<String, String> javaCodeCache = new ConcurrentHashMap<>();
-    private final Map<String, Class<?>> compiledClassCache = new ConcurrentHashMap<>();
+    private final SingleFlightCache<String, String> javaCodeCache = new SingleFlightCache<>();
+    private final SingleFlightCache<String, Class<?>> compiledClassCache = new SingleFlightCache<>();
     protected T flowModel;
     protected ClassTarget classTarget;
     protected NodeGeneratorProvider nodeGeneratorProvider;
@@ -89,6 +116,13 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
     private final List<IVar> paramVars;
     private final List<IVar> returnVars;
     private final List<IVar> innerVars;
+    private ProcessInstance interpreter;
+    private final AtomicLong interpretedCount = new AtomicLong();
+    private final AtomicBoolean promoted = new AtomicBoolean(false);
+    private final Set<String> inlinedCodes = ConcurrentHashMap.newKeySet();
+    private boolean subFlowInlining = true;
+    protected RuntimeOption runtimeOption = new RuntimeOption();
+    private ProcessEngine<?> processEngine;
 
     @SuppressWarnings("unchecked")
     public AbstractProcessRuntime(T flowModel) {
@@ -107,6 +141,27 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
         this.classTarget = new ClassTarget();
     }
 
+    /**
+     * Restore a runtime from an already compiled flow class, e.g. one loaded from the class cache. Such a runtime
+     * executes the flow without parsing it, but can't generate code.
+     */
+    protected AbstractProcessRuntime(String code, Class<?> compiledClass) {
+        this.code = code;
+        this.id = null;
+        this.name = null;
+        this.vars = Collections.emptyList();
+        this.paramVars = Collections.emptyList();
+        this.returnVars = Collections.emptyList();
+        this.innerVars = Collections.emptyList();
+        this.classTarget = new ClassTarget();
+        this.classTarget.setFullName(compiledClass.getName());
+        this.compiledClassCache.put(code, compiledClass);
+    }
+
+    public String getCode() {
+        return code;
+    }
+
     public String getName() {
         return name;
     }
@@ -115,6 +170,36 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
         return vars;
     }
 
+    public String getClassName() {
+        return classTarget.getFullName();
+    }
+
+    /**
+     * Options of the engine owning the runtime, to be set before {@link #init()}.
+     */
+    public void setRuntimeOption(RuntimeOption runtimeOption) {
+        this.runtimeOption = runtimeOption;
+    }
+
+    public RuntimeOption getRuntimeOption() {
+        return runtimeOption;
+    }
+
+    /**
+     * Engine owning the runtime, which inlined sub flows are loaded through, to be set before {@link #init()}.
+     */
+    public void setProcessEngine(ProcessEngine<?> processEngine) {
+        this.processEngine = processEngine;
+    }
+
+    /**
+     * @return engine owning the runtime, the shared stateless engine of the flow model type if not set
+     */
+    public ProcessEngine<?> getProcessEngine() {
+        return processEngine != null ? processEngine
+            : ProcessEngineFactory.getStatelessProcessEngine(getFlowModelType());
+    }
+
     public Map<String, List<TransitionNode>> getFollowingGraph() {
         return followingGraph;
     }
@@ -128,17 +213,82 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
     }
 
     public void compile() {
-        compiledClassCache.computeIfAbsent(code, c -> compileJavaCode(getJavaCode(code)));
+        compiledClassCache.get(code, c -> compileJavaCode(getJavaCode(code)));
+    }
+
+    /**
+     * Compile the given runtimes in one compiler invocation, runtimes already compiled are skipped.
+     *
+     * @return class bytes of the newly compiled classes, keyed by full class name
+     */
+    public static Map<String, byte[]> compile(Collection<? extends AbstractProcessRuntime> runtimes) {
+        Map<String, AbstractProcessRuntime> uncompiledRuntimes = new LinkedHashMap<>();
+        for (AbstractProcessRuntime runtime : runtimes) {
+            if (!runtime.compiledClassCache.containsKey(runtime.code)) {
+                uncompiledRuntimes.put(runtime.classTarget.getFullName(), runtime);
+            }
+        }
+        if (uncompiledRuntimes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> sourceCodes = new LinkedHashMap<>();
+        uncompiledRuntimes.forEach((className, runtime) ->
+            sourceCodes.put(className, runtime.getJavaCode(runtime.code)));
+        Map<String, byte[]> classBytes = CompilerHolder.COMPILER.compileJavaCodeToBytes(sourceCodes);
+        Map<String, Class<?>> compiledClasses = FlowClassLoader.defineClasses(sourceCodes.keySet(), classBytes);
+        uncompiledRuntimes.forEach((className, runtime) ->
+            runtime.compiledClassCache.putIfAbsent(runtime.code, compiledClasses.get(className)));
+        return classBytes;
     }
 
     public void recompile(String code) {
-        compiledClassCache.computeIfPresent(code, (k, v) -> compileJavaCode(generateJavaCode()));
+        if (compiledClassCache.containsKey(code)) {
+            compiledClassCache.put(code, compileJavaCode(generateLinkableJavaCode()));
+        }
     }
 
     @Override
     public Map<String, Object> start(Map<String, Object> context) {
+        if (isInterpreted()) {
+            promoteIfHot();
+            return executeProcessInstance(interpreter, context);
+        }
         compile();
-        return executeProcessInstance(context);
+        return executeProcessInstance(getProcessInstance(), context);
+    }
+
+    /**
+     * @return true if the flow is executed by its interpreter, i.e. it's still cold and not compiled yet
+     */
+    public boolean isInterpreted() {
+        return interpreter != null && compiledClassCache.getIfPresent(code) == null;
+    }
+
+    /**
+     * Compile the flow on a background thread once it's invoked often enough, executions keep being interpreted
+     * until the compiled class is ready.
+     */
+    private void promoteIfHot() {
+        if (interpretedCount.incrementAndGet() >= runtimeOption.getTieredCompileThreshold()
+            && promoted.compareAndSet(false, true)) {
+            TieredCompilerHolder.EXECUTOR.execute(() -> {
+                try {
+                    compile();
+                } catch (Throwable t) {
+                    LOGGER.warn("Failed to compile hot flow, keep interpreting it, code is " + code, t);
+                }
+            });
+        }
+    }
+
+    /**
+     * Whether the generated flow class keeps no state in fields. Flow vars are then locals of the flow method, so a
+     * single instance of the class is reentrant and serves all executions, see
+     * {@link #generateInstanceFactoryMethod()}.
+     */
+    public boolean isReentrant() {
+        return false;
     }
 
     public abstract FlowModelType getFlowModelType();
@@ -220,35 +370,138 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
     }
 
     private String getJavaCode(String code) {
-        return javaCodeCache.computeIfAbsent(code, c -> generateJavaCode());
+        return javaCodeCache.get(code, c -> generateLinkableJavaCode());
+    }
+
+    private String generateLinkableJavaCode() {
+        inlinedCodes.clear();
+        String javaCode = generateJavaCode();
+        if (!inlinedCodes.isEmpty() && classTarget.containsConflictingImportedTypes()) {
+            // types of the inlined sub flows clash with those of the flow, call the sub flows instead
+            LOGGER.info("Sub flows can't be inlined, call them, code is " + code);
+            subFlowInlining = false;
+            inlinedCodes.clear();
+            resetClassTarget();
+            javaCode = generateJavaCode();
+        }
+        return javaCode;
+    }
+
+    /**
+     * Generate a small sub flow into the flow class as a private method, see
+     * {@link RuntimeOption#getSubFlowInlineThreshold()}. The flow has to be compiled again whenever the sub
+     * flow is reloaded, see {@link #getInlinedCodes()}. Only stateless flows inline their sub flows, the methods of
+     * stateful ones don't throw the exceptions of the inlined tasks.
+     *
+     * @param paramValues code of the values passed to the params of the sub flow, keyed by param name
+     * @param returnName  name of the return var of the sub flow returned by the call
+     * @return code calling the inlined sub flow, or null if the sub flow can't be inlined
+     */
+    public String inlineSubFlow(CodeTargetSupport codeTargetSupport, String subFlowCode,
+                                Map<String, String> paramValues, String returnName) {
+        if (!subFlowInlining || runtimeOption.getSubFlowInlineThreshold() <= 0 || !isStateless()
+            || subFlowCode.equals(code)) {
+            return null;
+        }
+        AbstractStatelessProcessRuntime<?> subFlowRuntime;
+        try {
+            Object subFlowModel = getProcessEngine().load(subFlowCode);
+            if (!(subFlowModel instanceof TbbpmModel)) {
+                return null;
+            }
+            subFlowRuntime = TbbpmStatelessProcessRuntime.of((TbbpmModel) subFlowModel);
+            subFlowRuntime.setRuntimeOption(runtimeOption);
+            subFlowRuntime.setProcessEngine(processEngine);
+            subFlowRuntime.init();
+        } catch (Exception e) {
+            LOGGER.info("Sub flow can't be inlined, call it, code is " + subFlowCode + ", " + e.getMessage());
+            return null;
+        }
+        if (!subFlowRuntime.isInlinable()) {
+            return null;
+        }
+
+        ClassTarget callerClassTarget = (ClassTarget) codeTargetSupport.getClassTarget();
+        String baseName = "subFlow" + StringUtils.capitalize(VarUtils.getLegalVarName(
+            subFlowCode.substring(subFlowCode.lastIndexOf('.') + 1)));
+        String methodName = baseName;
+        for (int i = 1; containsMethod(callerClassTarget, methodName); i++) {
+            methodName = baseName + i;
+        }
+        subFlowRuntime.generateInlinedMethod(callerClassTarget, methodName, returnName);
+        inlinedCodes.add(subFlowCode);
+        return methodName + "(" + subFlowRuntime.getParamVars().stream()
+            .map(paramVar -> paramValues.getOrDefault(paramVar.getName(), "null"))
+            .collect(Collectors.joining(", ")) + ")";
+    }
+
+    private static boolean containsMethod(ClassTarget classTarget, String methodName) {
+        return classTarget.getMethods().stream().anyMatch(method -> method.getName().equals(methodName));
     }
 
-    private Map<String, Object> executeProcessInstance(Map<String, Object> context) {
+    /**
+     * @return codes of the sub flows inlined into the generated flow class
+     */
+    public Set<String> getInlinedCodes() {
+        return inlinedCodes;
+    }
+
+    private Map<String, Object> executeProcessInstance(ProcessInstance instance, Map<String, Object> context) {
         try {
-            ProcessInstance instance = getProcessInstance();
             return instance.execute(context);
-        } catch (CompileFlowException e) {
+        } catch (CompileFlowException | CancellationException e) {
             throw e;
         } catch (Exception e) {
             throw new CompileFlowException("Failed to execute process, code is " + code, e);
         }
     }
 
+    /**
+     * Factory of the instances of the compiled flow, the flow is compiled first if it's not yet.
+     */
+    public FlowInstanceFactory<?> getFlowInstanceFactory() {
+        compile();
+        return INSTANCE_FACTORIES.get(compiledClassCache.getIfPresent(code));
+    }
+
     @SuppressWarnings("unchecked")
     protected <T extends ProcessInstance> T getProcessInstance() {
-        Class<?> clazz = compiledClassCache.get(code);
+        Class<?> clazz = compiledClassCache.getIfPresent(code);
         if (clazz == null) {
             throw new CompileFlowException("Failed to get compile class, code is " + code);
         }
         try {
-            return (T) ClassUtils.newInstance(clazz);
+            return (T) INSTANCE_FACTORIES.get(clazz).newInstance();
         } catch (Exception e) {
             throw new CompileFlowException("Failed to get process instance, code is " + code, e);
         }
     }
 
+    /**
+     * Let the flow class create its instances, see {@link #generateInstanceFactoryMethod()}.
+     */
+    private static FlowInstanceFactory<?> getInstanceFactory(Class<?> clazz) {
+        try {
+            if (FlowInstanceFactory.class.isAssignableFrom(clazz)) {
+                return ClassUtils.newInstance(clazz);
+            }
+            // flow classes generated by former versions, e.g. pre-built ones
+            MethodHandle constructor = MethodHandles.publicLookup().findConstructor(clazz,
+                MethodType.methodType(void.class)).asType(MethodType.methodType(FlowInstance.class));
+            return () -> {
+                try {
+                    return (FlowInstance) constructor.invokeExact();
+                } catch (Throwable t) {
+                    throw new CompileFlowException("Failed to create flow instance of " + clazz.getName(), t);
+                }
+            };
+        } catch (Exception e) {
+            throw new CompileFlowException("Failed to get instance factory of " + clazz.getName(), e);
+        }
+    }
+
     private Class<?> compileJavaCode(String source) {
-        return COMPILER.compileJavaCode(classTarget.getFullName(), source);
+        return CompilerHolder.COMPILER.compileJavaCode(classTarget.getFullName(), source);
     }
 
     protected MethodTarget generateFlowMethod(String methodName,
@@ -256,29 +509,8 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
         MethodTarget methodTarget = generateMethodDefinition(methodName);
         classTarget.addMethod(methodTarget);
 
-        addVars(paramVars);
-        addVars(returnVars);
-        addVars(innerVars);
-
-        if (CollectionUtils.isNotEmpty(paramVars)) {
-            for (IVar paramVar : paramVars) {
-                String dataVar = "_pContext.get(\"" + paramVar.getName() + "\")";
-                Class<?> dateType = DataType.getJavaClass(paramVar.getDataType());
-                if (dateType.isPrimitive()) {
-                    String innerParamDefine = paramVar.getName() + " = (("
-                        + DataType.getClassName(DataType.getPrimitiveClass(paramVar.getDataType()))
-                        + ")DataType.transfer(" + dataVar + ", " + DataType.getClassName(paramVar.getDataType())
-                        + ".class))." + DataType.getTransFunc(dateType) + ";";
-                    methodTarget.addBodyLine(innerParamDefine);
-                } else {
-                    ClassWrapper pvType = ClassWrapper.of(paramVar.getDataType());
-                    String innerParamDefine = paramVar.getName() + " = (" + pvType.getShortRawName()
-                        + ")DataType.transfer("
-                        + dataVar + ", " + pvType.getShortRawName() + ".class);";
-                    methodTarget.addBodyLine(innerParamDefine);
-                }
-            }
-        }
+        addFlowVars(methodTarget);
+        addParamVarLines(methodTarget);
 
         methodTarget.addBodyLine("Map<String, Object> _pResult = new HashMap<>();");
         methodExecuteBodyGenerator.generateCode(methodTarget);
@@ -292,6 +524,60 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
         return methodTarget;
     }
 
+    /**
+     * Declare the flow vars, as locals of the flow method if the flow is reentrant, as fields otherwise.
+     */
+    protected void addFlowVars(MethodTarget methodTarget) {
+        if (isReentrant()) {
+            addLocalVars(methodTarget, paramVars);
+            addLocalVars(methodTarget, returnVars);
+            addLocalVars(methodTarget, innerVars);
+        } else {
+            addVars(paramVars);
+            addVars(returnVars);
+            addVars(innerVars);
+        }
+    }
+
+    /**
+     * Read the param vars from <code>_pContext</code>.
+     */
+    protected void addParamVarLines(MethodTarget methodTarget) {
+        if (CollectionUtils.isNotEmpty(paramVars)) {
+            for (IVar paramVar : paramVars) {
+                addParamVarLine(methodTarget, paramVar, "_pContext.get(\"" + paramVar.getName() + "\")");
+            }
+        }
+    }
+
+    /**
+     * Assign the param var from the given value, converted to the type of the var.
+     */
+    protected void addParamVarLine(MethodTarget methodTarget, IVar paramVar, String dataVar) {
+        Class<?> dateType = DataType.getJavaClass(paramVar.getDataType());
+        if (dateType.isPrimitive()) {
+            String innerParamDefine = paramVar.getName() + " = (("
+                + DataType.getClassName(DataType.getPrimitiveClass(paramVar.getDataType()))
+                + ")DataType.transfer(" + dataVar + ", " + DataType.getClassName(paramVar.getDataType())
+                + ".class))." + DataType.getTransFunc(dateType) + ";";
+            methodTarget.addBodyLine(innerParamDefine);
+        } else {
+            ClassWrapper pvType = ClassWrapper.of(paramVar.getDataType());
+            String innerParamDefine = paramVar.getName() + " = (" + pvType.getShortRawName()
+                + ")DataType.transfer("
+                + dataVar + ", " + pvType.getShortRawName() + ".class);";
+            methodTarget.addBodyLine(innerParamDefine);
+        }
+    }
+
+    public List<IVar> getParamVars() {
+        return paramVars;
+    }
+
+    public List<IVar> getReturnVars() {
+        return returnVars;
+    }
+
     public List<String> wrapReturnVarLines() {
         List<String> returnVarLines = new ArrayList<>();
         if (CollectionUtils.isNotEmpty(returnVars)) {
@@ -302,6 +588,21 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
         return returnVarLines;
     }
 
+    /**
+     * Make the flow class a {@link FlowInstanceFactory}, creating its instances with a plain constructor call, or
+     * sharing itself if it's {@link #isReentrant() reentrant}.
+     */
+    protected void generateInstanceFactoryMethod() {
+        classTarget.addSuperInterface(ClassWrapper.of(FlowInstanceFactory.class));
+        MethodTarget methodTarget = new MethodTarget();
+        methodTarget.setClassTarget(classTarget);
+        methodTarget.setName("newInstance");
+        methodTarget.setReturnType(ClassWrapper.of(classTarget.getFullName()));
+        methodTarget.addModifier(Modifier.PUBLIC);
+        methodTarget.addBodyLine(isReentrant() ? "return this;" : "return new " + classTarget.getName() + "();");
+        classTarget.addMethod(methodTarget);
+    }
+
     protected MethodTarget generateMethodDefinition(String methodName) {
         MethodTarget methodTarget = new MethodTarget();
         methodTarget.setClassTarget(classTarget);
@@ -326,19 +627,63 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
         }
     }
 
+    private void addLocalVars(MethodTarget methodTarget, List<IVar> vars) {
+        if (CollectionUtils.isNotEmpty(vars)) {
+            for (IVar var : vars) {
+                ClassWrapper rvType = ClassWrapper.of(var.getDataType());
+                classTarget.addImportedType(rvType);
+                String nullValue = DataType.getDefaultValueString(DataType.getJavaClass(var.getDataType()),
+                    var.getDefaultValue());
+                methodTarget.addBodyLine(rvType.getName() + " " + var.getName() + " = " + nullValue + ";");
+            }
+        }
+    }
+
     protected void generateExecuteMethodBody(CodeTargetSupport codeTargetSupport) {
         nodeGeneratorProvider.getGenerator(flowModel).generateCode(codeTargetSupport);
     }
 
     @Override
     public void init() {
-        validateRuntime();
-        initClassTarget();
-        initGeneratorProvider();
         if (inited.compareAndSet(false, true)) {
             initBeanProvider();
             initScriptExecutorProvider();
         }
+        if (isRestored()) {
+            return;
+        }
+        validateRuntime();
+        initClassTarget();
+        initGeneratorProvider();
+    }
+
+    /**
+     * @return true if the runtime is restored from a compiled class and has no flow model
+     */
+    protected boolean isRestored() {
+        return flowModel == null;
+    }
+
+    /**
+     * Interpret the flow until it gets hot when tiered execution is enabled, see
+     * {@link RuntimeOption#getTieredCompileThreshold()}. Flows which can't be interpreted are compiled as usual.
+     */
+    protected void initInterpreter() {
+        if (runtimeOption.getTieredCompileThreshold() <= 0 || isRestored()) {
+            return;
+        }
+        try {
+            interpreter = createInterpreter();
+        } catch (CompileFlowException e) {
+            LOGGER.info("Flow can't be interpreted, compile it, code is " + code + ", " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return null if the flow type has no interpreter
+     */
+    protected ProcessInstance createInterpreter() {
+        return null;
     }
 
     @Override
@@ -404,6 +749,14 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
     protected abstract GeneratorProviderFactory getGeneratorProviderFactory();
 
 
+    /**
+     * Start the generated class over, dropping whatever was generated so far.
+     */
+    protected void resetClassTarget() {
+        classTarget = new ClassTarget();
+        initClassTarget();
+    }
+
     private void initClassTarget() {
         String fullClassName = getFlowClassFullName(code, id);
         ClassWrapper classWrapper = ClassWrapper.of(fullClassName);
@@ -467,6 +820,26 @@ public abstract class AbstractProcessRuntime<T extends FlowModel> implements Pro
         classTarget.addImportedType(ClassWrapper.of(ProcessEngineFactory.class));
         classTarget.addImportedType(ClassWrapper.of(DataType.class));
         classTarget.addImportedType(ClassWrapper.of(BeanProvider.class));
+        classTarget.addImportedType(ClassWrapper.of(FlowInstanceFactory.class));
+    }
+
+    /**
+     * Create the compiler on first compilation only, so that flows compiled at build time run without ecj.
+     */
+    private static class CompilerHolder {
+
+        private static final Compiler COMPILER = new CompilerImpl();
+
+    }
+
+    private static class TieredCompilerHolder {
+
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "compileflow-tiered-compiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
     }
 
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.alibaba.compileflow.engine.runtime.impl;
 import com.alibaba.compileflow.engine.common.ClassWrapper;
 import com.alibaba.compileflow.engine.common.CompileFlowException;
 import com.alibaba.compileflow.engine.common.constants.ProcessType;
+import com.alibaba.compileflow.engine.common.utils.DataType;
 import com.alibaba.compileflow.engine.definition.common.FlowModel;
 import com.alibaba.compileflow.engine.definition.common.Node;
 import com.alibaba.compileflow.engine.definition.common.TransitionNode;
@@ -10,13 +11,22 @@ import com.alibaba.compileflow.engine.definition.common.TransitionSupport;
 import com.alibaba.compileflow.engine.process.preruntime.generator.Generator;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.CodeTargetSupport;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.MethodTarget;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
 import com.alibaba.compileflow.engine.process.preruntime.generator.code.ParamTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.constansts.Modifier;
 import com.alibaba.compileflow.engine.process.preruntime.validator.ValidateMessage;
+import com.alibaba.compileflow.engine.runtime.instance.DurableProcessInstance;
 import com.alibaba.compileflow.engine.runtime.instance.StatefulProcessInstance;
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
+import com.alibaba.compileflow.engine.runtime.state.SnapshotInput;
+import com.alibaba.compileflow.engine.runtime.state.SnapshotOutput;
+import com.alibaba.compileflow.engine.runtime.state.SnapshotSchema;
+import com.alibaba.compileflow.engine.runtime.state.StateStore;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 /**
@@ -25,10 +35,18 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractStatefulProcessRuntime<T extends FlowModel> extends AbstractProcessRuntime<T> {
 
+    protected static final String CURRENT_TAG_FIELD = "_pCurrentTag";
+
+    private static final String SNAPSHOT_SCHEMA_FIELD = "_pSnapshotSchema";
+
     public AbstractStatefulProcessRuntime(T flowModel) {
         super(flowModel);
     }
 
+    protected AbstractStatefulProcessRuntime(String code, Class<?> compiledClass) {
+        super(code, compiledClass);
+    }
+
     @Override
     public Map<String, Object> start(Map<String, Object> context) {
         compile();
@@ -40,6 +58,90 @@ public abstract class AbstractStatefulProcessRuntime<T extends FlowModel> extend
         return triggerProcessInstance(currentTag, context);
     }
 
+    /**
+     * Start a new instance of the flow managed by the engine, see {@link DurableProcessInstance}.
+     */
+    public Map<String, Object> start(String instanceId, Map<String, Object> context, StateStore stateStore) {
+        compile();
+        DurableProcessInstance instance = getDurableProcessInstance();
+        return triggerDurableProcessInstance(instanceId, instance, instance.getCurrentTag(), context, stateStore);
+    }
+
+    /**
+     * Resume an instance of the flow managed by the engine from its saved state. The saved vars are the defaults of
+     * the context, so that the caller only passes what the trigger brings in, e.g. the event.
+     */
+    public Map<String, Object> trigger(String instanceId, ProcessState state, Map<String, Object> context,
+                                       StateStore stateStore) {
+        compile();
+        DurableProcessInstance instance = getDurableProcessInstance();
+        restore(instance, state.getSnapshot());
+        Map<String, Object> instanceContext = instance.getVars();
+        instanceContext.putAll(context);
+        return triggerDurableProcessInstance(instanceId, instance, state.getCurrentTag(), instanceContext,
+            stateStore);
+    }
+
+    private Map<String, Object> triggerDurableProcessInstance(String instanceId, DurableProcessInstance instance,
+                                                              String currentTag, Map<String, Object> context,
+                                                              StateStore stateStore) {
+        Map<String, Object> result;
+        try {
+            result = instance.trigger(context, currentTag);
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompileFlowException("Failed to trigger process, code is " + code + ", instance id is "
+                + instanceId, e);
+        }
+        String stoppedTag = instance.getCurrentTag();
+        if (stoppedTag == null) {
+            stateStore.remove(instanceId);
+        } else {
+            String eventName = instance.getWaitingEventName();
+            String correlationKey = null;
+            if (eventName != null) {
+                correlationKey = instance.getCorrelationKey();
+                if (correlationKey == null) {
+                    correlationKey = instanceId;
+                }
+            }
+            stateStore.save(instanceId, ProcessState.of(code, stoppedTag, eventName, correlationKey,
+                snapshot(instance)));
+        }
+        return result;
+    }
+
+    private DurableProcessInstance getDurableProcessInstance() {
+        StatefulProcessInstance instance = getProcessInstance();
+        if (!(instance instanceof DurableProcessInstance)) {
+            throw new CompileFlowException("Process has no durable state, code is " + code);
+        }
+        return (DurableProcessInstance) instance;
+    }
+
+    /**
+     * @return the binary snapshot of the flow vars of the instance
+     */
+    public byte[] snapshot(DurableProcessInstance instance) {
+        try {
+            return instance.snapshot();
+        } catch (Exception e) {
+            throw new CompileFlowException("Failed to save process state, code is " + code, e);
+        }
+    }
+
+    /**
+     * Restore the flow vars of the instance from a snapshot.
+     */
+    public void restore(DurableProcessInstance instance, byte[] snapshot) {
+        try {
+            instance.restore(snapshot);
+        } catch (Exception e) {
+            throw new CompileFlowException("Failed to restore process state, code is " + code, e);
+        }
+    }
+
     @Override
     public ProcessType getProcessType() {
         return ProcessType.STATEFUL;
@@ -52,19 +154,131 @@ public abstract class AbstractStatefulProcessRuntime<T extends FlowModel> extend
 
     @Override
     public String generateJavaCode() {
-        classTarget.addSuperInterface(ClassWrapper.of(StatefulProcessInstance.class));
+        classTarget.addSuperInterface(ClassWrapper.of(DurableProcessInstance.class));
 //        generateFlowMethod("execute", this::generateStartExecuteBody);
         generateStartExecuteMethod();
+        generateInstanceFactoryMethod();
         MethodTarget method = generateFlowMethod("trigger", this::generateFireExecuteBody);
         ClassWrapper mType = ClassWrapper.of("String");
         method.addParameter(ParamTarget.of(mType, "currentTag"));
+        generateDurableMethods();
         classTarget.addNewLine();
         return classTarget.generateCode();
     }
 
+    /**
+     * Generate the state accessors of {@link DurableProcessInstance}, the current tag is tracked by the trigger method.
+     */
+    private void generateDurableMethods() {
+        String startTag = ((Node) flowModel.getStartNode()).getTag();
+        classTarget.addField(ClassWrapper.of(String.class), CURRENT_TAG_FIELD, "\"" + startTag + "\"");
+
+        MethodTarget currentTagMethod = new MethodTarget();
+        currentTagMethod.setClassTarget(classTarget);
+        currentTagMethod.setName("getCurrentTag");
+        currentTagMethod.setReturnType(ClassWrapper.of(String.class));
+        currentTagMethod.addModifier(Modifier.PUBLIC);
+        currentTagMethod.addBodyLine("return " + CURRENT_TAG_FIELD + ";");
+        classTarget.addMethod(currentTagMethod);
+
+        ClassWrapper mType = ClassWrapper.of("Map<String, Object>");
+        MethodTarget getVarsMethod = new MethodTarget();
+        getVarsMethod.setClassTarget(classTarget);
+        getVarsMethod.setName("getVars");
+        getVarsMethod.setReturnType(mType);
+        getVarsMethod.addModifier(Modifier.PUBLIC);
+        getVarsMethod.addBodyLine("Map<String, Object> _pVars = new HashMap<>();");
+        for (IVar var : getVars()) {
+            getVarsMethod.addBodyLine("_pVars.put(\"" + var.getName() + "\", " + var.getName() + ");");
+        }
+        getVarsMethod.addBodyLine("return _pVars;");
+        classTarget.addMethod(getVarsMethod);
+
+        MethodTarget setVarsMethod = new MethodTarget();
+        setVarsMethod.setClassTarget(classTarget);
+        setVarsMethod.setName("setVars");
+        setVarsMethod.addParameter(ParamTarget.of(mType, "_pVars"));
+        setVarsMethod.addModifier(Modifier.PUBLIC);
+        for (IVar var : getVars()) {
+            setVarsMethod.addBodyLine("if (_pVars.containsKey(\"" + var.getName() + "\")) {");
+            addParamVarLine(setVarsMethod, var, "_pVars.get(\"" + var.getName() + "\")");
+            setVarsMethod.addBodyLine("}");
+        }
+        classTarget.addMethod(setVarsMethod);
+
+        generateSnapshotMethods();
+        generateWaitEventMethods();
+    }
+
+    /**
+     * Generate {@link DurableProcessInstance#getWaitingEventName()} and
+     * {@link DurableProcessInstance#getCorrelationKey()} for flows having wait event nodes, none by default.
+     */
+    protected void generateWaitEventMethods() {
+    }
+
+    /**
+     * Generate the binary snapshot of {@link DurableProcessInstance}. Vars are written in declared order after the
+     * header of their schema, primitives without boxing, so that a snapshot of the same schema is read back
+     * positionally. A snapshot of another schema falls back to restoring its vars by name.
+     */
+    private void generateSnapshotMethods() {
+        List<IVar> vars = getVars();
+        String names = vars.stream().map(var -> "\"" + var.getName() + "\"").collect(Collectors.joining(", "));
+        String types = vars.stream().map(var -> "\"" + DataType.getJavaClass(var.getDataType()).getName() + "\"")
+            .collect(Collectors.joining(", "));
+        classTarget.addField(ClassWrapper.of(SnapshotSchema.class), SNAPSHOT_SCHEMA_FIELD,
+            "SnapshotSchema.of(new String[] {" + names + "}, new String[] {" + types + "})",
+            Arrays.asList(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL));
+
+        MethodTarget snapshotMethod = new MethodTarget();
+        snapshotMethod.setClassTarget(classTarget);
+        snapshotMethod.setName("snapshot");
+        snapshotMethod.setReturnType(ClassWrapper.of("byte[]"));
+        snapshotMethod.addModifier(Modifier.PUBLIC);
+        snapshotMethod.addException(ClassWrapper.of(Exception.class));
+        snapshotMethod.addBodyLine("SnapshotOutput _pOut = " + SNAPSHOT_SCHEMA_FIELD + ".newOutput();");
+        for (IVar var : vars) {
+            snapshotMethod.addBodyLine("_pOut.write" + getSnapshotValueType(var) + "(" + var.getName() + ");");
+        }
+        snapshotMethod.addBodyLine("return _pOut.toByteArray();");
+        classTarget.addMethod(snapshotMethod);
+
+        MethodTarget restoreMethod = new MethodTarget();
+        restoreMethod.setClassTarget(classTarget);
+        restoreMethod.setName("restore");
+        restoreMethod.addParameter(ParamTarget.of(ClassWrapper.of("byte[]"), "_pSnapshot"));
+        restoreMethod.addModifier(Modifier.PUBLIC);
+        restoreMethod.addException(ClassWrapper.of(Exception.class));
+        restoreMethod.addBodyLine("SnapshotInput _pIn = " + SNAPSHOT_SCHEMA_FIELD + ".newInput(_pSnapshot);");
+        restoreMethod.addBodyLine("if (!_pIn.isSameSchema()) {");
+        restoreMethod.addBodyLine("setVars(_pIn.readVars());");
+        restoreMethod.addBodyLine("return;");
+        restoreMethod.addBodyLine("}");
+        for (IVar var : vars) {
+            String valueType = getSnapshotValueType(var);
+            if ("Value".equals(valueType)) {
+                restoreMethod.addBodyLine(var.getName() + " = (" + ClassWrapper.of(var.getDataType()).getShortRawName()
+                    + ")_pIn.readValue();");
+            } else {
+                restoreMethod.addBodyLine(var.getName() + " = _pIn.read" + valueType + "();");
+            }
+        }
+        classTarget.addMethod(restoreMethod);
+    }
+
+    /**
+     * @return suffix of the read and write methods of the snapshot for the var, e.g. Int for int vars
+     */
+    private static String getSnapshotValueType(IVar var) {
+        Class<?> type = DataType.getJavaClass(var.getDataType());
+        return type.isPrimitive() ? StringUtils.capitalize(type.getName()) : "Value";
+    }
+
     @Override
     protected List<Class<?>> getExtImportedTypes() {
-        return Collections.singletonList(StatefulProcessInstance.class);
+        return Arrays.asList(StatefulProcessInstance.class, DurableProcessInstance.class, SnapshotSchema.class,
+            SnapshotOutput.class, SnapshotInput.class);
     }
 
     @Override
@@ -84,7 +298,7 @@ public abstract class AbstractStatefulProcessRuntime<T extends FlowModel> extend
         try {
             StatefulProcessInstance instance = getProcessInstance();
             return instance.execute(context);
-        } catch (CompileFlowException e) {
+        } catch (CompileFlowException | CancellationException e) {
             throw e;
         } catch (Exception e) {
             throw new CompileFlowException("Failed to execute process, code is " + code, e);
@@ -95,6 +309,8 @@ public abstract class AbstractStatefulProcessRuntime<T extends FlowModel> extend
         try {
             StatefulProcessInstance instance = getProcessInstance();
             return instance.trigger(context, currentTag);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             throw new CompileFlowException("Failed to trigger process, code is " + code, e);
         }
@@ -117,6 +333,7 @@ public abstract class AbstractStatefulProcessRuntime<T extends FlowModel> extend
         method.addBodyLine("String _event = (String)_pContext.get(\"eventName\") == null?\"\" :(String)_pContext.get(\"eventName\");");
         method.addNewLine();
         method.addBodyLine("while (running) {");
+        method.addBodyLine(CURRENT_TAG_FIELD + " = currentTag;");
         method.addBodyLine("switch (currentTag) {");
         Set<String> visitedNodes = new HashSet<>();
         List<TransitionNode> runtimeNodes = flowModel.getRuntimeNodes();
@@ -159,6 +376,7 @@ public abstract class AbstractStatefulProcessRuntime<T extends FlowModel> extend
         method.addBodyLine("trigger = false;");
         method.addBodyLine("}");
         method.addBodyLine("}");
+        method.addBodyLine(CURRENT_TAG_FIELD + " = null;");
         method.addBodyLine("");
     }
 
@@ -19,14 +19,22 @@ package com.alibaba.compileflow.engine.runtime.impl;
 import com.alibaba.compileflow.engine.common.ClassWrapper;
 import com.alibaba.compileflow.engine.common.constants.ProcessType;
 import com.alibaba.compileflow.engine.definition.common.*;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.ClassTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.MethodTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.ParamTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.constansts.Modifier;
 import com.alibaba.compileflow.engine.process.preruntime.validator.ValidateMessage;
+import com.alibaba.compileflow.engine.runtime.instance.LinkedProcessInstance;
 import com.alibaba.compileflow.engine.runtime.instance.ProcessInstance;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -35,23 +43,163 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractStatelessProcessRuntime<T extends AbstractFlowModel> extends AbstractProcessRuntime<T> {
 
+    private boolean reentrant;
+
     public AbstractStatelessProcessRuntime(T flowModel) {
         super(flowModel);
     }
 
+    protected AbstractStatelessProcessRuntime(String code, Class<?> compiledClass) {
+        super(code, compiledClass);
+    }
+
     @Override
     public void init() {
         super.init();
-        initGatewayGraph();
+        if (!isRestored()) {
+            initGatewayGraph();
+            initInterpreter();
+        }
     }
 
     @Override
     public String generateJavaCode() {
-        classTarget.addSuperInterface(ClassWrapper.of(ProcessInstance.class));
-        generateFlowMethod("execute", this::generateExecuteMethodBody);
+        reentrant = runtimeOption.isStatelessReentrant() && !hasShadowedVars();
+        generateLinkedMethods();
+        generateContextMethod();
+        generateInstanceFactoryMethod();
         return classTarget.generateCode();
     }
 
+    /**
+     * Generate the positional entry point of {@link LinkedProcessInstance}, the flow method itself. It returns null
+     * if the flow stops at a wait node before reaching its end.
+     */
+    private void generateLinkedMethods() {
+        classTarget.addImportedType(ClassWrapper.of(LinkedProcessInstance.class));
+        classTarget.addSuperInterface(ClassWrapper.of(LinkedProcessInstance.class));
+        classTarget.addMethod(generateNamesMethod("getParamNames", getParamVars()));
+        classTarget.addMethod(generateNamesMethod("getReturnNames", getReturnVars()));
+
+        MethodTarget linkedMethod = new MethodTarget();
+        linkedMethod.setClassTarget(classTarget);
+        linkedMethod.setName("executeLinked");
+        linkedMethod.addException(ClassWrapper.of(Exception.class));
+        linkedMethod.addParameter(ParamTarget.of(ClassWrapper.of("Object[]"), "_pParams"));
+        linkedMethod.setReturnType(ClassWrapper.of("Object[]"));
+        linkedMethod.addModifier(Modifier.PUBLIC);
+        classTarget.addMethod(linkedMethod);
+        addFlowVars(linkedMethod);
+        List<IVar> paramVars = getParamVars();
+        for (int i = 0; i < paramVars.size(); i++) {
+            addParamVarLine(linkedMethod, paramVars.get(i), "_pParams[" + i + "]");
+        }
+        linkedMethod.addBodyLine("Object[] _pResult = null;");
+        generateExecuteMethodBody(linkedMethod);
+        linkedMethod.addBodyLines(wrapReturnVarLines());
+        linkedMethod.addBodyLine("return _pResult;");
+    }
+
+    /**
+     * Generate the map based entry point of {@link ProcessInstance}, an adapter of the positional one.
+     */
+    private void generateContextMethod() {
+        MethodTarget contextMethod = generateMethodDefinition("execute");
+        classTarget.addMethod(contextMethod);
+        contextMethod.addBodyLine("Object[] _pOutput = executeLinked(new Object[] {" + getParamVars().stream()
+            .map(paramVar -> "_pContext.get(\"" + paramVar.getName() + "\")").collect(Collectors.joining(", "))
+            + "});");
+        contextMethod.addBodyLine("Map<String, Object> _pResult = new HashMap<>();");
+        List<IVar> returnVars = getReturnVars();
+        if (CollectionUtils.isNotEmpty(returnVars)) {
+            contextMethod.addBodyLine("if (_pOutput != null) {");
+            for (int i = 0; i < returnVars.size(); i++) {
+                contextMethod.addBodyLine("_pResult.put(\"" + returnVars.get(i).getName() + "\", _pOutput[" + i
+                    + "]);");
+            }
+            contextMethod.addBodyLine("}");
+        }
+        contextMethod.addBodyLine("return _pResult;");
+    }
+
+    /**
+     * @return true if the flow may be generated into the class of its calling flows, see
+     * {@link #generateInlinedMethod(ClassTarget, String, String)}
+     */
+    protected boolean isInlinable() {
+        return false;
+    }
+
+    /**
+     * Generate the flow as a private method of the class of a calling flow. The flow vars are locals of the method,
+     * which takes the param vars in their declared order and returns the given return var, so nothing of the flow
+     * clashes with the calling flow.
+     */
+    void generateInlinedMethod(ClassTarget callerClassTarget, String methodName, String returnName) {
+        reentrant = true;
+        MethodTarget method = new MethodTarget();
+        method.setClassTarget(callerClassTarget);
+        method.setName(methodName);
+        method.addException(ClassWrapper.of(Exception.class));
+        method.setReturnType(ClassWrapper.of(Object.class));
+        method.addModifier(Modifier.PRIVATE);
+        callerClassTarget.addMethod(method);
+
+        addFlowVars(method);
+        List<IVar> paramVars = getParamVars();
+        for (int i = 0; i < paramVars.size(); i++) {
+            IVar paramVar = paramVars.get(i);
+            callerClassTarget.addImportedType(ClassWrapper.of(paramVar.getDataType()));
+            method.addParameter(ParamTarget.of(ClassWrapper.of(Object.class), "_pParam" + i));
+            addParamVarLine(method, paramVar, "_pParam" + i);
+        }
+        generateExecuteMethodBody(method);
+        boolean returned = getReturnVars().stream().anyMatch(returnVar -> returnVar.getName().equals(returnName));
+        method.addBodyLine("return " + (returned ? returnName : "null") + ";");
+    }
+
+    private MethodTarget generateNamesMethod(String methodName, List<IVar> vars) {
+        MethodTarget method = new MethodTarget();
+        method.setClassTarget(classTarget);
+        method.setName(methodName);
+        method.setReturnType(ClassWrapper.of("String[]"));
+        method.addModifier(Modifier.PUBLIC);
+        method.addBodyLine("return new String[] {" + vars.stream().map(var -> "\"" + var.getName() + "\"")
+            .collect(Collectors.joining(", ")) + "};");
+        return method;
+    }
+
+    @Override
+    public List<String> wrapReturnVarLines() {
+        return Collections.singletonList("_pResult = new Object[] {" + getReturnVars().stream().map(IVar::getName)
+            .collect(Collectors.joining(", ")) + "};");
+    }
+
+    @Override
+    public boolean isReentrant() {
+        return reentrant;
+    }
+
+    /**
+     * Locals can't shadow each other, flows redeclaring a flow var, e.g. as a loop var, keep their vars in fields.
+     */
+    protected boolean hasShadowedVars() {
+        Set<String> varNames = new HashSet<>();
+        for (IVar var : getVars()) {
+            if (!varNames.add(var.getName())) {
+                return true;
+            }
+        }
+        return getScopedVarNames().stream().anyMatch(varNames::contains);
+    }
+
+    /**
+     * @return names of the locals declared by the nodes of the flow, e.g. loop vars
+     */
+    protected Set<String> getScopedVarNames() {
+        return Collections.emptySet();
+    }
+
     @Override
     public ProcessType getProcessType() {
         return ProcessType.STATELESS;
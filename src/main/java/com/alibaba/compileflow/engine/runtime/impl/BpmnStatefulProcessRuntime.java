@@ -23,6 +23,14 @@ public class BpmnStatefulProcessRuntime extends AbstractStatefulProcessRuntime<B
         return new BpmnStatefulProcessRuntime(bpmnModel);
     }
 
+    private BpmnStatefulProcessRuntime(String code, Class<?> compiledClass) {
+        super(code, compiledClass);
+    }
+
+    public static BpmnStatefulProcessRuntime of(String code, Class<?> compiledClass) {
+        return new BpmnStatefulProcessRuntime(code, compiledClass);
+    }
+
     @Override
     public FlowModelType getFlowModelType() {
         return FlowModelType.BPMN;
@@ -18,12 +18,17 @@ package com.alibaba.compileflow.engine.runtime.impl;
 
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
 import com.alibaba.compileflow.engine.definition.bpmn.*;
+import com.alibaba.compileflow.engine.definition.common.Node;
 import com.alibaba.compileflow.engine.definition.common.NodeContainer;
 import com.alibaba.compileflow.engine.definition.common.TransitionNode;
+import com.alibaba.compileflow.engine.process.preruntime.generator.Generator;
 import com.alibaba.compileflow.engine.process.preruntime.generator.factory.GeneratorProviderFactory;
 import com.alibaba.compileflow.engine.process.preruntime.generator.impl.bpmn.*;
 import com.alibaba.compileflow.engine.process.preruntime.generator.provider.impl.BpmnNodeGeneratorProvider;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * @author wuxiang
  * @author yusu
@@ -38,6 +43,14 @@ public class BpmnStatelessProcessRuntime extends AbstractStatelessProcessRuntime
         return new BpmnStatelessProcessRuntime(bpmnModel);
     }
 
+    private BpmnStatelessProcessRuntime(String code, Class<?> compiledClass) {
+        super(code, compiledClass);
+    }
+
+    public static BpmnStatelessProcessRuntime of(String code, Class<?> compiledClass) {
+        return new BpmnStatelessProcessRuntime(code, compiledClass);
+    }
+
     @Override
     public FlowModelType getFlowModelType() {
         return FlowModelType.BPMN;
@@ -49,8 +62,15 @@ public class BpmnStatelessProcessRuntime extends AbstractStatelessProcessRuntime
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void registerNodeGenerator(NodeContainer<TransitionNode> nodeContainer) {
+        registerNodeGenerator(nodeContainer, false);
+    }
+
+    /**
+     * @param inLoop whether the nodes are in a loop, see {@link AbstractForkGatewayGenerator}
+     */
+    @SuppressWarnings("unchecked")
+    private void registerNodeGenerator(NodeContainer<TransitionNode> nodeContainer, boolean inLoop) {
 
         if (nodeContainer == null) {
             throw  new IllegalArgumentException("nodeContainer is null");
@@ -61,24 +81,68 @@ public class BpmnStatelessProcessRuntime extends AbstractStatelessProcessRuntime
         }
 
         for (TransitionNode node : nodeContainer.getAllNodes()) {
+            Generator generator;
             if (node instanceof ServiceTask) {
-                registerGenerator(node, new ServiceTaskGenerator(this, (ServiceTask)node));
+                generator = new ServiceTaskGenerator(this, (ServiceTask)node);
             } else if (node instanceof ScriptTask) {
-                registerGenerator(node, new ScriptTaskGenerator(this, (ScriptTask)node));
+                generator = new ScriptTaskGenerator(this, (ScriptTask)node);
             } else if (node instanceof ExclusiveGateway) {
-                registerGenerator(node, new ExclusiveGatewayGenerator(this, (ExclusiveGateway)node));
+                generator = new ExclusiveGatewayGenerator(this, (ExclusiveGateway)node);
+            } else if (node instanceof ParallelGateway) {
+                generator = new ParallelGatewayGenerator(this, (ParallelGateway)node, !inLoop);
+            } else if (node instanceof InclusiveGateway) {
+                generator = new InclusiveGatewayGenerator(this, (InclusiveGateway)node, !inLoop);
             } else if (node instanceof StartEvent) {
-                registerGenerator(node, new StartEventGenerator(this, (StartEvent)node));
+                generator = new StartEventGenerator(this, (StartEvent)node);
             } else if (node instanceof EndEvent) {
-                registerGenerator(node, new EndEventGenerator(this, (EndEvent)node));
+                generator = new EndEventGenerator(this, (EndEvent)node);
             } else if (node instanceof SubProcess) {
-                registerGenerator(node, new SubProcessGenerator(this, (SubProcess)node));
+                generator = new SubProcessGenerator(this, (SubProcess)node);
             } else {
                 throw new IllegalStateException("Unknown node type: " + node.getClass().getName());
             }
+            // standard loops are wrapped by the generator provider, multi-instance ones fork unless in a loop
+            if (node instanceof Activity
+                && ((Activity) node).getLoopCharacteristics() instanceof MultiInstanceLoopCharacteristics) {
+                generator = new MultiInstanceLoopCharacteristicsGenerator(this, (Activity) node,
+                    (MultiInstanceLoopCharacteristics) ((Activity) node).getLoopCharacteristics(), generator, !inLoop);
+            }
+            registerGenerator(node, generator);
 
             if (node instanceof NodeContainer) {
-                registerNodeGenerator((NodeContainer)node);
+                registerNodeGenerator((NodeContainer)node, inLoop || isLoop(node));
+            }
+        }
+    }
+
+    @Override
+    protected Set<String> getScopedVarNames() {
+        Set<String> varNames = new HashSet<>();
+        addLoopVarNames(flowModel, varNames);
+        return varNames;
+    }
+
+    private boolean isLoop(Node node) {
+        return node instanceof Activity && ((Activity) node).getLoopCharacteristics() != null;
+    }
+
+    private void addLoopVarNames(NodeContainer<?> nodeContainer, Set<String> varNames) {
+        for (Node node : nodeContainer.getAllNodes()) {
+            if (node instanceof Activity
+                && ((Activity) node).getLoopCharacteristics() instanceof StandardLoopCharacteristics) {
+                StandardLoopCharacteristics loopCharacteristics =
+                    (StandardLoopCharacteristics) ((Activity) node).getLoopCharacteristics();
+                varNames.add(loopCharacteristics.getElementVar());
+                varNames.add(loopCharacteristics.getIndexVar());
+            } else if (node instanceof Activity
+                && ((Activity) node).getLoopCharacteristics() instanceof MultiInstanceLoopCharacteristics) {
+                MultiInstanceLoopCharacteristics loopCharacteristics =
+                    (MultiInstanceLoopCharacteristics) ((Activity) node).getLoopCharacteristics();
+                varNames.add(loopCharacteristics.getElementVar());
+                varNames.add(loopCharacteristics.getIndexVar());
+            }
+            if (node instanceof NodeContainer) {
+                addLoopVarNames((NodeContainer<?>) node, varNames);
             }
         }
     }
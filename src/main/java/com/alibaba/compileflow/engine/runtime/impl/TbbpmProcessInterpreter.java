@@ -0,0 +1,575 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.impl;
+
+import com.alibaba.compileflow.engine.ProcessEngine;
+import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.common.utils.ClassLoaderUtils;
+import com.alibaba.compileflow.engine.common.utils.DataType;
+import com.alibaba.compileflow.engine.common.utils.ObjectFactory;
+import com.alibaba.compileflow.engine.definition.common.EndElement;
+import com.alibaba.compileflow.engine.definition.common.GatewayElement;
+import com.alibaba.compileflow.engine.definition.common.NodeContainer;
+import com.alibaba.compileflow.engine.definition.common.TransitionNode;
+import com.alibaba.compileflow.engine.definition.common.action.IAction;
+import com.alibaba.compileflow.engine.definition.common.action.IActionHandle;
+import com.alibaba.compileflow.engine.definition.common.action.impl.JavaActionHandle;
+import com.alibaba.compileflow.engine.definition.common.action.impl.ScriptActionHandle;
+import com.alibaba.compileflow.engine.definition.common.action.impl.SpringBeanActionHandle;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
+import com.alibaba.compileflow.engine.definition.tbbpm.*;
+import com.alibaba.compileflow.engine.process.preruntime.generator.bean.BeanProvider;
+import com.alibaba.compileflow.engine.process.preruntime.generator.constansts.ActionType;
+import com.alibaba.compileflow.engine.process.preruntime.generator.script.ScriptExecutor;
+import com.alibaba.compileflow.engine.process.preruntime.generator.script.ScriptExecutorProvider;
+import com.alibaba.compileflow.engine.runtime.instance.FlowCancellation;
+import com.alibaba.compileflow.engine.runtime.instance.ProcessInstance;
+import com.ql.util.express.DefaultContext;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.reflect.MethodUtils;
+import org.mvel2.MVEL;
+import org.mvel2.ParserContext;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Execute a stateless tbbpm flow by walking its model, so that the flow runs before it is compiled. The walk
+ * follows exactly the code the generators emit for the flow: the same following and branch graphs, the same order of
+ * decision transitions, the same loops.
+ * <p>
+ * Java expressions of the flow, e.g. decision conditions and action parameters, are evaluated by MVEL, type
+ * checked against the flow vars. A flow is refused, and compiled as usual, as soon as an expression doesn't type
+ * check, contains a division, whose semantics differ from java, or a node type is not supported.
+ *
+ * @author yusu
+ */
+class TbbpmProcessInterpreter implements ProcessInstance {
+
+    private static final String LOOP_FOR = "loop";
+    private static final String LOOP_WHILE = "while";
+
+    private final TbbpmModel flowModel;
+
+    /**
+     * Engine owning the interpreted flow, which sub flows are executed through.
+     */
+    private final ProcessEngine<?> processEngine;
+
+    private final Map<String, List<TransitionNode>> followingGraph;
+
+    private final Map<String, List<TransitionNode>> branchGraph;
+
+    private final Map<String, Class<?>> varTypes = new HashMap<>();
+
+    private final Map<String, Serializable> expressions = new HashMap<>();
+
+    private final Map<IActionHandle, Method> actionMethods = new IdentityHashMap<>();
+
+    /**
+     * Trailing default transitions of decisions leading to an end node, which generate no code at all.
+     */
+    private final Set<Transition> skippedTransitions = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final ParserContext parserContext = new ParserContext();
+
+    /**
+     * @throws CompileFlowException if the flow can't be interpreted
+     */
+    TbbpmProcessInterpreter(TbbpmModel flowModel, Map<String, List<TransitionNode>> followingGraph,
+                            Map<String, List<TransitionNode>> branchGraph, ProcessEngine<?> processEngine) {
+        this.flowModel = flowModel;
+        this.processEngine = processEngine;
+        this.followingGraph = followingGraph;
+        this.branchGraph = branchGraph;
+        parserContext.setStrictTypeEnforcement(true);
+        parserContext.setStrongTyping(true);
+        for (IVar var : flowModel.getVars()) {
+            declareVar(var.getName(), getJavaClass(var.getDataType()));
+        }
+        declareLoopVars(flowModel);
+        for (IVar var : flowModel.getVars()) {
+            prepareDefaultValue(var);
+        }
+        prepare(flowModel);
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> context) throws Exception {
+        Map<String, Object> vars = new HashMap<>();
+        for (IVar var : flowModel.getVars()) {
+            vars.put(var.getName(), getDefaultValue(var, vars));
+        }
+        for (IVar paramVar : flowModel.getParamVars()) {
+            vars.put(paramVar.getName(), coerce(context.get(paramVar.getName()), varTypes.get(paramVar.getName())));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        if (executeContainer(flowModel, vars, result) != Completion.RETURN) {
+            putReturnVars(vars, result);
+        }
+        return result;
+    }
+
+    private void declareVar(String name, Class<?> type) {
+        varTypes.put(name, type);
+        parserContext.addInput(name, type);
+    }
+
+    private void declareLoopVars(NodeContainer<? extends TransitionNode> container) {
+        for (TransitionNode node : container.getAllNodes()) {
+            if (node instanceof LoopProcessNode) {
+                LoopProcessNode loopNode = (LoopProcessNode) node;
+                if (StringUtils.isNotEmpty(loopNode.getIndexVarName())) {
+                    declareVar(loopNode.getIndexVarName(), int.class);
+                }
+                if (StringUtils.isNotEmpty(loopNode.getVariableName())) {
+                    declareVar(loopNode.getVariableName(), loadClass(loopNode.getVariableClass()));
+                }
+                declareLoopVars(loopNode);
+            }
+        }
+    }
+
+    private void prepare(NodeContainer<? extends TransitionNode> container) {
+        for (TransitionNode node : container.getAllNodes()) {
+            if (node instanceof AutoTaskNode || node instanceof ScriptTaskNode) {
+                prepareAction(((ActionNode) node).getAction());
+            } else if (node instanceof DecisionNode) {
+                prepareDecision((DecisionNode) node);
+            } else if (node instanceof LoopProcessNode) {
+                prepareLoop((LoopProcessNode) node);
+            } else if (node instanceof BreakNode) {
+                prepareExpression(((BreakNode) node).getExpression());
+            } else if (node instanceof ContinueNode) {
+                prepareExpression(((ContinueNode) node).getExpression());
+            } else if (node instanceof SubBpmNode) {
+                SubBpmNode subBpmNode = (SubBpmNode) node;
+                prepareParams(subBpmNode.getParamVars());
+                IVar returnVar = subBpmNode.getReturnVar();
+                if (returnVar != null) {
+                    prepareAssignment(returnVar.getContextVarName());
+                }
+            } else if (!(node instanceof StartNode || node instanceof EndNode || node instanceof NoteNode
+                || node instanceof WaitTaskNode || node instanceof WaitEventNode)) {
+                throw new CompileFlowException("Unsupported node type: " + node.getClass().getName());
+            }
+        }
+    }
+
+    private void prepareDecision(DecisionNode decisionNode) {
+        prepareAction(decisionNode.getAction());
+        List<Transition> transitions = decisionNode.getOutgoingTransitions();
+        for (int i = 0; i < transitions.size(); i++) {
+            Transition transition = transitions.get(i);
+            if (StringUtils.isEmpty(transition.getExpression())) {
+                if (i > 0 && i == transitions.size() - 1
+                    && flowModel.getNode(transition.getTo()) instanceof EndElement) {
+                    skippedTransitions.add(transition);
+                }
+            } else {
+                prepareExpression(transition.getExpression());
+            }
+        }
+    }
+
+    private void prepareLoop(LoopProcessNode loopNode) {
+        String loopType = loopNode.getLoopType();
+        if (StringUtils.isEmpty(loopType) || LOOP_FOR.equals(loopType)) {
+            prepareExpression(loopNode.getCollectionVarName());
+        } else if (LOOP_WHILE.equals(loopType)) {
+            prepareExpression(loopNode.getWhileExpression());
+        } else {
+            throw new CompileFlowException("Unsupported loop type: " + loopType);
+        }
+        prepare(loopNode);
+    }
+
+    private void prepareAction(IAction action) {
+        if (action == null) {
+            return;
+        }
+        IActionHandle actionHandle = action.getActionHandle();
+        String type = action.getType();
+        if (ActionType.JAVA.getValue().equals(type)) {
+            JavaActionHandle javaActionHandle = (JavaActionHandle) actionHandle;
+            actionMethods.put(actionHandle, getMethod(javaActionHandle.getClazz(), javaActionHandle.getMethod(),
+                actionHandle.getParamVars()));
+        } else if (ActionType.SPRING_BEAN.getValue().equals(type)) {
+            SpringBeanActionHandle springBeanActionHandle = (SpringBeanActionHandle) actionHandle;
+            actionMethods.put(actionHandle, getMethod(springBeanActionHandle.getClazz(),
+                springBeanActionHandle.getMethod(), actionHandle.getParamVars()));
+        } else if (!ActionType.QL.getValue().equals(type) && !ActionType.MVEL.getValue().equals(type)) {
+            throw new CompileFlowException("Action not supported, action type is " + type);
+        }
+        prepareParams(actionHandle.getParamVars());
+        IVar returnVar = actionHandle.getReturnVar();
+        if (returnVar != null && returnVar.getContextVarName() != null) {
+            prepareAssignment(returnVar.getContextVarName());
+        }
+    }
+
+    private void prepareParams(List<IVar> params) {
+        for (IVar param : params) {
+            if (param.getContextVarName() != null) {
+                prepareExpression(param.getContextVarName());
+            } else {
+                prepareDefaultValue(param);
+            }
+        }
+    }
+
+    private void prepareDefaultValue(IVar var) {
+        if (isDefaultValueExpression(var.getDefaultValue())) {
+            prepareExpression(getDefaultValueExpression(var));
+        }
+    }
+
+    private void prepareAssignment(String varName) {
+        if (!varTypes.containsKey(varName)) {
+            throw new CompileFlowException("Unsupported assignment to " + varName);
+        }
+    }
+
+    private void prepareExpression(String expression) {
+        if (StringUtils.isEmpty(expression) || expressions.containsKey(expression)) {
+            return;
+        }
+        if (expression.indexOf('/') >= 0) {
+            throw new CompileFlowException("Unsupported division in expression " + expression);
+        }
+        try {
+            expressions.put(expression, MVEL.compileExpression(expression, parserContext));
+        } catch (Exception e) {
+            throw new CompileFlowException("Unsupported expression " + expression, e);
+        }
+    }
+
+    private Method getMethod(String className, String methodName, List<IVar> params) {
+        Class<?> clazz = loadClass(className);
+        Class<?>[] paramTypes = params.stream().map(IVar::getDataType).map(TbbpmProcessInterpreter::getJavaClass)
+            .toArray(Class<?>[]::new);
+        // resolved like javac does, with boxing and widening of the declared param types
+        Method method = MethodUtils.getMatchingAccessibleMethod(clazz, methodName, paramTypes);
+        if (method == null) {
+            throw new CompileFlowException("Unsupported method " + className + "." + methodName);
+        }
+        return method;
+    }
+
+    private Class<?> loadClass(String className) {
+        if (className == null) {
+            return Object.class;
+        }
+        try {
+            return ClassLoaderUtils.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new CompileFlowException("Class not found " + className, e);
+        }
+    }
+
+    private Completion executeContainer(NodeContainer<? extends TransitionNode> container, Map<String, Object> vars,
+                                        Map<String, Object> result) throws Exception {
+        return executeFrom((TransitionNode) container.getStartNode(), vars, result);
+    }
+
+    private Completion executeFrom(TransitionNode node, Map<String, Object> vars, Map<String, Object> result)
+        throws Exception {
+        if (node instanceof EndElement) {
+            return Completion.NORMAL;
+        }
+        Completion completion = executeNode(node, vars, result);
+        if (completion != Completion.NORMAL || node instanceof GatewayElement) {
+            return completion;
+        }
+        for (TransitionNode outgoingNode : node.getOutgoingNodes()) {
+            completion = executeFrom(outgoingNode, vars, result);
+            if (completion != Completion.NORMAL) {
+                return completion;
+            }
+        }
+        return Completion.NORMAL;
+    }
+
+    private Completion executeNodes(List<TransitionNode> nodes, Map<String, Object> vars,
+                                    Map<String, Object> result) throws Exception {
+        if (CollectionUtils.isNotEmpty(nodes)) {
+            for (TransitionNode node : nodes) {
+                Completion completion = executeNode(node, vars, result);
+                if (completion != Completion.NORMAL) {
+                    return completion;
+                }
+            }
+        }
+        return Completion.NORMAL;
+    }
+
+    private Completion executeNode(TransitionNode node, Map<String, Object> vars, Map<String, Object> result)
+        throws Exception {
+        FlowCancellation.checkpoint();
+        if (node instanceof AutoTaskNode || node instanceof ScriptTaskNode) {
+            executeAction(((ActionNode) node).getAction(), vars);
+        } else if (node instanceof DecisionNode) {
+            return executeDecision((DecisionNode) node, vars, result);
+        } else if (node instanceof LoopProcessNode) {
+            return executeLoop((LoopProcessNode) node, vars, result);
+        } else if (node instanceof BreakNode) {
+            return isTrue(((BreakNode) node).getExpression(), vars) ? Completion.BREAK : Completion.NORMAL;
+        } else if (node instanceof ContinueNode) {
+            return isTrue(((ContinueNode) node).getExpression(), vars) ? Completion.CONTINUE : Completion.NORMAL;
+        } else if (node instanceof SubBpmNode) {
+            executeSubBpm((SubBpmNode) node, vars);
+        } else if (node instanceof WaitTaskNode) {
+            return Completion.RETURN;
+        } else if (node instanceof WaitEventNode) {
+            putReturnVars(vars, result);
+            return Completion.RETURN;
+        }
+        return Completion.NORMAL;
+    }
+
+    private Completion executeDecision(DecisionNode decisionNode, Map<String, Object> vars,
+                                       Map<String, Object> result) throws Exception {
+        executeAction(decisionNode.getAction(), vars);
+        for (Transition transition : decisionNode.getOutgoingTransitions()) {
+            if (skippedTransitions.contains(transition)) {
+                break;
+            }
+            if (isTrue(transition.getExpression(), vars)) {
+                Completion completion = executeNodes(branchGraph.get(transition.getTo()), vars, result);
+                if (completion != Completion.NORMAL) {
+                    return completion;
+                }
+                break;
+            }
+        }
+        return executeNodes(followingGraph.get(decisionNode.getId()), vars, result);
+    }
+
+    private Completion executeLoop(LoopProcessNode loopNode, Map<String, Object> vars,
+                                   Map<String, Object> result) throws Exception {
+        String index = loopNode.getIndexVarName();
+        String loopType = loopNode.getLoopType();
+        try {
+            if (StringUtils.isEmpty(loopType) || LOOP_FOR.equals(loopType)) {
+                if (StringUtils.isNotEmpty(index)) {
+                    vars.put(index, -1);
+                }
+                for (Object item : toIterable(evaluate(loopNode.getCollectionVarName(), vars))) {
+                    if (StringUtils.isNotEmpty(index)) {
+                        vars.put(index, (Integer) vars.get(index) + 1);
+                    }
+                    vars.put(loopNode.getVariableName(), item);
+                    Completion completion = executeContainer(loopNode, vars, result);
+                    if (completion == Completion.BREAK) {
+                        break;
+                    }
+                    if (completion == Completion.RETURN) {
+                        return completion;
+                    }
+                }
+            } else {
+                if (StringUtils.isNotEmpty(index)) {
+                    vars.put(index, 0);
+                }
+                while (isTrue(loopNode.getWhileExpression(), vars)) {
+                    Completion completion = executeContainer(loopNode, vars, result);
+                    if (completion == Completion.BREAK) {
+                        break;
+                    }
+                    if (completion == Completion.RETURN) {
+                        return completion;
+                    }
+                    if (StringUtils.isNotEmpty(index)) {
+                        vars.put(index, (Integer) vars.get(index) + 1);
+                    }
+                }
+            }
+            return Completion.NORMAL;
+        } finally {
+            if (StringUtils.isNotEmpty(index)) {
+                vars.remove(index);
+            }
+            if (StringUtils.isNotEmpty(loopNode.getVariableName())) {
+                vars.remove(loopNode.getVariableName());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void executeAction(IAction action, Map<String, Object> vars) throws Exception {
+        if (action == null) {
+            return;
+        }
+        IActionHandle actionHandle = action.getActionHandle();
+        String type = action.getType();
+        Object value;
+        if (ActionType.JAVA.getValue().equals(type)) {
+            Object target = ObjectFactory.getInstance(((JavaActionHandle) actionHandle).getClazz());
+            value = invoke(target, actionMethods.get(actionHandle), getParamValues(actionHandle.getParamVars(), vars));
+        } else if (ActionType.SPRING_BEAN.getValue().equals(type)) {
+            Object target = BeanProvider.getBean(((SpringBeanActionHandle) actionHandle).getBean());
+            value = invoke(target, actionMethods.get(actionHandle), getParamValues(actionHandle.getParamVars(), vars));
+        } else {
+            boolean ql = ActionType.QL.getValue().equals(type);
+            Map<String, Object> scriptContext = ql ? new DefaultContext<>() : new HashMap<>();
+            for (IVar param : actionHandle.getParamVars()) {
+                scriptContext.put(param.getName(), getParamValue(param, vars));
+            }
+            ScriptExecutor scriptExecutor = ScriptExecutorProvider.getInstance().getScriptExecutor(ql ? "QL" : "MVEL");
+            value = scriptExecutor.execute(((ScriptActionHandle) actionHandle).getExpression(), scriptContext);
+        }
+
+        IVar returnVar = actionHandle.getReturnVar();
+        if (returnVar != null && returnVar.getContextVarName() != null) {
+            assign(returnVar.getContextVarName(), value, vars);
+        }
+    }
+
+    private void executeSubBpm(SubBpmNode subBpmNode, Map<String, Object> vars) throws Exception {
+        Map<String, Object> subBpmContext = new HashMap<>();
+        for (IVar param : subBpmNode.getParamVars()) {
+            subBpmContext.put(param.getName(), getParamValue(param, vars));
+        }
+        Map<String, Object> subBpmResult = processEngine.execute(subBpmNode.getSubBpmCode(), subBpmContext);
+        IVar returnVar = subBpmNode.getReturnVar();
+        if (returnVar != null) {
+            assign(returnVar.getContextVarName(), subBpmResult.get(returnVar.getName()), vars);
+        }
+    }
+
+    private Object invoke(Object target, Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        }
+    }
+
+    private Object[] getParamValues(List<IVar> params, Map<String, Object> vars) {
+        Object[] values = new Object[params.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getParamValue(params.get(i), vars);
+        }
+        return values;
+    }
+
+    private Object getParamValue(IVar param, Map<String, Object> vars) {
+        if (param.getContextVarName() != null) {
+            return coerce(evaluate(param.getContextVarName(), vars), getJavaClass(param.getDataType()));
+        }
+        return getDefaultValue(param, vars);
+    }
+
+    private Object getDefaultValue(IVar var, Map<String, Object> vars) {
+        Class<?> type = getJavaClass(var.getDataType());
+        String defaultValue = var.getDefaultValue();
+        if (StringUtils.isBlank(defaultValue)) {
+            return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+        }
+        if (isDefaultValueExpression(defaultValue)) {
+            return coerce(evaluate(getDefaultValueExpression(var), vars), type);
+        }
+        return coerce(defaultValue, type);
+    }
+
+    /**
+     * Macros like <code>$arrayList</code> and <code>@</code> prefixed java expressions, evaluated on each execution.
+     */
+    private boolean isDefaultValueExpression(String defaultValue) {
+        return StringUtils.isNotBlank(defaultValue) && (defaultValue.startsWith("$") || defaultValue.startsWith("@"));
+    }
+
+    private String getDefaultValueExpression(IVar var) {
+        return DataType.getDefaultValueString(DataType.getJavaClass(var.getDataType()), var.getDefaultValue());
+    }
+
+    private void assign(String varName, Object value, Map<String, Object> vars) {
+        vars.put(varName, coerce(value, varTypes.get(varName)));
+    }
+
+    private void putReturnVars(Map<String, Object> vars, Map<String, Object> result) {
+        for (IVar returnVar : flowModel.getReturnVars()) {
+            result.put(returnVar.getName(), vars.get(returnVar.getName()));
+        }
+    }
+
+    private boolean isTrue(String expression, Map<String, Object> vars) {
+        return StringUtils.isEmpty(expression) || Boolean.TRUE.equals(evaluate(expression, vars));
+    }
+
+    private Object evaluate(String expression, Map<String, Object> vars) {
+        return MVEL.executeExpression(expressions.get(expression), vars);
+    }
+
+    /**
+     * Convert the value the way the generated code does, null can't be unboxed to a primitive.
+     */
+    private static Object coerce(Object value, Class<?> type) {
+        if (value == null) {
+            if (type.isPrimitive()) {
+                throw new NullPointerException("Can't assign null to " + type.getName());
+            }
+            return null;
+        }
+        if (ClassUtils.primitiveToWrapper(type).isInstance(value)) {
+            return value;
+        }
+        return DataType.transfer(value, type);
+    }
+
+    /**
+     * Raw class of the data type, type arguments like in <code>java.util.List&lt;java.lang.String&gt;</code> are
+     * dropped.
+     */
+    private static Class<?> getJavaClass(String dataType) {
+        int index = dataType.indexOf('<');
+        return DataType.getJavaClass(index == -1 ? dataType : dataType.substring(0, index));
+    }
+
+    private static Iterable<?> toIterable(Object collection) {
+        if (collection == null || !collection.getClass().isArray()) {
+            return (Iterable<?>) collection;
+        }
+        int length = Array.getLength(collection);
+        List<Object> items = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            items.add(Array.get(collection, i));
+        }
+        return items;
+    }
+
+    private enum Completion {
+        NORMAL, BREAK, CONTINUE, RETURN
+    }
+
+}
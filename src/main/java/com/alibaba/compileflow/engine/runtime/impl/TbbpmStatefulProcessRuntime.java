@@ -1,12 +1,23 @@
 package com.alibaba.compileflow.engine.runtime.impl;
 
+import com.alibaba.compileflow.engine.common.ClassWrapper;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
 import com.alibaba.compileflow.engine.definition.common.NodeContainer;
 import com.alibaba.compileflow.engine.definition.common.TransitionNode;
+import com.alibaba.compileflow.engine.definition.common.var.IVar;
 import com.alibaba.compileflow.engine.definition.tbbpm.*;
+import com.alibaba.compileflow.engine.process.preruntime.generator.code.MethodTarget;
+import com.alibaba.compileflow.engine.process.preruntime.generator.constansts.Modifier;
 import com.alibaba.compileflow.engine.process.preruntime.generator.factory.GeneratorProviderFactory;
 import com.alibaba.compileflow.engine.process.preruntime.generator.impl.tbbpm.*;
 import com.alibaba.compileflow.engine.process.preruntime.generator.provider.impl.TbbpmNodeGeneratorProvider;
+import com.alibaba.compileflow.engine.process.preruntime.validator.ValidateMessage;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * @author wuxiang
@@ -22,6 +33,14 @@ public class TbbpmStatefulProcessRuntime extends AbstractStatefulProcessRuntime<
         return new TbbpmStatefulProcessRuntime(tbbpmModel);
     }
 
+    private TbbpmStatefulProcessRuntime(String code, Class<?> compiledClass) {
+        super(code, compiledClass);
+    }
+
+    public static TbbpmStatefulProcessRuntime of(String code, Class<?> compiledClass) {
+        return new TbbpmStatefulProcessRuntime(code, compiledClass);
+    }
+
     @Override
     public FlowModelType getFlowModelType() {
         return FlowModelType.TBBPM;
@@ -65,6 +84,62 @@ public class TbbpmStatefulProcessRuntime extends AbstractStatefulProcessRuntime<
         }
     }
 
+    @Override
+    protected void generateWaitEventMethods() {
+        List<WaitEventNode> waitEventNodes = flowModel.getRuntimeNodes().stream()
+            .filter(node -> node instanceof WaitEventNode).map(node -> (WaitEventNode) node)
+            .filter(node -> StringUtils.isNotEmpty(node.getEventName())).collect(Collectors.toList());
+        if (waitEventNodes.isEmpty()) {
+            return;
+        }
+        generateWaitEventMethod("getWaitingEventName", waitEventNodes, node -> "\"" + node.getEventName() + "\"");
+        List<WaitEventNode> correlatedNodes = waitEventNodes.stream()
+            .filter(node -> StringUtils.isNotEmpty(node.getCorrelationKey())).collect(Collectors.toList());
+        if (!correlatedNodes.isEmpty()) {
+            generateWaitEventMethod("getCorrelationKey", correlatedNodes,
+                node -> "java.util.Objects.toString(" + node.getCorrelationKey() + ", null)");
+        }
+    }
+
+    private void generateWaitEventMethod(String name, List<WaitEventNode> waitEventNodes,
+                                         Function<WaitEventNode, String> value) {
+        MethodTarget method = new MethodTarget();
+        method.setClassTarget(classTarget);
+        method.setName(name);
+        method.setReturnType(ClassWrapper.of(String.class));
+        method.addModifier(Modifier.PUBLIC);
+        method.addBodyLine("if (" + CURRENT_TAG_FIELD + " == null) {");
+        method.addBodyLine("return null;");
+        method.addBodyLine("}");
+        method.addBodyLine("switch (" + CURRENT_TAG_FIELD + ") {");
+        for (WaitEventNode waitEventNode : waitEventNodes) {
+            method.addBodyLine("case \"" + waitEventNode.getTag() + "\": {");
+            method.addBodyLine("return " + value.apply(waitEventNode) + ";");
+            method.addBodyLine("}");
+        }
+        method.addBodyLine("default: {");
+        method.addBodyLine("return null;");
+        method.addBodyLine("}");
+        method.addBodyLine("}");
+        classTarget.addMethod(method);
+    }
+
+    @Override
+    protected List<ValidateMessage> validateFlowModel() {
+        List<ValidateMessage> validateMessages = super.validateFlowModel();
+        Set<String> varNames = getVars().stream().map(IVar::getName).collect(Collectors.toSet());
+        for (TransitionNode node : flowModel.getRuntimeNodes()) {
+            if (node instanceof WaitEventNode) {
+                String correlationKey = ((WaitEventNode) node).getCorrelationKey();
+                if (StringUtils.isNotEmpty(correlationKey) && !varNames.contains(correlationKey)) {
+                    validateMessages.add(ValidateMessage.fail("Correlation key [" + correlationKey
+                        + "] of node [" + node.getId() + "] is not a var"));
+                }
+            }
+        }
+        return validateMessages;
+    }
+
     @Override
     protected GeneratorProviderFactory getGeneratorProviderFactory() {
         return () -> new TbbpmNodeGeneratorProvider(this);
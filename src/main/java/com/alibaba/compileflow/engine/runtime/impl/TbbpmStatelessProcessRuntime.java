@@ -17,12 +17,22 @@
 package com.alibaba.compileflow.engine.runtime.impl;
 
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.definition.common.Node;
+import com.alibaba.compileflow.engine.definition.common.action.IAction;
+import com.alibaba.compileflow.engine.definition.common.action.impl.FlowActionHandle;
+import com.alibaba.compileflow.engine.definition.common.action.impl.SubBpmActionHandle;
 import com.alibaba.compileflow.engine.definition.common.NodeContainer;
 import com.alibaba.compileflow.engine.definition.common.TransitionNode;
 import com.alibaba.compileflow.engine.definition.tbbpm.*;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.RuntimeOption;
 import com.alibaba.compileflow.engine.process.preruntime.generator.factory.GeneratorProviderFactory;
 import com.alibaba.compileflow.engine.process.preruntime.generator.impl.tbbpm.*;
 import com.alibaba.compileflow.engine.process.preruntime.generator.provider.impl.TbbpmNodeGeneratorProvider;
+import com.alibaba.compileflow.engine.runtime.instance.ProcessInstance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * @author wuxiang
@@ -38,6 +48,14 @@ public class TbbpmStatelessProcessRuntime extends AbstractStatelessProcessRuntim
         return new TbbpmStatelessProcessRuntime(tbbpmModel);
     }
 
+    private TbbpmStatelessProcessRuntime(String code, Class<?> compiledClass) {
+        super(code, compiledClass);
+    }
+
+    public static TbbpmStatelessProcessRuntime of(String code, Class<?> compiledClass) {
+        return new TbbpmStatelessProcessRuntime(code, compiledClass);
+    }
+
     @Override
     public FlowModelType getFlowModelType() {
         return FlowModelType.TBBPM;
@@ -49,8 +67,15 @@ public class TbbpmStatelessProcessRuntime extends AbstractStatelessProcessRuntim
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void registerNodeGenerator(NodeContainer<TransitionNode> nodeContainer) {
+        registerNodeGenerator(nodeContainer, false);
+    }
+
+    /**
+     * @param inLoop whether the nodes are in a loop, see {@link LoopProcessGenerator}
+     */
+    @SuppressWarnings("unchecked")
+    private void registerNodeGenerator(NodeContainer<TransitionNode> nodeContainer, boolean inLoop) {
 
         if (nodeContainer == null) {
             throw new IllegalArgumentException("nodeContainer is null");
@@ -67,13 +92,13 @@ public class TbbpmStatelessProcessRuntime extends AbstractStatelessProcessRuntim
             } else if (node instanceof ScriptTaskNode) {
                 registerGenerator(node, new ScriptTaskGenerator(this, (ScriptTaskNode) node));
             } else if (node instanceof DecisionNode) {
-                registerGenerator(node, new DecisionGenerator(this, (DecisionNode) node));
+                registerGenerator(node, new DecisionGenerator(this, (DecisionNode) node, !inLoop));
             } else if (node instanceof StartNode) {
                 registerGenerator(node, new StartGenerator(this, (StartNode) node));
             } else if (node instanceof EndNode) {
                 registerGenerator(node, new EndGenerator(this, (EndNode) node));
             } else if (node instanceof LoopProcessNode) {
-                registerGenerator(node, new LoopProcessGenerator(this, (LoopProcessNode) node));
+                registerGenerator(node, new LoopProcessGenerator(this, (LoopProcessNode) node, !inLoop));
             } else if (node instanceof BreakNode) {
                 registerGenerator(node, new BreakGenerator(this, (BreakNode) node));
             } else if (node instanceof ContinueNode) {
@@ -91,7 +116,7 @@ public class TbbpmStatelessProcessRuntime extends AbstractStatelessProcessRuntim
             }
 
             if (node instanceof NodeContainer) {
-                registerNodeGenerator((NodeContainer) node);
+                registerNodeGenerator((NodeContainer) node, inLoop || node instanceof LoopProcessNode);
             }
         }
     }
@@ -101,6 +126,52 @@ public class TbbpmStatelessProcessRuntime extends AbstractStatelessProcessRuntim
         super.init();
     }
 
+    @Override
+    protected Set<String> getScopedVarNames() {
+        Set<String> varNames = new HashSet<>();
+        addLoopVarNames(flowModel, varNames);
+        return varNames;
+    }
+
+    private void addLoopVarNames(NodeContainer<?> nodeContainer, Set<String> varNames) {
+        for (Node node : nodeContainer.getAllNodes()) {
+            if (node instanceof LoopProcessNode) {
+                LoopProcessNode loopNode = (LoopProcessNode) node;
+                varNames.add(loopNode.getVariableName());
+                varNames.add(loopNode.getIndexVarName());
+                addLoopVarNames(loopNode, varNames);
+            }
+        }
+    }
+
+    /**
+     * Flows of plain tasks and decisions not calling other flows, and not larger than
+     * {@link RuntimeOption#getSubFlowInlineThreshold()}.
+     */
+    @Override
+    protected boolean isInlinable() {
+        List<FlowNode> nodes = flowModel.getAllNodes();
+        return nodes.size() <= runtimeOption.getSubFlowInlineThreshold()
+            && nodes.stream().allMatch(this::isInlinable) && !hasShadowedVars();
+    }
+
+    private boolean isInlinable(FlowNode node) {
+        if (node instanceof StartNode || node instanceof EndNode || node instanceof NoteNode) {
+            return true;
+        }
+        if (!(node instanceof AutoTaskNode) && !(node instanceof ScriptTaskNode) && !(node instanceof DecisionNode)) {
+            return false;
+        }
+        IAction action = ((ActionNode) node).getAction();
+        return action == null || !(action.getActionHandle() instanceof SubBpmActionHandle)
+            && !(action.getActionHandle() instanceof FlowActionHandle);
+    }
+
+    @Override
+    protected ProcessInstance createInterpreter() {
+        return new TbbpmProcessInterpreter(flowModel, followingGraph, branchGraph, getProcessEngine());
+    }
+
     @Override
     protected GeneratorProviderFactory getGeneratorProviderFactory() {
         return () -> new TbbpmNodeGeneratorProvider(this);
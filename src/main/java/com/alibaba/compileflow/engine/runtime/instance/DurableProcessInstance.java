@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+import java.util.Map;
+
+/**
+ * Stateful flow instance whose state is saved after a trigger and restored before the next one, so that the engine
+ * keeps the instance between triggers, see {@link com.alibaba.compileflow.engine.runtime.state.StateStore}.
+ *
+ * @author yusu
+ */
+public interface DurableProcessInstance extends StatefulProcessInstance {
+
+    /**
+     * @return tag of the node the instance stopped at, the start node of a new instance, null once the flow ended
+     */
+    String getCurrentTag();
+
+    /**
+     * @return event the instance waits for at its current tag, null if it doesn't stop at a wait event node
+     */
+    default String getWaitingEventName() {
+        return null;
+    }
+
+    /**
+     * @return correlation key of the event the instance waits for, null to correlate it by the instance id
+     */
+    default String getCorrelationKey() {
+        return null;
+    }
+
+    /**
+     * @return all flow vars, keyed by name
+     */
+    Map<String, Object> getVars();
+
+    /**
+     * Restore the flow vars, vars absent from the map are left as they are.
+     */
+    void setVars(Map<String, Object> vars);
+
+    /**
+     * @return the flow vars in the binary form of {@link com.alibaba.compileflow.engine.runtime.state.SnapshotOutput}
+     */
+    byte[] snapshot() throws Exception;
+
+    /**
+     * Restore the flow vars from a {@link #snapshot()}, possibly taken by an older version of the flow.
+     */
+    void restore(byte[] snapshot) throws Exception;
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cancellation of asynchronous flow executions. Flows check it between nodes, an asynchronous execution whose thread
+ * is interrupted, i.e. a cancelled one, stops before its next node. The interrupt status is kept, so that the caller
+ * still sees it. Synchronous executions ignore interrupts, they're up to the actions of the flow.
+ *
+ * @author yusu
+ */
+public class FlowCancellation {
+
+    private static final ThreadLocal<Boolean> CANCELLABLE = new ThreadLocal<>();
+
+    public static void checkpoint() {
+        if (Thread.currentThread().isInterrupted() && isCancellable()) {
+            throw new CancellationException("Flow execution is cancelled");
+        }
+    }
+
+    /**
+     * @return true if the execution on the current thread is cancellable
+     */
+    public static boolean isCancellable() {
+        return CANCELLABLE.get() != null;
+    }
+
+    /**
+     * Run an execution on the current thread, cancellable or not, e.g. an asynchronous one or a parallel branch of
+     * it. Whatever ran on the thread before is restored afterwards.
+     */
+    public static <V> V call(boolean cancellable, Callable<V> execution) throws Exception {
+        Boolean previous = CANCELLABLE.get();
+        if (cancellable) {
+            CANCELLABLE.set(Boolean.TRUE);
+        } else {
+            CANCELLABLE.remove();
+        }
+        try {
+            return execution.call();
+        } finally {
+            if (previous != null) {
+                CANCELLABLE.set(previous);
+            } else {
+                CANCELLABLE.remove();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+/**
+ * Stateless flow instance with a positional entry point, called by the flows linked to it as their sub flow, see
+ * {@link SubFlowLink}. Params and return vars are passed as arrays in the order the flow declares them, no map is
+ * built on either side.
+ *
+ * @author yusu
+ */
+public interface LinkedProcessInstance extends ProcessInstance {
+
+    /**
+     * @return names of the params of {@link #executeLinked(Object[])}, in order
+     */
+    String[] getParamNames();
+
+    /**
+     * @return names of the return vars of {@link #executeLinked(Object[])}, in order
+     */
+    String[] getReturnNames();
+
+    /**
+     * @return values of the return vars, in order, null if the flow stops at a wait node before reaching its end
+     */
+    Object[] executeLinked(Object[] params) throws Exception;
+
+}
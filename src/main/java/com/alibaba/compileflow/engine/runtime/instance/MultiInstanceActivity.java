@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+import com.alibaba.compileflow.engine.runtime.instance.ParallelBranches.Branch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel multi-instance activity, i.e. <code>isSequential="false"</code>: one instance of the activity per
+ * element of the input collection, run by a bounded number of workers on the executor of {@link ParallelBranches}.
+ * <p>
+ * Like branches, every instance works on its own copy of the flow vars, writes are merged in the order of the
+ * elements. Outputs are collected in the same order. Once an instance satisfies the completion condition, no
+ * further instance is started, those already running still complete and their outputs are kept.
+ *
+ * @author yusu
+ */
+public class MultiInstanceActivity {
+
+    private static final int DEFAULT_MAX_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param vars           values of the flow vars when forked
+     * @param collection     input collection, one instance per element
+     * @param maxConcurrency max number of instances running at the same time, the number of processors if not
+     *                       positive
+     * @param outputs        outputs of the instances which ran, in the order of their elements
+     * @return values of the flow vars merged from the instances
+     */
+    public static Object[] execute(Object[] vars, Iterable<?> collection, int maxConcurrency, Instance instance,
+                                   List<Object> outputs) throws Exception {
+        MultiInstanceResult[] results = fork(vars, collection, maxConcurrency, instance);
+        List<Object[]> instanceVars = new ArrayList<>(results.length);
+        for (MultiInstanceResult result : results) {
+            if (result != null) {
+                outputs.add(result.getOutput());
+                instanceVars.add(result.vars);
+            }
+        }
+        return ParallelBranches.merge(vars, instanceVars.toArray(new Object[0][]));
+    }
+
+    public static Object[] execute(Object[] vars, Object[] collection, int maxConcurrency, Instance instance,
+                                   List<Object> outputs) throws Exception {
+        return execute(vars, Arrays.asList(collection), maxConcurrency, instance, outputs);
+    }
+
+    /**
+     * @return results of the instances by element, null for those not started
+     */
+    static MultiInstanceResult[] fork(Object[] vars, Iterable<?> collection, int maxConcurrency, Instance instance)
+        throws Exception {
+        List<?> elements = toList(collection);
+        MultiInstanceResult[] results = new MultiInstanceResult[elements.size()];
+        if (results.length == 0) {
+            return results;
+        }
+
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicBoolean completed = new AtomicBoolean();
+        Branch worker = workerVars -> {
+            int index;
+            while (!completed.get() && (index = nextIndex.getAndIncrement()) < results.length) {
+                MultiInstanceResult result = new MultiInstanceResult();
+                try {
+                    result.vars = instance.execute(vars.clone(), elements.get(index), index, result);
+                } catch (Throwable t) {
+                    completed.set(true);
+                    throw t;
+                }
+                results[index] = result;
+                if (result.isCompleted()) {
+                    completed.set(true);
+                }
+            }
+            return workerVars;
+        };
+
+        Branch[] workers = new Branch[Math.min(maxConcurrency > 0 ? maxConcurrency : DEFAULT_MAX_CONCURRENCY,
+            results.length)];
+        Arrays.fill(workers, worker);
+        ParallelBranches.fork(vars, workers);
+        return results;
+    }
+
+    private static List<?> toList(Iterable<?> collection) {
+        if (collection instanceof List && collection instanceof RandomAccess) {
+            return (List<?>) collection;
+        }
+        List<Object> elements = new ArrayList<>();
+        collection.forEach(elements::add);
+        return elements;
+    }
+
+    /**
+     * Instance of a multi-instance activity, a method of the flow class.
+     */
+    @FunctionalInterface
+    public interface Instance {
+
+        /**
+         * @param vars    copy of the flow vars when forked
+         * @param element element of the input collection
+         * @param index   index of the element
+         * @param result  output and completion of the instance
+         * @return values of the flow vars at the end of the instance
+         */
+        Object[] execute(Object[] vars, Object element, int index, MultiInstanceResult result) throws Exception;
+
+    }
+
+}
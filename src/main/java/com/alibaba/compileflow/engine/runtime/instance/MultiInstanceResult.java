@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+/**
+ * What an instance of a multi-instance activity, or an iteration of a {@link ParallelLoop}, hands back besides the
+ * flow vars, set by the generated code.
+ *
+ * @author yusu
+ */
+public class MultiInstanceResult {
+
+    Object[] vars;
+
+    private Object output;
+
+    private boolean completed;
+
+    public Object getOutput() {
+        return output;
+    }
+
+    /**
+     * @param output value of the output element at the end of the instance
+     */
+    public void setOutput(Object output) {
+        this.output = output;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * The completion condition holds after this instance, or the iteration breaks the loop, no further instance is
+     * started.
+     */
+    public void complete() {
+        this.completed = true;
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+import com.alibaba.compileflow.engine.common.FlowExecutors;
+import com.alibaba.compileflow.engine.common.utils.ParamChecker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Concurrent branches of a parallel gateway, forked by the generated flow code and joined before the gateway's
+ * following nodes.
+ * <p>
+ * Every branch works on its own copy of the flow vars and returns them once done. Writes are merged in the order
+ * the branches are declared: a var changed by several branches takes the value of the last of them, so that the
+ * result doesn't depend on which branch finishes first. Objects shared by the branches, e.g. a list param, are not
+ * copied, changing them in place is up to the branches.
+ *
+ * @author yusu
+ */
+public class ParallelBranches {
+
+    private static volatile Executor executor = FlowExecutors.getDefaultExecutor();
+
+    /**
+     * Executor of the branches, virtual threads on JDK 21 and later by default. The first branch of a gateway
+     * always runs on the thread executing the flow, as do branches the executor rejects.
+     */
+    public static void setExecutor(Executor executor) {
+        ParamChecker.notNull(executor, "executor is null");
+        ParallelBranches.executor = executor;
+    }
+
+    /**
+     * A var changed by several branches takes the value of the last of them in declaration order, as if the
+     * branches ran one after another, whatever order they actually complete in.
+     *
+     * @param vars values of the flow vars when forked
+     * @return values of the flow vars merged from the branches
+     */
+    public static Object[] execute(Object[] vars, Branch... branches) throws Exception {
+        return merge(vars, fork(vars, branches));
+    }
+
+    /**
+     * @return values of the flow vars returned by each branch
+     */
+    static Object[][] fork(Object[] vars, Branch... branches) throws Exception {
+        Executor branchExecutor = executor;
+        boolean cancellable = FlowCancellation.isCancellable();
+        @SuppressWarnings("unchecked")
+        FutureTask<Object[]>[] tasks = new FutureTask[branches.length];
+        for (int i = 1; i < branches.length; i++) {
+            Branch branch = branches[i];
+            tasks[i] = new FutureTask<>(() -> FlowCancellation.call(cancellable,
+                () -> branch.execute(vars.clone())));
+            try {
+                branchExecutor.execute(tasks[i]);
+            } catch (RejectedExecutionException e) {
+                tasks[i].run();
+            }
+        }
+
+        Object[][] branchVars = new Object[branches.length][];
+        try {
+            branchVars[0] = branches[0].execute(vars.clone());
+            for (int i = 1; i < branches.length; i++) {
+                branchVars[i] = tasks[i].get();
+            }
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Flow execution is cancelled");
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        } catch (Throwable t) {
+            cancel(tasks);
+            throw t;
+        }
+        return branchVars;
+    }
+
+    /**
+     * Execute the activated branches only, e.g. those of an inclusive gateway whose condition is true.
+     *
+     * @param activated whether each branch is activated
+     * @return values of the flow vars merged from the activated branches, the forked ones if none is activated
+     */
+    public static Object[] execute(Object[] vars, boolean[] activated, Branch... branches) throws Exception {
+        List<Branch> activatedBranches = new ArrayList<>(branches.length);
+        for (int i = 0; i < branches.length; i++) {
+            if (activated[i]) {
+                activatedBranches.add(branches[i]);
+            }
+        }
+        if (activatedBranches.isEmpty()) {
+            return vars;
+        }
+        return execute(vars, activatedBranches.toArray(new Branch[0]));
+    }
+
+    static Object[] merge(Object[] vars, Object[][] branchVars) {
+        Object[] mergedVars = vars.clone();
+        for (Object[] values : branchVars) {
+            for (int i = 0; i < values.length; i++) {
+                if (!Objects.equals(values[i], vars[i])) {
+                    mergedVars[i] = values[i];
+                }
+            }
+        }
+        return mergedVars;
+    }
+
+    private static void cancel(FutureTask<?>[] tasks) {
+        for (FutureTask<?> task : tasks) {
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Branch of a parallel gateway, a method of the flow class.
+     */
+    @FunctionalInterface
+    public interface Branch {
+
+        /**
+         * @param vars copy of the flow vars when forked
+         * @return values of the flow vars at the end of the branch
+         */
+        Object[] execute(Object[] vars) throws Exception;
+
+    }
+
+}
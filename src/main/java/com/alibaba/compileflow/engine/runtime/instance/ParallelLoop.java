@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+import com.alibaba.compileflow.engine.runtime.instance.MultiInstanceActivity.Instance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parallel foreach loop, whose iterations run like the instances of a {@link MultiInstanceActivity}: each on its
+ * own copy of the flow vars, by a bounded number of workers.
+ * <p>
+ * The result is that of running the loop sequentially, as long as iterations don't depend on each other: writes
+ * to the flow vars are merged in the order of the elements, the last iteration changing a var wins. A
+ * <code>continue</code> ends its own iteration only. A <code>break</code>, see
+ * {@link MultiInstanceResult#complete()}, starts no further iteration and drops the writes of the iterations
+ * after it, even of those already run.
+ *
+ * @author yusu
+ */
+public class ParallelLoop {
+
+    /**
+     * @param vars           values of the flow vars before the loop
+     * @param collection     elements iterated over
+     * @param maxConcurrency max number of iterations running at the same time, the number of processors if not
+     *                       positive
+     * @return values of the flow vars merged from the iterations
+     */
+    public static Object[] execute(Object[] vars, Iterable<?> collection, int maxConcurrency, Instance iteration)
+        throws Exception {
+        MultiInstanceResult[] results = MultiInstanceActivity.fork(vars, collection, maxConcurrency, iteration);
+        List<Object[]> iterationVars = new ArrayList<>(results.length);
+        for (MultiInstanceResult result : results) {
+            // iterations are started in order, none before a break is missing
+            if (result == null) {
+                break;
+            }
+            iterationVars.add(result.vars);
+            if (result.isCompleted()) {
+                break;
+            }
+        }
+        return ParallelBranches.merge(vars, iterationVars.toArray(new Object[0][]));
+    }
+
+    public static Object[] execute(Object[] vars, Object[] collection, int maxConcurrency, Instance iteration)
+        throws Exception {
+        return execute(vars, Arrays.asList(collection), maxConcurrency, iteration);
+    }
+
+}
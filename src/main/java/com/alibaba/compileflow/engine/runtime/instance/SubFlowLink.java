@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+import com.alibaba.compileflow.engine.ProcessEngineFactory;
+import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.process.impl.AbstractProcessEngine;
+import com.alibaba.compileflow.engine.runtime.impl.AbstractProcessRuntime;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Call of a sub flow, held by the generated class of the calling flow. The sub flow is resolved on the first call
+ * only, later calls go straight to its {@link LinkedProcessInstance positional entry point}, without looking up the
+ * engine or the runtime and without any map.
+ * <p>
+ * A link is bound to the version of the sub flow it resolved, see {@link AbstractProcessEngine#getRuntimeVersion()},
+ * the next call after a reload resolves the sub flow again. Sub flows still interpreted, see
+ * {@link AbstractProcessRuntime#isInterpreted()}, or lacking the positional entry point, e.g. pre-built by former
+ * versions, are started with a context map until they're compiled.
+ *
+ * @author yusu
+ */
+public class SubFlowLink {
+
+    private final String code;
+
+    private final String[] paramNames;
+
+    private final String[] returnNames;
+
+    private volatile Target target;
+
+    private SubFlowLink(String code, String[] paramNames, String[] returnNames) {
+        this.code = code;
+        this.paramNames = paramNames;
+        this.returnNames = returnNames;
+    }
+
+    /**
+     * @param paramNames  names of the params passed to the sub flow, in the order of {@link #execute(Object[])}
+     * @param returnNames names of the return vars of the sub flow, in the order of the result
+     */
+    public static SubFlowLink of(String code, String[] paramNames, String[] returnNames) {
+        return new SubFlowLink(code, paramNames, returnNames);
+    }
+
+    /**
+     * @return values of the return vars, null for those the sub flow doesn't have or doesn't reach
+     */
+    public Object[] execute(Object[] params) {
+        Target target = getTarget();
+        if (target.instanceFactory == null) {
+            return executeByContext(target.runtime, params);
+        }
+
+        Object[] linkedParams = new Object[target.paramIndexes.length];
+        for (int i = 0; i < linkedParams.length; i++) {
+            int paramIndex = target.paramIndexes[i];
+            linkedParams[i] = paramIndex < 0 ? null : params[paramIndex];
+        }
+        Object[] linkedResult;
+        try {
+            linkedResult = ((LinkedProcessInstance) target.instanceFactory.newInstance()).executeLinked(linkedParams);
+        } catch (CompileFlowException | CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompileFlowException("Failed to execute process, code is " + code, e);
+        }
+
+        Object[] result = new Object[returnNames.length];
+        for (int i = 0; i < result.length; i++) {
+            int returnIndex = target.returnIndexes[i];
+            result[i] = returnIndex < 0 || linkedResult == null ? null : linkedResult[returnIndex];
+        }
+        return result;
+    }
+
+    private Object[] executeByContext(AbstractProcessRuntime<?> runtime, Object[] params) {
+        Map<String, Object> context = new HashMap<>();
+        for (int i = 0; i < paramNames.length; i++) {
+            context.put(paramNames[i], params[i]);
+        }
+        Map<String, Object> contextResult = runtime.start(context);
+        Object[] result = new Object[returnNames.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = contextResult.get(returnNames[i]);
+        }
+        return result;
+    }
+
+    private Target getTarget() {
+        Target current = target;
+        if (current == null || current.isStale()) {
+            AbstractProcessEngine<?> engine = current == null
+                ? (AbstractProcessEngine<?>) ProcessEngineFactory.getProcessEngine() : current.engine;
+            current = resolve(engine);
+            target = current;
+        }
+        return current;
+    }
+
+    private Target resolve(AbstractProcessEngine<?> engine) {
+        // read the version first, a reload in between only resolves the sub flow once more
+        long version = engine.getRuntimeVersion();
+        AbstractProcessRuntime<?> runtime = engine.getSubFlowRuntime(code);
+        if (runtime.isInterpreted()) {
+            return new Target(engine, version, runtime, true, null, null, null);
+        }
+
+        FlowInstanceFactory<?> instanceFactory = runtime.getFlowInstanceFactory();
+        FlowInstance instance = instanceFactory.newInstance();
+        if (!(instance instanceof LinkedProcessInstance)) {
+            return new Target(engine, version, runtime, false, null, null, null);
+        }
+        LinkedProcessInstance linkedInstance = (LinkedProcessInstance) instance;
+        return new Target(engine, version, runtime, false, instanceFactory,
+            getIndexes(linkedInstance.getParamNames(), paramNames),
+            getIndexes(returnNames, linkedInstance.getReturnNames()));
+    }
+
+    /**
+     * @return index in <code>sourceNames</code> of each of <code>targetNames</code>, the last one if repeated, -1 if
+     * missing
+     */
+    private static int[] getIndexes(String[] targetNames, String[] sourceNames) {
+        List<String> names = Arrays.asList(sourceNames);
+        int[] indexes = new int[targetNames.length];
+        for (int i = 0; i < targetNames.length; i++) {
+            indexes[i] = names.lastIndexOf(targetNames[i]);
+        }
+        return indexes;
+    }
+
+    private static class Target {
+
+        private final AbstractProcessEngine<?> engine;
+
+        private final long version;
+
+        private final AbstractProcessRuntime<?> runtime;
+
+        /**
+         * Whether the sub flow was still interpreted, it's resolved again once compiled.
+         */
+        private final boolean interpreted;
+
+        private final FlowInstanceFactory<?> instanceFactory;
+
+        /**
+         * Index in the params of the link of each param of the sub flow.
+         */
+        private final int[] paramIndexes;
+
+        /**
+         * Index in the return vars of the sub flow of each return var of the link.
+         */
+        private final int[] returnIndexes;
+
+        private Target(AbstractProcessEngine<?> engine, long version, AbstractProcessRuntime<?> runtime,
+                       boolean interpreted, FlowInstanceFactory<?> instanceFactory, int[] paramIndexes,
+                       int[] returnIndexes) {
+            this.engine = engine;
+            this.version = version;
+            this.runtime = runtime;
+            this.interpreted = interpreted;
+            this.instanceFactory = instanceFactory;
+            this.paramIndexes = paramIndexes;
+            this.returnIndexes = returnIndexes;
+        }
+
+        private boolean isStale() {
+            return version != engine.getRuntimeVersion() || interpreted && !runtime.isInterpreted();
+        }
+
+    }
+
+}
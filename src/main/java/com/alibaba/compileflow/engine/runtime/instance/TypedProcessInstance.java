@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.instance;
+
+/**
+ * Typed entry point of a stateless flow, see
+ * {@link com.alibaba.compileflow.engine.ProcessEngine#getTypedInstance(String, Class, Class)}. Executions always run
+ * the compiled flow, they're never interpreted, and follow the reloads of the flow.
+ *
+ * @author yusu
+ */
+public interface TypedProcessInstance<I, O> {
+
+    /**
+     * @return new output holding the return vars of the flow, whose members are left alone if the flow stops at a
+     * wait node before reaching its end
+     */
+    O execute(I input);
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state;
+
+/**
+ * State of a stateful flow instance between two triggers.
+ *
+ * @author yusu
+ */
+public class ProcessState {
+
+    private String code;
+
+    private String currentTag;
+
+    private String eventName;
+
+    private String correlationKey;
+
+    private byte[] snapshot;
+
+    public static ProcessState of(String code, String currentTag, byte[] snapshot) {
+        return of(code, currentTag, null, null, snapshot);
+    }
+
+    /**
+     * @param eventName      event the instance waits for, null if it doesn't stop at a wait event node
+     * @param correlationKey key telling which instance of those waiting for the event is meant
+     */
+    public static ProcessState of(String code, String currentTag, String eventName, String correlationKey,
+                                  byte[] snapshot) {
+        ProcessState state = new ProcessState();
+        state.code = code;
+        state.currentTag = currentTag;
+        state.eventName = eventName;
+        state.correlationKey = correlationKey;
+        state.snapshot = snapshot;
+        return state;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return tag of the node the instance stopped at, where the next trigger resumes it
+     */
+    public String getCurrentTag() {
+        return currentTag;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    public String getCorrelationKey() {
+        return correlationKey;
+    }
+
+    /**
+     * @return the flow vars of the instance, as encoded by its runtime
+     */
+    public byte[] getSnapshot() {
+        return snapshot;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state;
+
+import com.alibaba.compileflow.engine.process.preruntime.compiler.CompileConstants;
+
+import java.io.InvalidClassException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classes allowed in the serialized values of snapshots, checked for every object of a value both when it's written
+ * and when it's read, so that a tampered state store can't have arbitrary classes deserialized. See
+ * {@link CompileConstants#FLOW_SNAPSHOT_SERIALIZABLE_CLASSES}.
+ *
+ * @author yusu
+ */
+class SerializableClassFilter {
+
+    /**
+     * The value types and collections of the JDK, superclasses included since every class of the stream is checked.
+     * Values of <code>java.time</code> are all serialized as <code>java.time.Ser</code>, the interfaces and
+     * <code>Object</code> only show up as the component types of arrays, none of them can be instantiated by a stream.
+     */
+    private static final List<String> DEFAULT_PATTERNS = Arrays.asList("java.io.Serializable", "java.lang.Object",
+        "java.lang.Comparable", "java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Double", "java.lang.Enum", "java.lang.Float", "java.lang.Integer",
+        "java.lang.Long", "java.lang.Number", "java.lang.Short", "java.lang.String", "java.math.BigDecimal",
+        "java.math.BigInteger", "java.time.Ser", "java.util.ArrayDeque", "java.util.ArrayList", "java.util.Date",
+        "java.util.HashMap", "java.util.HashSet", "java.util.LinkedHashMap", "java.util.LinkedHashSet",
+        "java.util.LinkedList", "java.util.Locale", "java.util.TreeMap", "java.util.TreeSet", "java.util.UUID",
+        "java.util.Arrays$ArrayList", "java.util.Collections$EmptyList", "java.util.Collections$EmptyMap",
+        "java.util.Collections$EmptySet", "java.util.Collections$SingletonList",
+        "java.util.Collections$SingletonMap", "java.util.Collections$SingletonSet",
+        "java.util.Collections$UnmodifiableCollection", "java.util.Collections$UnmodifiableList",
+        "java.util.Collections$UnmodifiableMap", "java.util.Collections$UnmodifiableRandomAccessList",
+        "java.util.Collections$UnmodifiableSet");
+
+    private static final List<String> PATTERNS = getPatterns(CompileConstants.FLOW_SNAPSHOT_SERIALIZABLE_CLASSES);
+
+    private SerializableClassFilter() {
+    }
+
+    static void check(String className) throws InvalidClassException {
+        if (!isAllowed(className)) {
+            throw new InvalidClassException(className, "Class of snapshot value is not allowed, see "
+                + "compileflow.snapshot.serializableClasses");
+        }
+    }
+
+    /**
+     * @param className binary name of the class, arrays are allowed if their component type is
+     */
+    static boolean isAllowed(String className) {
+        int dimensions = 0;
+        while (dimensions < className.length() && className.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        if (dimensions > 0) {
+            if (className.charAt(dimensions) != 'L') {
+                return true;
+            }
+            className = className.substring(dimensions + 1, className.length() - 1);
+        }
+
+        String packageName = className.substring(0, Math.max(className.lastIndexOf('.'), 0));
+        for (String pattern : PATTERNS) {
+            if (pattern.endsWith(".**")) {
+                String prefix = pattern.substring(0, pattern.length() - 3);
+                if (packageName.equals(prefix) || packageName.startsWith(prefix + ".")) {
+                    return true;
+                }
+            } else if (pattern.endsWith(".*")) {
+                if (packageName.equals(pattern.substring(0, pattern.length() - 2))) {
+                    return true;
+                }
+            } else if (className.equals(pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> getPatterns(String classes) {
+        List<String> patterns = new ArrayList<>(DEFAULT_PATTERNS);
+        for (String pattern : classes.split(",")) {
+            if (!pattern.trim().isEmpty()) {
+                patterns.add(pattern.trim());
+            }
+        }
+        return patterns;
+    }
+
+}
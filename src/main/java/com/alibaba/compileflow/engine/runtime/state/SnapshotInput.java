@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reader of the snapshots written by {@link SnapshotOutput}, created by {@link SnapshotSchema#newInput(byte[])}.
+ *
+ * @author yusu
+ */
+public class SnapshotInput {
+
+    private final byte[] buffer;
+
+    private int position;
+
+    private boolean sameSchema;
+
+    private String[] names;
+
+    private char[] typeCodes;
+
+    SnapshotInput(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return true if the snapshot was written with the schema of the reading flow, so that vars are read in order
+     */
+    public boolean isSameSchema() {
+        return sameSchema;
+    }
+
+    /**
+     * Read all vars by the schema the snapshot was written with, for snapshots of another version of the flow.
+     *
+     * @return vars keyed by name
+     */
+    public Map<String, Object> readVars() throws IOException {
+        Map<String, Object> vars = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            vars.put(names[i], readVar(typeCodes[i]));
+        }
+        return vars;
+    }
+
+    public boolean readBoolean() throws IOException {
+        byte value = readByte();
+        if (value != SnapshotOutput.TRUE && value != SnapshotOutput.FALSE) {
+            throw new IOException("Corrupted snapshot, bad boolean " + value);
+        }
+        return value == SnapshotOutput.TRUE;
+    }
+
+    public byte readByte() throws IOException {
+        require(1);
+        return buffer[position++];
+    }
+
+    public short readShort() throws IOException {
+        return (short) readInt();
+    }
+
+    public char readChar() throws IOException {
+        return (char) readLength();
+    }
+
+    public int readInt() throws IOException {
+        int zigzag = readLength();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    public long readLong() throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Corrupted snapshot, varint too long");
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readFixedLong());
+    }
+
+    /**
+     * Read a value tagged with its type.
+     */
+    public Object readValue() throws IOException {
+        byte tag = readByte();
+        switch (tag) {
+            case SnapshotOutput.NULL:
+                return null;
+            case SnapshotOutput.TRUE:
+                return Boolean.TRUE;
+            case SnapshotOutput.FALSE:
+                return Boolean.FALSE;
+            case SnapshotOutput.INT:
+                return readInt();
+            case SnapshotOutput.LONG:
+                return readLong();
+            case SnapshotOutput.DOUBLE:
+                return readDouble();
+            case SnapshotOutput.FLOAT:
+                return readFloat();
+            case SnapshotOutput.SHORT:
+                return readShort();
+            case SnapshotOutput.BYTE:
+                return readByte();
+            case SnapshotOutput.CHAR:
+                return readChar();
+            case SnapshotOutput.STRING:
+                return readString();
+            case SnapshotOutput.BIG_DECIMAL:
+                int scale = readInt();
+                return new BigDecimal(new BigInteger(readByteArray()), scale);
+            case SnapshotOutput.BIG_INTEGER:
+                return new BigInteger(readByteArray());
+            case SnapshotOutput.DATE:
+                return new Date(readLong());
+            case SnapshotOutput.ARRAY_LIST:
+                int listSize = readSize();
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue());
+                }
+                return list;
+            case SnapshotOutput.HASH_SET:
+                int setSize = readSize();
+                Set<Object> set = new HashSet<>();
+                for (int i = 0; i < setSize; i++) {
+                    set.add(readValue());
+                }
+                return set;
+            case SnapshotOutput.HASH_MAP:
+                return readEntries(new HashMap<>());
+            case SnapshotOutput.LINKED_HASH_MAP:
+                return readEntries(new LinkedHashMap<>());
+            case SnapshotOutput.SERIALIZED:
+                return deserialize(readByteArray());
+            default:
+                throw new IOException("Corrupted snapshot, unknown value tag " + tag);
+        }
+    }
+
+    void setSchema(boolean sameSchema, String[] names, char[] typeCodes) {
+        this.sameSchema = sameSchema;
+        this.names = names;
+        this.typeCodes = typeCodes;
+    }
+
+    int readLength() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupted snapshot, varint too long");
+    }
+
+    int readFixedInt() throws IOException {
+        require(4);
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (buffer[position++] & 0xff);
+        }
+        return value;
+    }
+
+    long readFixedLong() throws IOException {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xff);
+        }
+        return value;
+    }
+
+    String readString() throws IOException {
+        int length = readLength();
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private Object readVar(char typeCode) throws IOException {
+        switch (typeCode) {
+            case 'Z':
+                return readBoolean();
+            case 'B':
+                return readByte();
+            case 'S':
+                return readShort();
+            case 'C':
+                return readChar();
+            case 'I':
+                return readInt();
+            case 'J':
+                return readLong();
+            case 'F':
+                return readFloat();
+            case 'D':
+                return readDouble();
+            case SnapshotSchema.OBJECT_TYPE_CODE:
+                return readValue();
+            default:
+                throw new IOException("Corrupted snapshot, unknown type code " + typeCode);
+        }
+    }
+
+    private byte[] readByteArray() throws IOException {
+        int length = readLength();
+        require(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    private Map<Object, Object> readEntries(Map<Object, Object> entries) throws IOException {
+        int size = readSize();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue();
+            entries.put(key, readValue());
+        }
+        return entries;
+    }
+
+    /**
+     * @return size of a collection, whose elements take a byte at least
+     */
+    private int readSize() throws IOException {
+        int size = readLength();
+        require(size);
+        return size;
+    }
+
+    private void require(int length) throws IOException {
+        if (length < 0 || length > buffer.length - position) {
+            throw new EOFException("Truncated snapshot");
+        }
+    }
+
+    /**
+     * Only the classes allowed by {@link SerializableClassFilter} are resolved, proxies never are. Classes are
+     * resolved from the context class loader first, which sees the classes of the application even when the engine
+     * is loaded by a parent class loader.
+     */
+    private static Object deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                SerializableClassFilter.check(desc.getName());
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                if (classLoader != null) {
+                    try {
+                        return Class.forName(desc.getName(), false, classLoader);
+                    } catch (ClassNotFoundException e) {
+                        // fall back to the default resolution
+                    }
+                }
+                return super.resolveClass(desc);
+            }
+
+            @Override
+            protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+                throw new InvalidClassException("Proxy of snapshot value is not allowed");
+            }
+        }) {
+            return objectInputStream.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Class of snapshot value not found", e);
+        }
+    }
+
+}
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the vars of a stateful flow, written by the flow class in the order of its
+ * {@link SnapshotSchema}. Vars of primitive types are written as is, ints and longs as zigzag varints, other vars
+ * are tagged with the type of their value. Values of the common JDK types are encoded natively, any other value
+ * falls back to Java serialization, restricted to the classes allowed by {@link SerializableClassFilter}.
+ *
+ * @author yusu
+ */
+public class SnapshotOutput {
+
+    static final byte NULL = 0;
+    static final byte TRUE = 1;
+    static final byte FALSE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte FLOAT = 6;
+    static final byte SHORT = 7;
+    static final byte BYTE = 8;
+    static final byte CHAR = 9;
+    static final byte STRING = 10;
+    static final byte BIG_DECIMAL = 11;
+    static final byte BIG_INTEGER = 12;
+    static final byte DATE = 13;
+    static final byte ARRAY_LIST = 14;
+    static final byte HASH_MAP = 15;
+    static final byte LINKED_HASH_MAP = 16;
+    static final byte HASH_SET = 17;
+    static final byte SERIALIZED = 18;
+
+    private byte[] buffer;
+
+    private int size;
+
+    SnapshotOutput() {
+        this(64);
+    }
+
+    SnapshotOutput(int capacity) {
+        buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? TRUE : FALSE);
+    }
+
+    public void writeByte(byte value) {
+        ensureCapacity(1);
+        buffer[size++] = value;
+    }
+
+    public void writeShort(short value) {
+        writeInt(value);
+    }
+
+    public void writeChar(char value) {
+        writeLength(value);
+    }
+
+    public void writeInt(int value) {
+        writeLength((value << 1) ^ (value >> 31));
+    }
+
+    public void writeLong(long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        ensureCapacity(10);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[size++] = (byte) zigzag;
+    }
+
+    public void writeFloat(float value) {
+        writeFixedInt(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        writeFixedLong(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Write a value tagged with its type.
+     */
+    public void writeValue(Object value) throws IOException {
+        if (value == null) {
+            writeByte(NULL);
+        } else if (value instanceof String) {
+            writeByte(STRING);
+            writeString((String) value);
+        } else if (value instanceof Integer) {
+            writeByte(INT);
+            writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            writeByte(LONG);
+            writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            writeByte(DOUBLE);
+            writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            writeByte(FLOAT);
+            writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            writeByte(SHORT);
+            writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            writeByte(BYTE);
+            writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            writeByte(CHAR);
+            writeChar((Character) value);
+        } else if (value instanceof BigDecimal) {
+            writeByte(BIG_DECIMAL);
+            writeInt(((BigDecimal) value).scale());
+            writeByteArray(((BigDecimal) value).unscaledValue().toByteArray());
+        } else if (value instanceof BigInteger) {
+            writeByte(BIG_INTEGER);
+            writeByteArray(((BigInteger) value).toByteArray());
+        } else if (value.getClass() == Date.class) {
+            writeByte(DATE);
+            writeLong(((Date) value).getTime());
+        } else if (value.getClass() == ArrayList.class) {
+            writeByte(ARRAY_LIST);
+            writeValues((Collection<?>) value);
+        } else if (value.getClass() == HashSet.class) {
+            writeByte(HASH_SET);
+            writeValues((Collection<?>) value);
+        } else if (value.getClass() == HashMap.class) {
+            writeByte(HASH_MAP);
+            writeEntries((Map<?, ?>) value);
+        } else if (value.getClass() == LinkedHashMap.class) {
+            writeByte(LINKED_HASH_MAP);
+            writeEntries((Map<?, ?>) value);
+        } else {
+            writeByte(SERIALIZED);
+            writeByteArray(serialize(value));
+        }
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    void writeLength(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    void writeFixedInt(int value) {
+        ensureCapacity(4);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeFixedLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    void writeString(String value) {
+        writeByteArray(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeByteArray(byte[] bytes) {
+        writeLength(bytes.length);
+        writeBytes(bytes);
+    }
+
+    private void writeValues(Collection<?> values) throws IOException {
+        writeLength(values.size());
+        for (Object value : values) {
+            writeValue(value);
+        }
+    }
+
+    private void writeEntries(Map<?, ?> entries) throws IOException {
+        writeLength(entries.size());
+        for (Map.Entry<?, ?> entry : entries.entrySet()) {
+            writeValue(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    /**
+     * Values which couldn't be read back are rejected when written already.
+     */
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream) {
+            private boolean rejected;
+
+            {
+                enableReplaceObject(true);
+            }
+
+            @Override
+            protected Object replaceObject(Object obj) throws IOException {
+                // the stream writes the exception of a rejected object once it fails, that one goes through
+                if (!rejected && !SerializableClassFilter.isAllowed(obj.getClass().getName())) {
+                    rejected = true;
+                    SerializableClassFilter.check(obj.getClass().getName());
+                }
+                return obj;
+            }
+        }) {
+            objectOutputStream.writeObject(value);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private void ensureCapacity(int length) {
+        if (size + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the snapshots of a stateful flow, i.e. its vars in declared order, see {@link SnapshotOutput}. A
+ * snapshot starts with the format version, the fingerprint of the schema it was written with and the names and
+ * type codes of the vars. Snapshots of the same schema are read positionally, those written before the flow
+ * changed its vars are read by name, see {@link SnapshotInput#readVars()}.
+ *
+ * @author yusu
+ */
+public class SnapshotSchema {
+
+    static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Type code of vars which are not primitives, their values are written tagged with their type.
+     */
+    static final char OBJECT_TYPE_CODE = 'L';
+
+    private final String[] names;
+
+    private final char[] typeCodes;
+
+    private final long fingerprint;
+
+    private final byte[] header;
+
+    private SnapshotSchema(String[] names, String[] types) {
+        this.names = names;
+        this.typeCodes = new char[types.length];
+        for (int i = 0; i < types.length; i++) {
+            typeCodes[i] = getTypeCode(types[i]);
+        }
+        this.fingerprint = getFingerprint(names, types);
+
+        SnapshotOutput output = new SnapshotOutput();
+        output.writeByte(FORMAT_VERSION);
+        output.writeFixedLong(fingerprint);
+        output.writeLength(names.length);
+        for (int i = 0; i < names.length; i++) {
+            output.writeString(names[i]);
+            output.writeByte((byte) typeCodes[i]);
+        }
+        this.header = output.toByteArray();
+    }
+
+    /**
+     * @param names names of the vars, in the order they're written
+     * @param types declared types of the vars
+     */
+    public static SnapshotSchema of(String[] names, String[] types) {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("names and types differ in length");
+        }
+        return new SnapshotSchema(names, types);
+    }
+
+    /**
+     * @return the JVM descriptor of primitive types, {@link #OBJECT_TYPE_CODE} otherwise
+     */
+    public static char getTypeCode(String type) {
+        switch (type) {
+            case "boolean":
+                return 'Z';
+            case "byte":
+                return 'B';
+            case "short":
+                return 'S';
+            case "char":
+                return 'C';
+            case "int":
+                return 'I';
+            case "long":
+                return 'J';
+            case "float":
+                return 'F';
+            case "double":
+                return 'D';
+            default:
+                return OBJECT_TYPE_CODE;
+        }
+    }
+
+    /**
+     * @return output holding the header of the schema, the vars are written next
+     */
+    public SnapshotOutput newOutput() {
+        SnapshotOutput output = new SnapshotOutput(header.length + names.length * 4);
+        output.writeBytes(header);
+        return output;
+    }
+
+    /**
+     * @return input positioned at the first var
+     */
+    public SnapshotInput newInput(byte[] snapshot) throws IOException {
+        SnapshotInput input = new SnapshotInput(snapshot);
+        byte version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown snapshot format version " + version);
+        }
+        long snapshotFingerprint = input.readFixedLong();
+        int count = input.readLength();
+        String[] snapshotNames = new String[count];
+        char[] snapshotTypeCodes = new char[count];
+        for (int i = 0; i < count; i++) {
+            snapshotNames[i] = input.readString();
+            snapshotTypeCodes[i] = (char) input.readByte();
+        }
+        input.setSchema(snapshotFingerprint == fingerprint, snapshotNames, snapshotTypeCodes);
+        return input;
+    }
+
+    /**
+     * FNV-1a hash of the names and types of the vars.
+     */
+    private static long getFingerprint(String[] names, String[] types) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < names.length; i++) {
+            byte[] bytes = (names[i] + ":" + types[i] + ";").getBytes(StandardCharsets.UTF_8);
+            for (byte b : bytes) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Store of the states of stateful flow instances managed by the engine, keyed by instance id. The engine saves the
+ * state of an instance whenever it stops at a wait node, and removes it once the flow ends.
+ *
+ * @author yusu
+ */
+public interface StateStore {
+
+    /**
+     * @param instanceId id of the flow instance
+     * @return saved state, or null if the instance doesn't exist or has ended
+     */
+    ProcessState load(String instanceId);
+
+    void save(String instanceId, ProcessState state);
+
+    void remove(String instanceId);
+
+    /**
+     * Visit the saved states of all instances.
+     */
+    void forEach(BiConsumer<String, ProcessState> action);
+
+    /**
+     * Find the instances waiting for the event of the correlation key. This default scans all saved states, stores
+     * holding many instances should index them by the event they wait for.
+     *
+     * @return ids of the waiting instances, ids of other instances may also be returned, callers check
+     * {@link ProcessState#getEventName()} and {@link ProcessState#getCorrelationKey()} of the saved states
+     */
+    default List<String> findWaitingInstances(String eventName, String correlationKey) {
+        List<String> instanceIds = new ArrayList<>();
+        forEach((instanceId, state) -> {
+            if (eventName.equals(state.getEventName()) && Objects.equals(correlationKey, state.getCorrelationKey())) {
+                instanceIds.add(instanceId);
+            }
+        });
+        return instanceIds;
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Instances waiting for an event, keyed by the 64 bit hash of the event name and the correlation key. Both ways of
+ * the index are open addressing tables of plain arrays, so that millions of waiting instances cost no entry or
+ * boxed key objects. Hashes may collide, callers check the saved state of the instances they find. Not thread safe.
+ *
+ * @author yusu
+ */
+class CorrelationIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Hash of the event keyed to the instance id, or the set of ids if several instances wait for the same event.
+     */
+    private long[] eventHashes = new long[INITIAL_CAPACITY];
+
+    private Object[] waitingInstances = new Object[INITIAL_CAPACITY];
+
+    private int eventCount;
+
+    /**
+     * Instance id keyed to the hash of the event it waits for.
+     */
+    private String[] instanceIds = new String[INITIAL_CAPACITY];
+
+    private long[] instanceEventHashes = new long[INITIAL_CAPACITY];
+
+    private int instanceCount;
+
+    /**
+     * FNV-1a hash of the chars of the event name and the correlation key.
+     */
+    static long hash(String eventName, String correlationKey) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, eventName);
+        hash = (hash ^ 0xffff) * 0x100000001b3L;
+        return hash(hash, correlationKey);
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Index the instance as waiting for the event, replacing the event it waited for before.
+     */
+    void put(String instanceId, long eventHash) {
+        int slot = findInstance(instanceId);
+        if (instanceIds[slot] != null) {
+            if (instanceEventHashes[slot] == eventHash) {
+                return;
+            }
+            removeWaitingInstance(instanceEventHashes[slot], instanceId);
+            instanceEventHashes[slot] = eventHash;
+        } else {
+            instanceIds[slot] = instanceId;
+            instanceEventHashes[slot] = eventHash;
+            if (++instanceCount * 2 > instanceIds.length) {
+                resizeInstances();
+            }
+        }
+        addWaitingInstance(eventHash, instanceId);
+    }
+
+    void remove(String instanceId) {
+        int slot = findInstance(instanceId);
+        if (instanceIds[slot] == null) {
+            return;
+        }
+        removeWaitingInstance(instanceEventHashes[slot], instanceId);
+        deleteInstance(slot);
+    }
+
+    /**
+     * @return ids of the instances waiting for an event of the hash
+     */
+    @SuppressWarnings("unchecked")
+    List<String> get(long eventHash) {
+        Object value = waitingInstances[findEvent(eventHash)];
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (value instanceof String) {
+            return Collections.singletonList((String) value);
+        }
+        return Arrays.asList(((Set<String>) value).toArray(new String[0]));
+    }
+
+    int size() {
+        return instanceCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addWaitingInstance(long eventHash, String instanceId) {
+        int slot = findEvent(eventHash);
+        Object value = waitingInstances[slot];
+        if (value == null) {
+            eventHashes[slot] = eventHash;
+            waitingInstances[slot] = instanceId;
+            if (++eventCount * 2 > eventHashes.length) {
+                resizeEvents();
+            }
+        } else if (value instanceof String) {
+            Set<String> ids = new LinkedHashSet<>();
+            ids.add((String) value);
+            ids.add(instanceId);
+            waitingInstances[slot] = ids;
+        } else {
+            ((Set<String>) value).add(instanceId);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeWaitingInstance(long eventHash, String instanceId) {
+        int slot = findEvent(eventHash);
+        Object value = waitingInstances[slot];
+        if (value instanceof Set) {
+            Set<String> ids = (Set<String>) value;
+            ids.remove(instanceId);
+            if (ids.size() == 1) {
+                waitingInstances[slot] = ids.iterator().next();
+            }
+        } else if (instanceId.equals(value)) {
+            deleteEvent(slot);
+        }
+    }
+
+    private int findEvent(long eventHash) {
+        int mask = eventHashes.length - 1;
+        int slot = mix(eventHash) & mask;
+        while (waitingInstances[slot] != null && eventHashes[slot] != eventHash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findInstance(String instanceId) {
+        int mask = instanceIds.length - 1;
+        int slot = mix(instanceId.hashCode()) & mask;
+        while (instanceIds[slot] != null && !instanceIds[slot].equals(instanceId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Backward shift deletion, entries following the slot are moved up so that no probe sequence is broken.
+     */
+    private void deleteEvent(int slot) {
+        int mask = eventHashes.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (waitingInstances[next] != null) {
+            int home = mix(eventHashes[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                eventHashes[hole] = eventHashes[next];
+                waitingInstances[hole] = waitingInstances[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        waitingInstances[hole] = null;
+        eventCount--;
+    }
+
+    private void deleteInstance(int slot) {
+        int mask = instanceIds.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (instanceIds[next] != null) {
+            int home = mix(instanceIds[next].hashCode()) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                instanceIds[hole] = instanceIds[next];
+                instanceEventHashes[hole] = instanceEventHashes[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        instanceIds[hole] = null;
+        instanceCount--;
+    }
+
+    private void resizeEvents() {
+        long[] oldEventHashes = eventHashes;
+        Object[] oldWaitingInstances = waitingInstances;
+        eventHashes = new long[oldEventHashes.length * 2];
+        waitingInstances = new Object[oldWaitingInstances.length * 2];
+        for (int i = 0; i < oldEventHashes.length; i++) {
+            if (oldWaitingInstances[i] != null) {
+                int slot = findEvent(oldEventHashes[i]);
+                eventHashes[slot] = oldEventHashes[i];
+                waitingInstances[slot] = oldWaitingInstances[i];
+            }
+        }
+    }
+
+    private void resizeInstances() {
+        String[] oldInstanceIds = instanceIds;
+        long[] oldInstanceEventHashes = instanceEventHashes;
+        instanceIds = new String[oldInstanceIds.length * 2];
+        instanceEventHashes = new long[oldInstanceEventHashes.length * 2];
+        for (int i = 0; i < oldInstanceIds.length; i++) {
+            if (oldInstanceIds[i] != null) {
+                int slot = findInstance(oldInstanceIds[i]);
+                instanceIds[slot] = oldInstanceIds[i];
+                instanceEventHashes[slot] = oldInstanceEventHashes[i];
+            }
+        }
+    }
+
+    private static int mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+}
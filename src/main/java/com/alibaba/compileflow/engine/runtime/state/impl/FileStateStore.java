@@ -0,0 +1,534 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.compileflow.engine.runtime.state.impl;
+
+import com.alibaba.compileflow.engine.common.CompileFlowException;
+import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.CompileConstants;
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
+import com.alibaba.compileflow.engine.runtime.state.StateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the states in a single append-only log file. Every save or remove appends a record holding a CRC32
+ * checksum, and an in memory index points every instance to its latest record, so that loading a state is a single
+ * positional read. A torn record left by a crash fails the check and is truncated when the log is opened again.
+ * The log is compacted once superseded records outweigh the live ones, a failed compaction leaves the log as it
+ * was.
+ * <p>
+ * Instances waiting for an event are indexed by the event and correlation key they wait for, see
+ * {@link #findWaitingInstances(String, String)}. The index is kept up to date by the saves and removes and rebuilt
+ * from the records when the log is opened, without decoding any snapshot.
+ *
+ * @author yusu
+ */
+public class FileStateStore implements StateStore, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileStateStore.class);
+
+    private static final String LOG_FILE_SUFFIX = "-instances.log";
+
+    private static final int MAGIC = 0xCF1057A7;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_LENGTH = Integer.BYTES * 2;
+
+    private static final byte SAVE = 1;
+
+    private static final byte REMOVE = 2;
+
+    /**
+     * Save of an instance waiting for an event, the state holds the event name and correlation key.
+     */
+    private static final byte SAVE_CORRELATED = 3;
+
+    private static final long COMPACT_MIN_GARBAGE = 4L * 1024 * 1024;
+
+    private static final ConcurrentMap<FlowModelType, FileStateStore> DEFAULT_STORES = new ConcurrentHashMap<>();
+
+    private final File file;
+
+    private final boolean sync;
+
+    private final long compactMinGarbage;
+
+    private final Map<String, Location> locations = new HashMap<>();
+
+    private final CorrelationIndex index = new CorrelationIndex();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private FileChannel channel;
+
+    private long size;
+
+    private long liveBytes;
+
+    private long garbageBytes;
+
+    /**
+     * @param file log file, created if it doesn't exist
+     * @param sync whether every record is forced to the disk before save or remove returns
+     */
+    public FileStateStore(File file, boolean sync) {
+        this(file, sync, COMPACT_MIN_GARBAGE);
+    }
+
+    /**
+     * @param compactMinGarbage bytes of superseded records below which the log is never compacted
+     */
+    FileStateStore(File file, boolean sync, long compactMinGarbage) {
+        this.file = file;
+        this.sync = sync;
+        this.compactMinGarbage = compactMinGarbage;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new CompileFlowException("Failed to open state store " + file, e);
+        }
+    }
+
+    public FileStateStore(File file) {
+        this(file, true);
+    }
+
+    /**
+     * Instance ids are unique per model type only, every type has a log of its own.
+     *
+     * @return the store of the flows of the model type in {@link CompileConstants#FLOW_STATE_DIR}
+     */
+    public static FileStateStore getDefault(FlowModelType flowModelType) {
+        return DEFAULT_STORES.computeIfAbsent(flowModelType, type -> new FileStateStore(
+            new File(CompileConstants.FLOW_STATE_DIR, type.name().toLowerCase(Locale.ROOT) + LOG_FILE_SUFFIX)));
+    }
+
+    @Override
+    public ProcessState load(String instanceId) {
+        lock.readLock().lock();
+        try {
+            Location location = locations.get(instanceId);
+            return location == null ? null : readState(location);
+        } catch (IOException e) {
+            throw new CompileFlowException("Failed to load state of process instance " + instanceId, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(String instanceId, ProcessState state) {
+        append(instanceId, state);
+    }
+
+    @Override
+    public void remove(String instanceId) {
+        lock.readLock().lock();
+        try {
+            if (!locations.containsKey(instanceId)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        append(instanceId, null);
+    }
+
+    /**
+     * Ids of other instances may be returned in the rare case of hash collisions, callers check
+     * {@link ProcessState#getEventName()} and {@link ProcessState#getCorrelationKey()} of the saved states.
+     */
+    @Override
+    public List<String> findWaitingInstances(String eventName, String correlationKey) {
+        long eventHash = CorrelationIndex.hash(eventName, correlationKey);
+        lock.readLock().lock();
+        try {
+            return index.get(eventHash);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, ProcessState> action) {
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Location> entry : locations.entrySet()) {
+                action.accept(entry.getKey(), readState(entry.getValue()));
+            }
+        } catch (IOException e) {
+            throw new CompileFlowException("Failed to read state store " + file, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(String instanceId, ProcessState state) {
+        byte[] record;
+        try {
+            record = writeRecord(instanceId, state);
+        } catch (IOException e) {
+            throw new CompileFlowException("Failed to encode state of process instance " + instanceId, e);
+        }
+        lock.writeLock().lock();
+        try {
+            try {
+                channel.write(ByteBuffer.wrap(record), size);
+                if (sync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                throw new CompileFlowException("Failed to save state of process instance " + instanceId, e);
+            }
+            Location previous = state == null ? locations.remove(instanceId)
+                : locations.put(instanceId, new Location(size, record.length));
+            index(instanceId, state == null ? null : state.getEventName(),
+                state == null ? null : state.getCorrelationKey());
+            size += record.length;
+            if (previous != null) {
+                liveBytes -= previous.length;
+                garbageBytes += previous.length;
+            }
+            if (state == null) {
+                garbageBytes += record.length;
+            } else {
+                liveBytes += record.length;
+            }
+            if (garbageBytes > compactMinGarbage && garbageBytes > liveBytes) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    // the record is saved, compacting is tried again on a later save
+                    LOGGER.warn("Failed to compact state store " + file, e);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            throw new IOException("Failed to create state dir " + dir);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeHeader(channel);
+            size = HEADER_LENGTH;
+            return;
+        }
+
+        InputStream inputStream = Channels.newInputStream(channel.position(0));
+        DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
+        if (dataInputStream.readInt() != MAGIC || dataInputStream.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unknown state store format");
+        }
+        long offset = HEADER_LENGTH;
+        long fileSize = channel.size();
+        while (offset < fileSize) {
+            Record record;
+            try {
+                record = readRecord(dataInputStream, fileSize - offset, false);
+            } catch (IOException e) {
+                LOGGER.warn("Torn record of state store truncated, file is " + file + ", offset is " + offset, e);
+                channel.truncate(offset);
+                break;
+            }
+            Location previous = record.removed ? locations.remove(record.instanceId)
+                : locations.put(record.instanceId, new Location(offset, record.length));
+            index(record.instanceId, record.eventName, record.correlationKey);
+            if (previous != null) {
+                liveBytes -= previous.length;
+                garbageBytes += previous.length;
+            }
+            if (record.removed) {
+                garbageBytes += record.length;
+            } else {
+                liveBytes += record.length;
+            }
+            offset += record.length;
+        }
+        size = offset;
+    }
+
+    /**
+     * Copy the live records to a new log, which replaces the current one. The current log is kept open until it's
+     * replaced, and is opened again if it can't be.
+     */
+    private void compact() throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        Map<String, Location> newLocations = new HashMap<>();
+        long newSize;
+        try (FileChannel tmpChannel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeHeader(tmpChannel);
+            long offset = HEADER_LENGTH;
+            for (Map.Entry<String, Location> entry : locations.entrySet()) {
+                Location location = entry.getValue();
+                ByteBuffer buffer = ByteBuffer.allocate(location.length);
+                readFully(buffer, location.offset);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    tmpChannel.write(buffer, offset + buffer.position());
+                }
+                newLocations.put(entry.getKey(), new Location(offset, location.length));
+                offset += location.length;
+            }
+            tmpChannel.force(true);
+            newSize = offset;
+        } catch (IOException e) {
+            Files.deleteIfExists(tmpFile.toPath());
+            throw e;
+        }
+
+        // the log can't be replaced while open on some platforms
+        channel.close();
+        try {
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Files.deleteIfExists(tmpFile.toPath());
+            throw e;
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        locations.clear();
+        locations.putAll(newLocations);
+        size = newSize;
+        garbageBytes = 0;
+        syncDir();
+    }
+
+    /**
+     * Force the rename of the log to the disk, not supported on every platform.
+     */
+    private void syncDir() {
+        try (FileChannel dirChannel = FileChannel.open(file.getAbsoluteFile().getParentFile().toPath(),
+            StandardOpenOption.READ)) {
+            dirChannel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("Failed to sync state dir of " + file, e);
+        }
+    }
+
+    private ProcessState readState(Location location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.length);
+        readFully(buffer, location.offset);
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        return readRecord(dataInputStream, location.length, true).state;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("State store is truncated");
+            }
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.flip();
+        channel.write(header, 0);
+        channel.force(true);
+    }
+
+    /**
+     * A record is the length of its content, the content and its CRC32 checksum. The content is the operation, the
+     * instance id and for saves the state, along with the event it waits for if any.
+     */
+    private static byte[] writeRecord(String instanceId, ProcessState state) throws IOException {
+        ByteArrayOutputStream contentOutputStream = new ByteArrayOutputStream();
+        DataOutputStream contentDataOutputStream = new DataOutputStream(contentOutputStream);
+        boolean correlated = state != null && state.getEventName() != null;
+        contentDataOutputStream.writeByte(state == null ? REMOVE : correlated ? SAVE_CORRELATED : SAVE);
+        contentDataOutputStream.writeUTF(instanceId);
+        if (state != null) {
+            contentDataOutputStream.writeUTF(state.getCode());
+            contentDataOutputStream.writeUTF(state.getCurrentTag());
+            if (correlated) {
+                contentDataOutputStream.writeUTF(state.getEventName());
+                contentDataOutputStream.writeUTF(state.getCorrelationKey());
+            }
+            contentDataOutputStream.writeInt(state.getSnapshot().length);
+            contentDataOutputStream.write(state.getSnapshot());
+        }
+        contentDataOutputStream.flush();
+        byte[] content = contentOutputStream.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(content, 0, content.length);
+
+        ByteArrayOutputStream recordOutputStream = new ByteArrayOutputStream(content.length + Integer.BYTES
+            + Long.BYTES);
+        DataOutputStream recordDataOutputStream = new DataOutputStream(recordOutputStream);
+        recordDataOutputStream.writeInt(content.length);
+        recordDataOutputStream.write(content);
+        recordDataOutputStream.writeLong(crc32.getValue());
+        recordDataOutputStream.flush();
+        return recordOutputStream.toByteArray();
+    }
+
+    /**
+     * Index the instance by the event it waits for, if any.
+     */
+    private void index(String instanceId, String eventName, String correlationKey) {
+        if (eventName == null) {
+            index.remove(instanceId);
+        } else {
+            index.put(instanceId, CorrelationIndex.hash(eventName, correlationKey));
+        }
+    }
+
+    /**
+     * @param maxLength    bytes left to read, a torn length can't make the record any longer
+     * @param readSnapshot whether the state is decoded, only the instance id and the event it waits for otherwise
+     */
+    private static Record readRecord(DataInputStream dataInputStream, long maxLength, boolean readSnapshot)
+        throws IOException {
+        int contentLength = dataInputStream.readInt();
+        if (contentLength <= 0 || contentLength > maxLength - Integer.BYTES - Long.BYTES) {
+            throw new IOException("Record length is invalid");
+        }
+        byte[] content = new byte[contentLength];
+        dataInputStream.readFully(content);
+        CRC32 crc32 = new CRC32();
+        crc32.update(content, 0, content.length);
+        if (crc32.getValue() != dataInputStream.readLong()) {
+            throw new IOException("Record checksum mismatch");
+        }
+
+        DataInputStream contentInputStream = new DataInputStream(new ByteArrayInputStream(content));
+        byte operation = contentInputStream.readByte();
+        String instanceId = contentInputStream.readUTF();
+        int length = Integer.BYTES + contentLength + Long.BYTES;
+        if (operation == REMOVE) {
+            return new Record(instanceId, true, null, null, null, length);
+        } else if (operation != SAVE && operation != SAVE_CORRELATED) {
+            throw new IOException("Unknown record operation " + operation);
+        }
+        String code = contentInputStream.readUTF();
+        String currentTag = contentInputStream.readUTF();
+        String eventName = null;
+        String correlationKey = null;
+        if (operation == SAVE_CORRELATED) {
+            eventName = contentInputStream.readUTF();
+            correlationKey = contentInputStream.readUTF();
+        }
+        int snapshotLength = contentInputStream.readInt();
+        if (snapshotLength < 0 || snapshotLength > contentInputStream.available()) {
+            throw new IOException("Snapshot length is invalid");
+        }
+        if (!readSnapshot) {
+            return new Record(instanceId, false, eventName, correlationKey, null, length);
+        }
+        byte[] snapshot = new byte[snapshotLength];
+        contentInputStream.readFully(snapshot);
+        ProcessState state = ProcessState.of(code, currentTag, eventName, correlationKey, snapshot);
+        return new Record(instanceId, false, eventName, correlationKey, state, length);
+    }
+
+    private static class Location {
+
+        private final long offset;
+
+        private final int length;
+
+        private Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+    private static class Record {
+
+        private final String instanceId;
+
+        private final boolean removed;
+
+        private final String eventName;
+
+        private final String correlationKey;
+
+        /**
+         * Null for removes, and for saves read without the snapshot.
+         */
+        private final ProcessState state;
+
+        private final int length;
+
+        private Record(String instanceId, boolean removed, String eventName, String correlationKey,
+                       ProcessState state, int length) {
+            this.instanceId = instanceId;
+            this.removed = removed;
+            this.eventName = eventName;
+            this.correlationKey = correlationKey;
+            this.state = state;
+            this.length = length;
+        }
+
+    }
+
+}
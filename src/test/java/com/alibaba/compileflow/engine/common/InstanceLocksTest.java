@@ -0,0 +1,62 @@
+package com.alibaba.compileflow.engine.common;
+
+import com.alibaba.compileflow.engine.common.InstanceLocks.InstanceLock;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author yusu
+ */
+public class InstanceLocksTest {
+
+    @Test
+    public void testLockDroppedOnceReleased() {
+        InstanceLocks instanceLocks = new InstanceLocks();
+        try (InstanceLock instanceLock = instanceLocks.lock("order-1")) {
+            try (InstanceLock reentered = instanceLocks.lock("order-1")) {
+                Assert.assertSame(instanceLock, reentered);
+            }
+            Assert.assertEquals(1, instanceLocks.size());
+        }
+        Assert.assertEquals(0, instanceLocks.size());
+    }
+
+    @Test
+    public void testOtherInstancesNotBlocked() throws Exception {
+        InstanceLocks instanceLocks = new InstanceLocks();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> otherInstance;
+            Future<?> sameInstance;
+            CountDownLatch locked = new CountDownLatch(1);
+            try (InstanceLock instanceLock = instanceLocks.lock("order-1")) {
+                otherInstance = executor.submit(() -> instanceLocks.lock("order-2").close());
+                otherInstance.get(10, TimeUnit.SECONDS);
+
+                sameInstance = executor.submit(() -> {
+                    locked.countDown();
+                    instanceLocks.lock("order-1").close();
+                });
+                Assert.assertTrue(locked.await(10, TimeUnit.SECONDS));
+                try {
+                    sameInstance.get(100, TimeUnit.MILLISECONDS);
+                    Assert.fail("instance locked twice");
+                } catch (TimeoutException e) {
+                    // expected
+                }
+            }
+            sameInstance.get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(0, instanceLocks.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
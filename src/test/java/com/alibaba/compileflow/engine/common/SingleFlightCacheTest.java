@@ -0,0 +1,129 @@
+package com.alibaba.compileflow.engine.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * @author yusu
+ */
+public class SingleFlightCacheTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testLoadOnce() throws Exception {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>();
+        AtomicInteger loads = new AtomicInteger();
+        List<Future<String>> futures = getConcurrently(cache, code -> {
+            loads.incrementAndGet();
+            return code + "Flow";
+        });
+
+        for (Future<String> future : futures) {
+            Assert.assertEquals("orderFlow", future.get());
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals("orderFlow", cache.getIfPresent("order"));
+    }
+
+    @Test
+    public void testFailureNotCached() throws Exception {
+        SingleFlightCache<String, String> cache = new SingleFlightCache<>();
+        AtomicInteger loads = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("compile error");
+        List<Future<String>> futures = getConcurrently(cache, code -> {
+            loads.incrementAndGet();
+            throw failure;
+        });
+
+        for (Future<String> future : futures) {
+            try {
+                future.get();
+                Assert.fail("failure expected");
+            } catch (ExecutionException e) {
+                Assert.assertSame(failure, e.getCause());
+            }
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertNull(cache.getIfPresent("order"));
+        Assert.assertFalse(cache.containsKey("order"));
+
+        Assert.assertEquals("orderFlow", cache.get("order", code -> code + "Flow"));
+    }
+
+    /**
+     * Get the same key on many threads, the loader completes only once all the other threads wait for it.
+     */
+    private List<Future<String>> getConcurrently(SingleFlightCache<String, String> cache,
+                                                 Function<String, String> loader) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Thread> threads = new ArrayList<>();
+            CountDownLatch arrived = new CountDownLatch(THREADS);
+            Function<String, String> blockingLoader = code -> {
+                awaitOthers(arrived, threads);
+                return loader.apply(code);
+            };
+
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    arrived.countDown();
+                    return cache.get("order", blockingLoader);
+                }));
+            }
+            for (Future<String> future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    // checked by the caller
+                }
+            }
+            return futures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Once every thread has arrived, the only place the other threads can wait at is the pending load.
+     */
+    private static void awaitOthers(CountDownLatch arrived, List<Thread> threads) {
+        try {
+            Assert.assertTrue(arrived.await(10, TimeUnit.SECONDS));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (System.currentTimeMillis() < deadline) {
+                long waiting;
+                synchronized (threads) {
+                    waiting = threads.stream()
+                        .filter(thread -> thread != Thread.currentThread())
+                        .filter(thread -> thread.getState() == Thread.State.WAITING)
+                        .count();
+                }
+                if (waiting == THREADS - 1) {
+                    return;
+                }
+                Thread.sleep(1);
+            }
+            Assert.fail("threads don't wait for the pending load");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,235 @@
+package com.alibaba.compileflow.engine.runtime.state;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * @author yusu
+ */
+public class SnapshotInputTest {
+
+    private static final SnapshotSchema VALUE_SCHEMA = SnapshotSchema.of(new String[] {"value"},
+        new String[] {"java.lang.Object"});
+
+    @Test
+    public void testScalars() throws IOException {
+        for (Object value : Arrays.asList(null, true, false, (byte) -1, Byte.MIN_VALUE, (short) -300,
+            Short.MAX_VALUE, 'a', '￿', 0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0L, Long.MIN_VALUE,
+            Long.MAX_VALUE, 1.5f, Float.NaN, Float.NEGATIVE_INFINITY, -0.0d, Double.NaN, Double.MIN_VALUE, "",
+            "订单-order")) {
+            Object restored = roundTrip(value);
+            Assert.assertEquals(value, restored);
+            Assert.assertSame(value == null ? null : value.getClass(), restored == null ? null : restored.getClass());
+        }
+    }
+
+    @Test
+    public void testPrimitiveVars() throws IOException {
+        SnapshotSchema schema = SnapshotSchema.of(new String[] {"z", "b", "s", "c", "i", "j", "f", "d"},
+            new String[] {"boolean", "byte", "short", "char", "int", "long", "float", "double"});
+        SnapshotOutput output = schema.newOutput();
+        output.writeBoolean(true);
+        output.writeByte(Byte.MIN_VALUE);
+        output.writeShort(Short.MIN_VALUE);
+        output.writeChar(Character.MAX_VALUE);
+        output.writeInt(Integer.MIN_VALUE);
+        output.writeLong(Long.MIN_VALUE);
+        output.writeFloat(Float.NaN);
+        output.writeDouble(-Double.MAX_VALUE);
+
+        SnapshotInput input = schema.newInput(output.toByteArray());
+        Assert.assertTrue(input.isSameSchema());
+        Assert.assertTrue(input.readBoolean());
+        Assert.assertEquals(Byte.MIN_VALUE, input.readByte());
+        Assert.assertEquals(Short.MIN_VALUE, input.readShort());
+        Assert.assertEquals(Character.MAX_VALUE, input.readChar());
+        Assert.assertEquals(Integer.MIN_VALUE, input.readInt());
+        Assert.assertEquals(Long.MIN_VALUE, input.readLong());
+        Assert.assertTrue(Float.isNaN(input.readFloat()));
+        Assert.assertEquals(-Double.MAX_VALUE, input.readDouble(), 0);
+    }
+
+    @Test
+    public void testNumbersAndDates() throws IOException {
+        for (Object value : Arrays.asList(new BigDecimal("1.25"), new BigDecimal("-7E+3"),
+            new BigDecimal(BigInteger.TEN, -5), BigDecimal.ZERO, new BigInteger("-123456789012345678901234567890"),
+            BigInteger.ZERO, new Date(0), new Date(-1L), new Date(Long.MAX_VALUE))) {
+            Assert.assertEquals(value, roundTrip(value));
+        }
+        Assert.assertEquals(-5, ((BigDecimal) roundTrip(new BigDecimal(BigInteger.TEN, -5))).scale());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCollections() throws IOException {
+        Map<Object, Object> linkedHashMap = new LinkedHashMap<>();
+        for (int i = 20; i > 0; i--) {
+            linkedHashMap.put("key" + i, i % 3 == 0 ? null : Collections.singletonMap("n", i));
+        }
+        Map<Object, Object> hashMap = new HashMap<>();
+        hashMap.put(1, new ArrayList<>(Arrays.asList(1L, "two", null)));
+        hashMap.put(null, linkedHashMap);
+        List<Object> list = new ArrayList<>(Arrays.asList(hashMap, new ArrayList<>(), new HashSet<>(Arrays.asList(
+            "a", 'b', 3)), new ArrayList<>(Collections.singletonList(new ArrayList<>(Collections.singletonList(
+                new BigDecimal("0.1")))))));
+
+        List<Object> restored = (List<Object>) roundTrip(list);
+        Assert.assertEquals(list, restored);
+        Assert.assertSame(ArrayList.class, restored.getClass());
+        Map<Object, Object> restoredHashMap = (Map<Object, Object>) restored.get(0);
+        Assert.assertSame(HashMap.class, restoredHashMap.getClass());
+        Assert.assertSame(HashSet.class, restored.get(2).getClass());
+        Map<Object, Object> restoredLinkedHashMap = (Map<Object, Object>) restoredHashMap.get(null);
+        Assert.assertSame(LinkedHashMap.class, restoredLinkedHashMap.getClass());
+        Assert.assertEquals(new ArrayList<>(linkedHashMap.keySet()), new ArrayList<>(restoredLinkedHashMap.keySet()));
+    }
+
+    @Test
+    public void testSerializedValues() throws IOException {
+        TreeMap<String, LocalDate> treeMap = new TreeMap<>();
+        treeMap.put("b", LocalDate.of(2020, 2, 29));
+        treeMap.put("a", LocalDate.of(1970, 1, 1));
+        Assert.assertEquals(treeMap, roundTrip(treeMap));
+        Assert.assertArrayEquals(new int[] {1, 2}, (int[]) roundTrip(new int[] {1, 2}));
+        List<Object> linkedList = new LinkedList<>(Arrays.asList(Arrays.asList("a", 1), Collections.unmodifiableList(
+            new ArrayList<>(Collections.singletonList(UUID.randomUUID())))));
+        Assert.assertEquals(linkedList, roundTrip(linkedList));
+
+        // classes not allowed are rejected when written and when read, those of the JDK as well
+        try {
+            roundTrip(new Random());
+            Assert.fail("class not allowed written");
+        } catch (InvalidClassException e) {
+            Assert.assertEquals(Random.class.getName(), e.classname);
+        }
+        try {
+            roundTrip(new Order("order-1"));
+            Assert.fail("class not allowed written");
+        } catch (InvalidClassException e) {
+            Assert.assertEquals(Order.class.getName(), e.classname);
+        }
+        try {
+            roundTrip(new ArrayList<>(Collections.singletonList(new Order[] {new Order("order-1")})));
+            Assert.fail("class not allowed written");
+        } catch (InvalidClassException e) {
+            Assert.assertEquals(Order[].class.getName(), e.classname);
+        }
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(new TreeMap<>(Collections.singletonMap("order", new Order("order-1"))));
+        }
+        byte[] serialized = byteArrayOutputStream.toByteArray();
+        SnapshotOutput output = VALUE_SCHEMA.newOutput();
+        output.writeByte(SnapshotOutput.SERIALIZED);
+        output.writeLength(serialized.length);
+        output.writeBytes(serialized);
+        try {
+            VALUE_SCHEMA.newInput(output.toByteArray()).readValue();
+            Assert.fail("class not allowed read");
+        } catch (InvalidClassException e) {
+            Assert.assertEquals(Order.class.getName(), e.classname);
+        }
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        SnapshotOutput output = VALUE_SCHEMA.newOutput();
+        output.writeValue(new ArrayList<>(Arrays.asList("order", Long.MIN_VALUE, new BigDecimal("1.5"),
+            new TreeMap<>(Collections.singletonMap("a", 1)))));
+        byte[] snapshot = output.toByteArray();
+        for (int length = 0; length < snapshot.length; length++) {
+            try {
+                VALUE_SCHEMA.newInput(Arrays.copyOf(snapshot, length)).readValue();
+                Assert.fail("truncated snapshot read, length is " + length);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testCorrupted() throws IOException {
+        byte[] header = VALUE_SCHEMA.newOutput().toByteArray();
+        assertCorrupted(header, (byte) 99);
+        // a boolean byte which is neither true nor false
+        SnapshotSchema booleanSchema = SnapshotSchema.of(new String[] {"z"}, new String[] {"boolean"});
+        SnapshotOutput output = booleanSchema.newOutput();
+        output.writeByte((byte) 7);
+        try {
+            booleanSchema.newInput(output.toByteArray()).readBoolean();
+            Assert.fail("bad boolean read");
+        } catch (IOException e) {
+            // expected
+        }
+        // a varint longer than an int, and a length exceeding the snapshot
+        assertCorrupted(header, SnapshotOutput.INT, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            (byte) 0x01);
+        assertCorrupted(header, SnapshotOutput.STRING, (byte) 0xff, (byte) 0xff, (byte) 0x7f, (byte) 'a');
+        assertCorrupted(header, SnapshotOutput.ARRAY_LIST, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            (byte) 0x07);
+
+        byte[] snapshot = header.clone();
+        snapshot[0] = 2;
+        try {
+            VALUE_SCHEMA.newInput(snapshot);
+            Assert.fail("unknown version read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static void assertCorrupted(byte[] header, byte... value) {
+        byte[] snapshot = Arrays.copyOf(header, header.length + value.length);
+        System.arraycopy(value, 0, snapshot, header.length, value.length);
+        try {
+            VALUE_SCHEMA.newInput(snapshot).readValue();
+            Assert.fail("corrupted snapshot read");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static Object roundTrip(Object value) throws IOException {
+        SnapshotOutput output = VALUE_SCHEMA.newOutput();
+        output.writeValue(value);
+        SnapshotInput input = VALUE_SCHEMA.newInput(output.toByteArray());
+        Assert.assertTrue(input.isSameSchema());
+        return input.readValue();
+    }
+
+    private static class Order implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+
+        private Order(String id) {
+            this.id = id;
+        }
+
+    }
+
+}
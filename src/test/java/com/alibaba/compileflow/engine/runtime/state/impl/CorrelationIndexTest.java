@@ -0,0 +1,123 @@
+package com.alibaba.compileflow.engine.runtime.state.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author yusu
+ */
+public class CorrelationIndexTest {
+
+    @Test
+    public void testMoveBetweenEvents() {
+        CorrelationIndex index = new CorrelationIndex();
+        long paid = CorrelationIndex.hash("PaymentPendingCallback", "order-1");
+        long shipped = CorrelationIndex.hash("ShipmentCallback", "order-1");
+        index.put("instance-1", paid);
+        index.put("instance-1", paid);
+        Assert.assertEquals(Collections.singletonList("instance-1"), index.get(paid));
+
+        index.put("instance-1", shipped);
+        Assert.assertTrue(index.get(paid).isEmpty());
+        Assert.assertEquals(Collections.singletonList("instance-1"), index.get(shipped));
+        Assert.assertEquals(1, index.size());
+
+        index.remove("instance-1");
+        index.remove("instance-1");
+        Assert.assertTrue(index.get(shipped).isEmpty());
+        Assert.assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testSharedEvent() {
+        CorrelationIndex index = new CorrelationIndex();
+        long paid = CorrelationIndex.hash("PaymentPendingCallback", "order-1");
+        long shipped = CorrelationIndex.hash("ShipmentCallback", "order-1");
+        index.put("instance-1", paid);
+        index.put("instance-2", paid);
+        index.put("instance-3", paid);
+        Assert.assertEquals(Arrays.asList("instance-1", "instance-2", "instance-3"), index.get(paid));
+
+        // the set of ids collapses back to a single id, and grows again
+        index.remove("instance-2");
+        index.put("instance-3", shipped);
+        Assert.assertEquals(Collections.singletonList("instance-1"), index.get(paid));
+        index.put("instance-2", paid);
+        Assert.assertEquals(Arrays.asList("instance-1", "instance-2"), index.get(paid));
+        index.remove("instance-1");
+        index.remove("instance-2");
+        Assert.assertTrue(index.get(paid).isEmpty());
+        Assert.assertEquals(Collections.singletonList("instance-3"), index.get(shipped));
+        Assert.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRandomOperations() {
+        // ids made of "Aa" and "BB" share the same String hash code, and so the same slot
+        List<String> instanceIds = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            StringBuilder instanceId = new StringBuilder();
+            for (int bit = 0; bit < 8; bit++) {
+                instanceId.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            instanceIds.add(instanceId.toString());
+            instanceIds.add("instance-" + i);
+        }
+        // few events, most of them neighbouring hashes, so that slots collide too
+        List<Long> eventHashes = new ArrayList<>();
+        for (long i = 0; i < 48; i++) {
+            eventHashes.add(i);
+        }
+        for (int i = 0; i < 16; i++) {
+            eventHashes.add(CorrelationIndex.hash("PaymentPendingCallback", "order-" + i));
+        }
+
+        Random random = new Random(20201017L);
+        CorrelationIndex index = new CorrelationIndex();
+        Map<String, Long> reference = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String instanceId = instanceIds.get(random.nextInt(instanceIds.size()));
+            // removes outweigh inserts in the second half, the tables drain
+            if (random.nextInt(10) < (i < 10000 ? 3 : 7)) {
+                index.remove(instanceId);
+                reference.remove(instanceId);
+            } else {
+                long eventHash = eventHashes.get(random.nextInt(eventHashes.size()));
+                index.put(instanceId, eventHash);
+                reference.put(instanceId, eventHash);
+            }
+            if (i % 100 == 0 || i >= 19900) {
+                assertIndex(reference, eventHashes, index);
+            }
+        }
+        for (String instanceId : instanceIds) {
+            index.remove(instanceId);
+            reference.remove(instanceId);
+        }
+        assertIndex(reference, eventHashes, index);
+    }
+
+    private static void assertIndex(Map<String, Long> reference, List<Long> eventHashes, CorrelationIndex index) {
+        Assert.assertEquals(reference.size(), index.size());
+        Map<Long, Set<String>> waitingInstances = new HashMap<>();
+        reference.forEach((instanceId, eventHash) -> waitingInstances.computeIfAbsent(eventHash,
+            key -> new HashSet<>()).add(instanceId));
+        for (Long eventHash : eventHashes) {
+            List<String> found = index.get(eventHash);
+            Assert.assertEquals(found.size(), new HashSet<>(found).size());
+            Assert.assertEquals(waitingInstances.getOrDefault(eventHash, Collections.emptySet()),
+                new HashSet<>(found));
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.alibaba.compileflow.engine.runtime.state.impl;
+
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * @author yusu
+ */
+public class FileStateStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("compileflow", ".state");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        try (FileStateStore store = new FileStateStore(file)) {
+            store.save("order-1", newState("wait1", 1));
+            store.save("order-2", newState("wait1", 2));
+            store.save("order-3", ProcessState.of("order", "wait2", "PaymentPendingCallback", "order-3",
+                snapshot(3)));
+            store.save("order-4", ProcessState.of("order", "wait2", "PaymentPendingCallback", "order-4",
+                snapshot(4)));
+            store.save("order-1", newState("wait2", 11));
+            store.remove("order-2");
+            store.remove("order-4");
+        }
+
+        try (FileStateStore store = new FileStateStore(file)) {
+            assertState("wait2", 11, store.load("order-1"));
+            Assert.assertNull(store.load("order-2"));
+            ProcessState state = store.load("order-3");
+            assertState("wait2", 3, state);
+            Assert.assertEquals("PaymentPendingCallback", state.getEventName());
+            Assert.assertEquals("order-3", state.getCorrelationKey());
+            // the index is rebuilt from the log
+            Assert.assertEquals(Collections.singletonList("order-3"),
+                store.findWaitingInstances("PaymentPendingCallback", "order-3"));
+            Assert.assertTrue(store.findWaitingInstances("PaymentPendingCallback", "order-4").isEmpty());
+            store.save("order-3", newState("wait3", 3));
+            Assert.assertTrue(store.findWaitingInstances("PaymentPendingCallback", "order-3").isEmpty());
+        }
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        try (FileStateStore store = new FileStateStore(file)) {
+            store.save("order-1", newState("wait1", 1));
+            store.save("order-2", newState("wait1", 2));
+        }
+        long intactLength;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            intactLength = randomAccessFile.length();
+            randomAccessFile.setLength(intactLength - 3);
+        }
+
+        // the torn record is truncated, the store still takes new records
+        try (FileStateStore store = new FileStateStore(file)) {
+            assertState("wait1", 1, store.load("order-1"));
+            Assert.assertNull(store.load("order-2"));
+            store.save("order-3", newState("wait1", 3));
+        }
+        try (FileStateStore store = new FileStateStore(file)) {
+            assertState("wait1", 1, store.load("order-1"));
+            assertState("wait1", 3, store.load("order-3"));
+        }
+    }
+
+    @Test
+    public void testTornLength() throws IOException {
+        try (FileStateStore store = new FileStateStore(file)) {
+            store.save("order-1", newState("wait1", 1));
+        }
+        long intactLength = file.length();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.seek(intactLength);
+            randomAccessFile.writeInt(Integer.MAX_VALUE);
+            randomAccessFile.writeLong(0);
+        }
+
+        // the length exceeds the log, it's not allocated
+        try (FileStateStore store = new FileStateStore(file)) {
+            assertState("wait1", 1, store.load("order-1"));
+        }
+        Assert.assertEquals(intactLength, file.length());
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        long maxLength = 0;
+        try (FileStateStore store = new FileStateStore(file, false, 1024)) {
+            for (int i = 0; i < 1000; i++) {
+                store.save("order-" + i % 10, newState("wait" + i, i));
+                if (i % 10 == 9) {
+                    store.remove("order-0");
+                }
+                maxLength = Math.max(maxLength, file.length());
+            }
+            Assert.assertNull(store.load("order-0"));
+            for (int i = 1; i < 10; i++) {
+                assertState("wait" + (990 + i), 990 + i, store.load("order-" + i));
+            }
+        }
+        Assert.assertTrue(maxLength < 8 * 1024);
+
+        try (FileStateStore store = new FileStateStore(file)) {
+            Assert.assertNull(store.load("order-0"));
+            for (int i = 1; i < 10; i++) {
+                assertState("wait" + (990 + i), 990 + i, store.load("order-" + i));
+            }
+        }
+    }
+
+    private static ProcessState newState(String currentTag, int value) {
+        return ProcessState.of("order", currentTag, snapshot(value));
+    }
+
+    private static byte[] snapshot(int value) {
+        return ("snapshot-" + value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertState(String currentTag, int value, ProcessState state) {
+        Assert.assertNotNull(state);
+        Assert.assertEquals("order", state.getCode());
+        Assert.assertEquals(currentTag, state.getCurrentTag());
+        Assert.assertArrayEquals(snapshot(value), state.getSnapshot());
+    }
+
+}
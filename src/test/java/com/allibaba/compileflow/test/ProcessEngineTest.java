@@ -1,22 +1,65 @@
 package com.allibaba.compileflow.test;
 
+import com.alibaba.compileflow.engine.ExecutionResult;
+import com.alibaba.compileflow.engine.PreCompileReport;
 import com.alibaba.compileflow.engine.ProcessEngine;
 import com.alibaba.compileflow.engine.ProcessEngineFactory;
 import com.alibaba.compileflow.engine.StatefulProcessEngine;
+import com.alibaba.compileflow.engine.common.CompileFlowException;
 import com.alibaba.compileflow.engine.common.constants.FlowModelType;
+import com.alibaba.compileflow.engine.common.constants.ProcessType;
+import com.alibaba.compileflow.engine.common.utils.IOUtils;
 import com.alibaba.compileflow.engine.definition.tbbpm.TbbpmModel;
+import com.alibaba.compileflow.engine.process.impl.AbstractProcessEngine;
+import com.alibaba.compileflow.engine.process.impl.TbbpmStatelessProcessEngineImpl;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCache;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.ClassCacheEntry;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.FlowClassIndex;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.RuntimeOption;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.FlowClassLoader;
+import com.alibaba.compileflow.engine.process.preruntime.compiler.impl.FlowClassPrecompiler;
 import com.alibaba.compileflow.engine.process.preruntime.converter.impl.TbbpmModelConverter;
+import com.alibaba.compileflow.engine.runtime.instance.FlowInstance;
+import com.alibaba.compileflow.engine.runtime.instance.TypedProcessInstance;
+import com.alibaba.compileflow.engine.runtime.state.ProcessState;
+import com.alibaba.compileflow.engine.runtime.state.SnapshotOutput;
+import com.alibaba.compileflow.engine.runtime.state.SnapshotSchema;
+import com.alibaba.compileflow.engine.runtime.state.impl.FileStateStore;
+import com.allibaba.compileflow.test.mock.MockJavaClazz;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.io.File;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 /**
  * @author yusu
@@ -43,6 +86,403 @@ public class ProcessEngineTest {
         System.out.println(processEngine.execute(code, context));
     }
 
+    @Test
+    public void testPreCompile() {
+        final ProcessEngine processEngine = ProcessEngineFactory.getProcessEngine();
+        processEngine.preCompile("bpm.ktv.ktvExample", "bpm.om.waitpaySuccessflow");
+
+        final Map<String, Object> context = new HashMap<>();
+        List<String> pList = new ArrayList<>();
+        pList.add("wuxiang");
+        pList.add("yusu");
+        context.put("pList", pList);
+        Assert.assertEquals(60, processEngine.execute("bpm.ktv.ktvExample", context).get("price"));
+    }
+
+    @Test
+    public void testParallelPreCompile() {
+        final ProcessEngine processEngine = ProcessEngineFactory.getProcessEngine();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            PreCompileReport report = processEngine.preCompile(2, executor, "bpm.ktv.ktvExample",
+                "bpm.om.waitpaySuccessflow", "bpm.notExists");
+            Assert.assertTrue(report.getCompiledCodes().contains("bpm.ktv.ktvExample"));
+            Assert.assertTrue(report.getCompiledCodes().contains("bpm.om.waitpaySuccessflow"));
+            Assert.assertTrue(report.getFailures().containsKey("bpm.notExists"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testClassCacheKey() {
+        final String code = "bpm.ktv.ktvExample";
+        final Map<String, ClassCacheEntry> entries = new HashMap<>();
+        final List<String> hits = new ArrayList<>();
+        ClassCache classCache = new ClassCache() {
+            @Override
+            public ClassCacheEntry get(String key) {
+                ClassCacheEntry entry = entries.get(key);
+                if (entry != null) {
+                    hits.add(key);
+                }
+                return entry;
+            }
+
+            @Override
+            public void put(String key, ClassCacheEntry entry) {
+                entries.put(key, entry);
+            }
+
+            @Override
+            public void remove(String key) {
+                entries.remove(key);
+            }
+        };
+
+        AbstractProcessEngine<TbbpmModel> processEngine = new TbbpmStatelessProcessEngineImpl();
+        processEngine.setClassCache(classCache);
+        processEngine.preCompile(code);
+        Assert.assertEquals(1, entries.size());
+        Assert.assertTrue(hits.isEmpty());
+
+        // the same flow compiled with the same options hits the cache
+        processEngine = new TbbpmStatelessProcessEngineImpl();
+        processEngine.setClassCache(classCache);
+        processEngine.preCompile(code);
+        Assert.assertEquals(1, entries.size());
+        Assert.assertEquals(1, hits.size());
+
+        // each option changing the generated code misses it
+        RuntimeOption notReentrant = new RuntimeOption();
+        notReentrant.setStatelessReentrant(false);
+        RuntimeOption autoParallel = new RuntimeOption();
+        autoParallel.setAutoParallelEnabled(true);
+        RuntimeOption subFlowInlining = new RuntimeOption();
+        subFlowInlining.setSubFlowInlineThreshold(8);
+        for (RuntimeOption runtimeOption : Arrays.asList(notReentrant, autoParallel, subFlowInlining)) {
+            processEngine.setRuntimeOption(runtimeOption);
+            processEngine.preCompile(code);
+        }
+        Assert.assertEquals(4, entries.size());
+        Assert.assertEquals(1, hits.size());
+    }
+
+    @Test
+    public void testPrebuiltFlowClass() throws Exception {
+        final String code = "bpm.ktv.ktvExample";
+        final Map<String, Object> context = new HashMap<>();
+        context.put("pList", Arrays.asList("wuxiang", "yusu"));
+
+        Path resourceDirectory = Files.createTempDirectory("compileflow-flows");
+        Path outputDirectory = Files.createTempDirectory("compileflow-classes");
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Path flowPath = resourceDirectory.resolve("bpm/ktv/ktvExample.bpm");
+            Files.createDirectories(flowPath.getParent());
+            try (InputStream inputStream = contextClassLoader.getResourceAsStream("bpm/ktv/ktvExample.bpm")) {
+                Files.copy(inputStream, flowPath);
+            }
+            Assert.assertEquals(Collections.singletonList(code),
+                FlowClassPrecompiler.precompile(resourceDirectory.toFile(), outputDirectory.toFile(), false));
+
+            // the flow class is looked up in the index and loaded, the flow is not compiled
+            URL[] classPath = {outputDirectory.toUri().toURL()};
+            try (URLClassLoader prebuiltClassLoader = new URLClassLoader(classPath, contextClassLoader)) {
+                Thread.currentThread().setContextClassLoader(prebuiltClassLoader);
+                AbstractProcessEngine<TbbpmModel> processEngine = new TbbpmStatelessProcessEngineImpl();
+                processEngine.setClassCache(null);
+                Assert.assertSame(prebuiltClassLoader, processEngine.getSubFlowRuntime(code)
+                    .getFlowInstanceFactory().getClass().getClassLoader());
+                Assert.assertEquals(60, processEngine.execute(code, context).get("price"));
+            }
+
+            // the flow changed since it was compiled at build time, it is compiled again
+            Path indexPath = outputDirectory.resolve(FlowClassIndex.INDEX_RESOURCE);
+            Properties index = new Properties();
+            try (InputStream inputStream = Files.newInputStream(indexPath)) {
+                index.load(inputStream);
+            }
+            index.setProperty(FlowClassIndex.getFlowDigestKey(FlowModelType.TBBPM, ProcessType.STATELESS, code),
+                "stale");
+            try (OutputStream outputStream = Files.newOutputStream(indexPath)) {
+                index.store(outputStream, null);
+            }
+            try (URLClassLoader prebuiltClassLoader = new URLClassLoader(classPath, contextClassLoader)) {
+                Thread.currentThread().setContextClassLoader(prebuiltClassLoader);
+                AbstractProcessEngine<TbbpmModel> processEngine = new TbbpmStatelessProcessEngineImpl();
+                processEngine.setClassCache(null);
+                Assert.assertTrue(processEngine.getSubFlowRuntime(code).getFlowInstanceFactory().getClass()
+                    .getClassLoader() instanceof FlowClassLoader);
+                Assert.assertEquals(60, processEngine.execute(code, context).get("price"));
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            for (Path directory : Arrays.asList(resourceDirectory, outputDirectory)) {
+                try (Stream<Path> paths = Files.walk(directory)) {
+                    paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        final String code = "bpm.ktv.ktvExample";
+        final ProcessEngine processEngine = ProcessEngineFactory.getProcessEngine();
+
+        final Map<String, Object> context = new HashMap<>();
+        List<String> pList = new ArrayList<>();
+        pList.add("wuxiang");
+        pList.add("yusu");
+        context.put("pList", pList);
+        processEngine.execute(code, context);
+        WeakReference<ClassLoader> oldClassLoader = getFlowClassLoader((AbstractProcessEngine) processEngine, code);
+        Assert.assertTrue(oldClassLoader.get() instanceof FlowClassLoader);
+        processEngine.reload(code);
+        Assert.assertEquals(60, processEngine.execute(code, context).get("price"));
+
+        // the new version is defined in a loader of its own, the old one is collected once nothing runs on it
+        ClassLoader newClassLoader = getFlowClassLoader((AbstractProcessEngine) processEngine, code).get();
+        Assert.assertTrue(newClassLoader instanceof FlowClassLoader);
+        Assert.assertNotSame(oldClassLoader.get(), newClassLoader);
+        for (int i = 0; i < 50 && oldClassLoader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assert.assertNull(oldClassLoader.get());
+    }
+
+    private static WeakReference<ClassLoader> getFlowClassLoader(AbstractProcessEngine<?> processEngine,
+                                                                 String code) {
+        FlowInstance flowInstance = processEngine.getSubFlowRuntime(code).getFlowInstanceFactory().newInstance();
+        return new WeakReference<>(flowInstance.getClass().getClassLoader());
+    }
+
+    @Test
+    public void testTieredExecution() throws Exception {
+        RuntimeOption interpretedOption = new RuntimeOption();
+        interpretedOption.setTieredCompileThreshold(Integer.MAX_VALUE);
+        final List<String> executedCodes = Collections.synchronizedList(new ArrayList<>());
+        AbstractProcessEngine<TbbpmModel> interpretedEngine = new TbbpmStatelessProcessEngineImpl() {
+            @Override
+            public Map<String, Object> execute(String code, Map<String, Object> context) {
+                executedCodes.add(code);
+                return super.execute(code, context);
+            }
+        };
+        interpretedEngine.setRuntimeOption(interpretedOption);
+        RuntimeOption compiledOption = new RuntimeOption();
+        compiledOption.setTieredCompileThreshold(0);
+        AbstractProcessEngine<TbbpmModel> compiledEngine = new TbbpmStatelessProcessEngineImpl();
+        compiledEngine.setRuntimeOption(compiledOption);
+
+        // the interpreter and the compiled flow agree on every path
+        for (String code : Arrays.asList("bpm.ktv.ktvExample", "bpm.om.waitpaySuccessflow")) {
+            for (int i = 0; i < 4; i++) {
+                final Map<String, Object> context = new HashMap<>();
+                context.put("pList", new ArrayList<>(Collections.nCopies(i * 3 + 1, "yusu")));
+                context.put("num", 100 * i);
+                Assert.assertEquals(compiledEngine.execute(code, new HashMap<>(context)),
+                    interpretedEngine.execute(code, new HashMap<>(context)));
+            }
+            Assert.assertTrue(interpretedEngine.getSubFlowRuntime(code).isInterpreted());
+            Assert.assertFalse(compiledEngine.getSubFlowRuntime(code).isInterpreted());
+        }
+
+        // sub flows of an interpreted flow are executed by the engine owning the flow
+        final Map<String, Object> subFlowContext = new HashMap<>();
+        subFlowContext.put("people", 3);
+        Assert.assertEquals(90, interpretedEngine.execute("bpm.subflow.orderExample", subFlowContext)
+            .get("totalPrice"));
+        Assert.assertTrue(interpretedEngine.getSubFlowRuntime("bpm.subflow.orderExample").isInterpreted());
+        Assert.assertTrue(executedCodes.contains("bpm.subflow.priceSubFlow"));
+
+        // the flow is interpreted until it's executed as often as the threshold, then compiled in the background
+        final String code = "bpm.ktv.ktvExample";
+        RuntimeOption tieredOption = new RuntimeOption();
+        tieredOption.setTieredCompileThreshold(3);
+        AbstractProcessEngine<TbbpmModel> processEngine = new TbbpmStatelessProcessEngineImpl();
+        processEngine.setRuntimeOption(tieredOption);
+        final Map<String, Object> context = new HashMap<>();
+        context.put("pList", Arrays.asList("wuxiang", "yusu"));
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(60, processEngine.execute(code, context).get("price"));
+            Assert.assertTrue(processEngine.getSubFlowRuntime(code).isInterpreted());
+        }
+        Assert.assertEquals(60, processEngine.execute(code, context).get("price"));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (processEngine.getSubFlowRuntime(code).isInterpreted() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(processEngine.getSubFlowRuntime(code).isInterpreted());
+        Assert.assertEquals(60, processEngine.execute(code, context).get("price"));
+    }
+
+    @Test
+    public void testReentrantProcessEngine() throws Exception {
+        final String code = "bpm.om.waitpaySuccessflow";
+        final ProcessEngine<TbbpmModel> processEngine = ProcessEngineFactory.getProcessEngine();
+        Assert.assertTrue(((AbstractProcessEngine<TbbpmModel>) processEngine).getSubFlowRuntime(code).isReentrant());
+
+        // a single instance of the flow class serves all threads, each execution sees its own vars only
+        final int threads = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final int thread = i;
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int j = 0; j < 50; j++) {
+                        int num = thread * 1000 + j;
+                        Map<String, Object> context = new HashMap<>();
+                        context.put("num", num);
+                        Assert.assertEquals(num - 100, processEngine.execute(code, context).get("numSqrt"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTypedProcessEngine() {
+        final String code = "bpm.ktv.ktvExample";
+        final ProcessEngine<TbbpmModel> processEngine = ProcessEngineFactory.getProcessEngine();
+
+        TypedProcessInstance<KtvInput, KtvOutput> instance = processEngine.getTypedInstance(code, KtvInput.class,
+            KtvOutput.class);
+        KtvInput input = new KtvInput();
+        input.pList = Arrays.asList("wuxiang", "yusu");
+        Assert.assertEquals(Integer.valueOf(60), instance.execute(input).getPrice());
+
+        try {
+            processEngine.getTypedInstance(code, KtvInput.class, StringPriceOutput.class);
+            Assert.fail("price bound to a string");
+        } catch (CompileFlowException e) {
+            Assert.assertTrue(e.getMessage().contains("price"));
+        }
+    }
+
+    public static class KtvInput {
+
+        public List<String> pList;
+
+    }
+
+    public static class KtvOutput {
+
+        private Integer price;
+
+        public Integer getPrice() {
+            return price;
+        }
+
+        public void setPrice(Integer price) {
+            this.price = price;
+        }
+
+    }
+
+    public static class StringPriceOutput {
+
+        public String price;
+
+    }
+
+    @Test
+    public void testProcessEngineAsync() throws Exception {
+        final String code = "bpm.ktv.ktvExample";
+        final ProcessEngine<?> processEngine = ProcessEngineFactory.getProcessEngine();
+
+        final Map<String, Object> context = new HashMap<>();
+        List<String> pList = new ArrayList<>();
+        pList.add("wuxiang");
+        pList.add("yusu");
+        context.put("pList", pList);
+        Map<String, Object> result = processEngine.executeAsync(code, context).get();
+        Assert.assertEquals(60, result.get("price"));
+    }
+
+    @Test
+    public void testProcessEngineCancel() throws Exception {
+        final String code = "bpm.cancel.cancelExample";
+        final ProcessEngine<?> processEngine = ProcessEngineFactory.getProcessEngine();
+        final Map<String, Object> context = new HashMap<>();
+        context.put("num", 3);
+        Assert.assertEquals(90, processEngine.execute(code, context).get("totalPrice"));
+
+        // a synchronous execution isn't cancelled by interrupting its thread, which stays interrupted
+        MockJavaClazz.blockNextPrice();
+        final AtomicReference<Object> syncResult = new AtomicReference<>();
+        final AtomicReference<Boolean> interrupted = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            syncResult.set(processEngine.execute(code, context).get("totalPrice"));
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        thread.start();
+        Assert.assertTrue(MockJavaClazz.awaitBlockedPrice());
+        thread.interrupt();
+        MockJavaClazz.releaseBlockedPrice();
+        thread.join(10000);
+        Assert.assertEquals(90, syncResult.get());
+        Assert.assertEquals(Boolean.TRUE, interrupted.get());
+
+        // cancelling the future of an asynchronous execution interrupts it while in the first task, the flow stops
+        // before the second one
+        MockJavaClazz.blockNextPrice();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        int countedPrices;
+        try {
+            CompletableFuture<Map<String, Object>> future = processEngine.executeAsync(code, context, executor);
+            Assert.assertTrue(MockJavaClazz.awaitBlockedPrice());
+            countedPrices = MockJavaClazz.getCountedPrices();
+            Assert.assertTrue(future.cancel(true));
+            MockJavaClazz.releaseBlockedPrice();
+            try {
+                future.get();
+                Assert.fail("cancellation expected");
+            } catch (CancellationException e) {
+                // expected
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(countedPrices, MockJavaClazz.getCountedPrices());
+    }
+
+    @Test
+    public void testProcessEngineBatch() {
+        final String code = "bpm.ktv.ktvExample";
+        final ProcessEngine<?> processEngine = ProcessEngineFactory.getProcessEngine();
+
+        List<Map<String, Object>> contexts = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            final Map<String, Object> context = new HashMap<>();
+            List<String> pList = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                pList.add("yusu");
+            }
+            context.put("pList", pList);
+            contexts.add(context);
+        }
+        contexts.add(new HashMap<>(Collections.singletonMap("pList", "wuxiang")));
+
+        List<ExecutionResult> results = processEngine.executeBatch(code, contexts, 4, ForkJoinPool.commonPool());
+        Assert.assertEquals(21, results.size());
+        Assert.assertEquals(30, results.get(0).getResult().get("price"));
+        Assert.assertEquals(60, results.get(1).getResult().get("price"));
+        Assert.assertFalse(results.get(20).isSuccess());
+    }
+
     @Test
     public void testProcessEngineBpmn20() {
         final String code = "bpmn20.ktv.ktvExample";
@@ -57,6 +497,244 @@ public class ProcessEngineTest {
         System.out.println(processEngine.start(code, context));
     }
 
+    @Test
+    public void testProcessEngineBpmn20ParallelGateway() {
+        final String code = "bpmn20.parallel.parallelExample";
+
+        final Map<String, Object> context = new HashMap<>();
+        context.put("num", 200);
+
+        final ProcessEngine processEngine = ProcessEngineFactory.getStatelessProcessEngine(FlowModelType.BPMN);
+        Map<String, Object> result = processEngine.execute(code, context);
+        Assert.assertEquals(6000, result.get("totalPrice"));
+        Assert.assertEquals(100, result.get("discount"));
+        Assert.assertEquals(5900, result.get("price"));
+    }
+
+    @Test
+    public void testProcessEngineBpmn20ParallelGatewayConflict() {
+        final String code = "bpmn20.parallel.conflictExample";
+        final ProcessEngine processEngine = ProcessEngineFactory.getStatelessProcessEngine(FlowModelType.BPMN);
+
+        // both branches write the price, the branch declared last wins however the branches are scheduled
+        for (int i = 0; i < 20; i++) {
+            final Map<String, Object> context = new HashMap<>();
+            context.put("num", 200 + i);
+            Assert.assertEquals(100 + i, processEngine.execute(code, context).get("price"));
+        }
+    }
+
+    @Test
+    public void testProcessEngineBpmn20InclusiveGateway() {
+        final String code = "bpmn20.inclusive.inclusiveExample";
+        final ProcessEngine processEngine = ProcessEngineFactory.getStatelessProcessEngine(FlowModelType.BPMN);
+
+        final Map<String, Object> context = new HashMap<>();
+        context.put("num", 2000);
+        Map<String, Object> result = processEngine.execute(code, context);
+        Assert.assertEquals(58100, result.get("price"));
+
+        // no condition is true, only the default flow runs
+        context.put("num", 50);
+        result = processEngine.execute(code, context);
+        Assert.assertEquals(0, result.get("totalPrice"));
+        Assert.assertEquals(50, result.get("price"));
+    }
+
+    @Test
+    public void testProcessEngineBpmn20MultiInstance() {
+        final String code = "bpmn20.multiinstance.multiInstanceExample";
+        final ProcessEngine processEngine = ProcessEngineFactory.getStatelessProcessEngine(FlowModelType.BPMN);
+
+        final Map<String, Object> context = new HashMap<>();
+        context.put("nums", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8));
+        Map<String, Object> result = processEngine.execute(code, context);
+        Assert.assertEquals(Arrays.asList(30, 60, 90, 120, 150, 180, 210, 240), result.get("prices"));
+    }
+
+    @Test
+    public void testProcessEngineBpmn20MultiInstanceCompletion() {
+        final String code = "bpmn20.multiinstance.multiInstanceSequentialExample";
+        final ProcessEngine processEngine = ProcessEngineFactory.getStatelessProcessEngine(FlowModelType.BPMN);
+
+        // the output element is a flow var, instances after the negative num aren't run
+        final Map<String, Object> context = new HashMap<>();
+        context.put("nums", Arrays.asList(1, 2, -3, 4, 5));
+        Map<String, Object> result = processEngine.execute(code, context);
+        Assert.assertEquals(Arrays.asList(30, 60, -90), result.get("prices"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testProcessEngineBpmn20MultiInstanceMaxConcurrency() {
+        final String code = "bpmn20.multiinstance.multiInstanceTrackedExample";
+        final ProcessEngine processEngine = ProcessEngineFactory.getStatelessProcessEngine(FlowModelType.BPMN);
+
+        MockJavaClazz.resetTrackedPrices();
+        final Map<String, Object> context = new HashMap<>();
+        context.put("nums", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12));
+        Map<String, Object> result = processEngine.execute(code, context);
+        Assert.assertEquals(Arrays.asList(30, 60, 90, 120, 150, 180, 210, 240, 270, 300, 330, 360),
+            result.get("prices"));
+        Assert.assertTrue(MockJavaClazz.getMaxTrackedPrices() > 1);
+        Assert.assertTrue(MockJavaClazz.getMaxTrackedPrices() <= 3);
+
+        // once the negative num completes, the running instances complete but no further one is started
+        context.put("nums", Arrays.asList(-1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12));
+        result = processEngine.execute(code, context);
+        List<Integer> prices = (List<Integer>) result.get("prices");
+        Assert.assertEquals(Integer.valueOf(-30), prices.get(0));
+        Assert.assertTrue(prices.size() <= 3);
+    }
+
+    @Test
+    public void testProcessEngineParallelLoop() {
+        final String code = "bpm.loop.parallelLoopExample";
+        final ProcessEngine<TbbpmModel> processEngine = ProcessEngineFactory.getProcessEngine();
+
+        // negative nums are skipped by continue, 0 breaks the loop
+        final Map<String, Object> context = new HashMap<>();
+        context.put("nums", Arrays.asList(1, -2, 3, 0, 5, 6, 7, 8));
+        Map<String, Object> result = processEngine.execute(code, context);
+        Assert.assertEquals(90, result.get("lastPrice"));
+    }
+
+    @Test
+    public void testParallelLoopCarriedVars() {
+        final String code = "bpm.loop.parallelSumExample";
+        final ProcessEngine<TbbpmModel> processEngine = ProcessEngineFactory.getProcessEngine();
+
+        // iterations add to the same total, the loop runs sequentially
+        Assert.assertFalse(processEngine.getJavaCode(code).contains("ParallelLoop.execute"));
+        final Map<String, Object> context = new HashMap<>();
+        context.put("nums", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8));
+        Assert.assertEquals(36, processEngine.execute(code, context).get("total"));
+    }
+
+    @Test
+    public void testProcessEngineIndependentTasks() {
+        final String code = "bpm.parallel.independentTasksExample";
+        final AbstractProcessEngine<TbbpmModel> processEngine = new TbbpmStatelessProcessEngineImpl();
+        RuntimeOption runtimeOption = new RuntimeOption();
+        runtimeOption.setAutoParallelEnabled(true);
+        processEngine.setRuntimeOption(runtimeOption);
+
+        // both prices are calculated concurrently, each waits for the other to start
+        MockJavaClazz.expectConcurrentPrices(2);
+        final Map<String, Object> context = new HashMap<>();
+        context.put("adults", 3);
+        context.put("children", 2);
+        Map<String, Object> result = processEngine.execute(code, context);
+        Assert.assertEquals(150, result.get("totalPrice"));
+
+        // java actions not marked parallelizable may have side effects, they keep running one after another
+        final String sideEffectCode = "bpm.parallel.sideEffectTasksExample";
+        Assert.assertFalse(processEngine.getJavaCode(sideEffectCode).contains("ParallelBranches.execute"));
+        Assert.assertEquals(150, processEngine.execute(sideEffectCode, context).get("totalPrice"));
+    }
+
+    @Test
+    public void testProcessEngineSubFlow() throws Exception {
+        final String code = "bpm.subflow.orderExample";
+        final String subFlowCode = "bpm.subflow.priceSubFlow";
+        final ProcessEngine<TbbpmModel> processEngine = ProcessEngineFactory.getProcessEngine();
+
+        final Map<String, Object> context = new HashMap<>();
+        context.put("people", 3);
+        Assert.assertEquals(90, processEngine.execute(code, context).get("totalPrice"));
+
+        // the sub flow is linked again once reloaded with another price
+        Path flowPath = Files.createTempFile("compileflow-subflow", ".bpm");
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            String flow;
+            try (InputStream inputStream = contextClassLoader.getResourceAsStream("bpm/subflow/priceSubFlow.bpm")) {
+                flow = new String(IOUtils.toByteArray(inputStream), StandardCharsets.UTF_8);
+            }
+            Files.write(flowPath, flow.replace("method=\"calPrice\"", "method=\"mockReturnMethod\"")
+                .getBytes(StandardCharsets.UTF_8));
+            URL flowUrl = flowPath.toUri().toURL();
+            Thread.currentThread().setContextClassLoader(new ClassLoader(contextClassLoader) {
+                @Override
+                public URL getResource(String name) {
+                    return "bpm/subflow/priceSubFlow.bpm".equals(name) ? flowUrl : super.getResource(name);
+                }
+            });
+            processEngine.reload(subFlowCode);
+            context.put("people", 4);
+            Assert.assertEquals(-96, processEngine.execute(code, context).get("totalPrice"));
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            Files.delete(flowPath);
+        }
+
+        processEngine.reload(subFlowCode);
+        Assert.assertEquals(120, processEngine.execute(code, context).get("totalPrice"));
+    }
+
+    @Test
+    public void testProcessEngineSubFlowInlining() throws Exception {
+        final String code = "bpm.subflow.orderExample";
+        final String subFlowCode = "bpm.subflow.priceSubFlow";
+        final List<String> loadedCodes = Collections.synchronizedList(new ArrayList<>());
+        final AbstractProcessEngine<TbbpmModel> processEngine = new TbbpmStatelessProcessEngineImpl() {
+            @Override
+            public TbbpmModel load(String code) {
+                loadedCodes.add(code);
+                return super.load(code);
+            }
+        };
+        RuntimeOption runtimeOption = new RuntimeOption();
+        runtimeOption.setSubFlowInlineThreshold(10);
+        processEngine.setRuntimeOption(runtimeOption);
+
+        final Map<String, Object> context = new HashMap<>();
+        context.put("people", 3);
+        Assert.assertEquals(90, processEngine.execute(code, context).get("totalPrice"));
+        Assert.assertEquals(Collections.singleton(subFlowCode), processEngine.getSubFlowRuntime(code)
+            .getInlinedCodes());
+        // the sub flow is loaded by the engine owning the flow
+        Assert.assertTrue(loadedCodes.contains(subFlowCode));
+
+        // sub flows redeclaring a var, or importing a type clashing with those of the flow, are called
+        Assert.assertEquals(90, processEngine.execute("bpm.subflow.orderShadowedExample", context)
+            .get("totalPrice"));
+        Assert.assertTrue(processEngine.getSubFlowRuntime("bpm.subflow.orderShadowedExample").getInlinedCodes()
+            .isEmpty());
+        Assert.assertEquals(90, processEngine.execute("bpm.subflow.orderDateExample", context).get("totalPrice"));
+        Assert.assertTrue(processEngine.getSubFlowRuntime("bpm.subflow.orderDateExample").getInlinedCodes()
+            .isEmpty());
+
+        // the flow is compiled again once the inlined sub flow is reloaded with another price
+        Path flowPath = Files.createTempFile("compileflow-subflow", ".bpm");
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            String flow;
+            try (InputStream inputStream = contextClassLoader.getResourceAsStream("bpm/subflow/priceSubFlow.bpm")) {
+                flow = new String(IOUtils.toByteArray(inputStream), StandardCharsets.UTF_8);
+            }
+            Files.write(flowPath, flow.replace("method=\"calPrice\"", "method=\"mockReturnMethod\"")
+                .getBytes(StandardCharsets.UTF_8));
+            URL flowUrl = flowPath.toUri().toURL();
+            Thread.currentThread().setContextClassLoader(new ClassLoader(contextClassLoader) {
+                @Override
+                public URL getResource(String name) {
+                    return "bpm/subflow/priceSubFlow.bpm".equals(name) ? flowUrl : super.getResource(name);
+                }
+            });
+            Object flowClass = processEngine.getSubFlowRuntime(code).getFlowInstanceFactory().getClass();
+            processEngine.reload(subFlowCode);
+            Assert.assertNotSame(flowClass, processEngine.getSubFlowRuntime(code).getFlowInstanceFactory()
+                .getClass());
+            Assert.assertEquals(Collections.singleton(subFlowCode), processEngine.getSubFlowRuntime(code)
+                .getInlinedCodes());
+            Assert.assertEquals(-97, processEngine.execute(code, context).get("totalPrice"));
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+            Files.delete(flowPath);
+        }
+    }
+
     @Test
     public void testTbbpmModelConvert() {
 //        final String code = "bpm.ktv.ktvExample";
@@ -103,6 +781,102 @@ public class ProcessEngineTest {
         }
     }
 
+    @Test
+    public void testDurableStatefulProcessEngine() throws Exception {
+        String code = "bpm.om.waitpaySuccessflow";
+        StatefulProcessEngine processEngine = ProcessEngineFactory.getStatefulProcessEngine();
+        File stateFile = File.createTempFile("compileflow", ".state");
+        FileStateStore stateStore = new FileStateStore(stateFile);
+        ((AbstractProcessEngine) processEngine).setStateStore(stateStore);
+        try {
+            Map<String, Object> context = new HashMap<>();
+            context.put("num", 100);
+            processEngine.startInstance(code, "order-1", context);
+            Assert.assertEquals("PaymentPendingCallback",
+                processEngine.getInstanceState("order-1").getCurrentTag());
+            try {
+                processEngine.startInstance(code, "order-1", context);
+                Assert.fail("instance started twice");
+            } catch (CompileFlowException e) {
+                Assert.assertTrue(e.getMessage().contains("already exists"));
+            }
+
+            Map<String, Object> event = new HashMap<>();
+            event.put("eventName", "PaymentPendingCallback");
+            Assert.assertEquals(3000, processEngine.triggerInstance("order-1", event).get("numSqrt"));
+            Assert.assertNull(processEngine.getInstanceState("order-1"));
+
+            // state saved by an older version of the flow, whose vars differ, is restored by name
+            SnapshotSchema oldSchema = SnapshotSchema.of(new String[] {"num", "discount"},
+                new String[] {"java.lang.Integer", "double"});
+            SnapshotOutput oldSnapshot = oldSchema.newOutput();
+            oldSnapshot.writeValue(100);
+            oldSnapshot.writeDouble(0.5);
+            stateStore.save("order-2", ProcessState.of(code, "PaymentPendingCallback", oldSnapshot.toByteArray()));
+            Assert.assertEquals(3000, processEngine.triggerInstance("order-2", event).get("numSqrt"));
+        } finally {
+            ((AbstractProcessEngine) processEngine).setStateStore(null);
+            stateStore.close();
+            stateFile.delete();
+        }
+    }
+
+    @Test
+    public void testDeliverEvent() throws Exception {
+        String code = "bpm.om.waitPaymentCorrelatedFlow";
+        StatefulProcessEngine processEngine = ProcessEngineFactory.getStatefulProcessEngine();
+        File stateFile = File.createTempFile("compileflow", ".state");
+        FileStateStore stateStore = new FileStateStore(stateFile);
+        ((AbstractProcessEngine) processEngine).setStateStore(stateStore);
+        try {
+            Map<String, Object> context = new HashMap<>();
+            context.put("num", 100);
+            context.put("orderId", "order-1");
+            processEngine.startInstance(code, "instance-1", context);
+            processEngine.startInstance(code, "instance-2", context);
+            context.put("orderId", "order-2");
+            processEngine.startInstance(code, "instance-3", context);
+            // an instance which can't be resumed doesn't keep the others from being triggered
+            stateStore.save("instance-4", ProcessState.of("bpm.om.missingFlow", "PaymentPendingCallback",
+                "PaymentPendingCallback", "order-1", new byte[0]));
+
+            Map<String, ExecutionResult> results = processEngine.deliverEvent("PaymentPendingCallback",
+                "order-1", Collections.emptyMap());
+            Assert.assertEquals(new HashSet<>(Arrays.asList("instance-1", "instance-2", "instance-4")),
+                results.keySet());
+            Assert.assertEquals(3000, results.get("instance-1").getResult().get("numSqrt"));
+            Assert.assertTrue(results.get("instance-2").isSuccess());
+            Assert.assertFalse(results.get("instance-4").isSuccess());
+            Assert.assertNull(processEngine.getInstanceState("instance-1"));
+            Assert.assertNull(processEngine.getInstanceState("instance-2"));
+            stateStore.remove("instance-4");
+            Assert.assertEquals("order-2", processEngine.getInstanceState("instance-3").getCorrelationKey());
+            Assert.assertTrue(processEngine.deliverEvent("PaymentPendingCallback", "order-1",
+                Collections.emptyMap()).isEmpty());
+            try {
+                processEngine.deliverEvent("PaymentPendingCallback", null, Collections.emptyMap());
+                Assert.fail("null correlation key delivered");
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals("correlationKey is null", e.getMessage());
+            }
+        } finally {
+            ((AbstractProcessEngine) processEngine).setStateStore(null);
+            stateStore.close();
+            stateFile.delete();
+        }
+    }
+
+    @Test
+    public void testBpmnDeliverEvent() {
+        StatefulProcessEngine processEngine = ProcessEngineFactory.getStatefulProcessEngine(FlowModelType.BPMN);
+        try {
+            processEngine.deliverEvent("PaymentPendingCallback", "order-1", Collections.emptyMap());
+            Assert.fail("event delivered to bpmn flows");
+        } catch (CompileFlowException e) {
+            Assert.assertTrue(e.getMessage().contains("not supported by bpmn flows"));
+        }
+    }
+
     @Test
     public void testStatefulProcessEngine() {
         String code = "bpm.om.generalOrderFulfillmentFlow";
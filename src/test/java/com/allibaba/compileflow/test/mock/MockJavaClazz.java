@@ -1,10 +1,26 @@
 package com.allibaba.compileflow.test.mock;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author pin
  */
 public class MockJavaClazz {
 
+    private static volatile CountDownLatch priceLatch = new CountDownLatch(0);
+
+    private static volatile CountDownLatch blockedPriceStarted = new CountDownLatch(0);
+
+    private static volatile CountDownLatch blockedPriceReleased = new CountDownLatch(0);
+
+    private static final AtomicInteger countedPrices = new AtomicInteger();
+
+    private static final AtomicInteger trackedPrices = new AtomicInteger();
+
+    private static final AtomicInteger maxTrackedPrices = new AtomicInteger();
+
     public void mockJavaMethod(int num) {
         System.out.println("java: number is " + num);
     }
@@ -33,4 +49,97 @@ public class MockJavaClazz {
         return 30 * num;
     }
 
+    /**
+     * Expect the given number of {@link #calConcurrentPrice(int)} calls to run at the same time.
+     */
+    public static void expectConcurrentPrices(int count) {
+        priceLatch = new CountDownLatch(count);
+    }
+
+    /**
+     * Calculate the price once all the expected calls have started, calls made one after another time out.
+     */
+    public int calConcurrentPrice(int num) throws InterruptedException {
+        CountDownLatch latch = priceLatch;
+        latch.countDown();
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("price calculations don't overlap");
+        }
+        return calPrice(num);
+    }
+
+    /**
+     * Block the next {@link #calBlockedPrice(int)} call until {@link #releaseBlockedPrice()}.
+     */
+    public static void blockNextPrice() {
+        blockedPriceStarted = new CountDownLatch(1);
+        blockedPriceReleased = new CountDownLatch(1);
+    }
+
+    public static boolean awaitBlockedPrice() throws InterruptedException {
+        return blockedPriceStarted.await(10, TimeUnit.SECONDS);
+    }
+
+    public static void releaseBlockedPrice() {
+        blockedPriceReleased.countDown();
+    }
+
+    /**
+     * Calculate the price once released, ignoring interrupts meanwhile but keeping the interrupt status, like a task
+     * unaware of cancellation.
+     */
+    public int calBlockedPrice(int num) {
+        blockedPriceStarted.countDown();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (!blockedPriceReleased.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("price is not released");
+                }
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return calPrice(num);
+    }
+
+    public static int getCountedPrices() {
+        return countedPrices.get();
+    }
+
+    public int calCountedPrice(int num) {
+        countedPrices.incrementAndGet();
+        return num;
+    }
+
+    public static void resetTrackedPrices() {
+        maxTrackedPrices.set(0);
+    }
+
+    /**
+     * @return max number of {@link #calTrackedPrice(int)} calls which ran at the same time since the last reset
+     */
+    public static int getMaxTrackedPrices() {
+        return maxTrackedPrices.get();
+    }
+
+    /**
+     * Calculate the price of a non-negative num after a while, tracking the calls running at the same time.
+     */
+    public int calTrackedPrice(int num) throws InterruptedException {
+        maxTrackedPrices.accumulateAndGet(trackedPrices.incrementAndGet(), Math::max);
+        try {
+            if (num >= 0) {
+                Thread.sleep(20);
+            }
+            return calPrice(num);
+        } finally {
+            trackedPrices.decrementAndGet();
+        }
+    }
+
 }